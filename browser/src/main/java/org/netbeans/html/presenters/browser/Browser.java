@@ -20,21 +20,15 @@ package org.netbeans.html.presenters.browser;
 
 import org.netbeans.html.presenters.render.Show;
 import java.io.Closeable;
-import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.Flushable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLDecoder;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -42,6 +36,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -76,6 +71,7 @@ Executor, Closeable {
     private HttpServer server;
     private Runnable onPageLoad;
     private Command current;
+    private String webSocketPath;
     private final Config config;
     private final Supplier<HttpServer<?, ?, ?, ?>> serverProvider;
 
@@ -226,6 +222,10 @@ Executor, Closeable {
             server.init(from, to);
 
             this.server.addHttpHandler(new RootPage(page), "/");
+            if (config.isWebSocket()) {
+                webSocketPath = "/command-" + UUID.randomUUID() + ".ws";
+                this.server.addWebSocket(new CommandChannel(), webSocketPath);
+            }
             server.start();
 
             show(pageURL("http", server, "/"));
@@ -242,6 +242,7 @@ Executor, Closeable {
     public final static class Config {
         String browser;
         Integer port;
+        Boolean webSocket;
         boolean debug;
 
         /**
@@ -253,6 +254,7 @@ Executor, Closeable {
         private Config(Config copy) {
             this.browser = copy.browser;
             this.port = copy.port;
+            this.webSocket = copy.webSocket;
             this.debug = copy.debug;
         }
 
@@ -290,6 +292,26 @@ Executor, Closeable {
             return this;
         }
 
+        /** Use a WebSocket to deliver scripts from Java to the browser.
+         * When enabled the page opens a WebSocket to the server and
+         * receives all commands over it instead of repeatedly polling the
+         * server with HTTP requests. Calls from JavaScript to Java remain
+         * synchronous HTTP requests, as the browser provides no blocking
+         * way to wait for a reply on a WebSocket. Browsers without
+         * WebSocket support fall back to HTTP polling. The default value
+         * is taken from a property
+         * {@code com.dukescript.presenters.browserWebSocket}. If the
+         * property is not specified, then the default value is {@code false}.
+         *
+         * @param webSocket true or false
+         * @return this instance
+         * @since 1.8
+         */
+        public Config webSocket(boolean webSocket) {
+            this.webSocket = webSocket;
+            return this;
+        }
+
         /** Enable or disable debugging. The default value is taken from a property
          * {@code com.dukescript.presenters.browserDebug}. If the property is
          * not specified, then the default value is {@code false}.
@@ -310,6 +332,13 @@ Executor, Closeable {
             return System.getProperty("com.dukescript.presenters.browser"); // NOI18N
         }
 
+        final boolean isWebSocket() {
+            if (webSocket != null) {
+                return webSocket;
+            }
+            return Boolean.getBoolean("com.dukescript.presenters.browserWebSocket"); // NOI18N
+        }
+
         final int getPort() {
             if (port != null) {
                 return port;
@@ -331,11 +360,88 @@ Executor, Closeable {
         s.addHeader(r, "Access-Control-Allow-Methods", "GET, POST, DELETE, PUT");
     }
 
+    private final class CommandChannel extends HttpServer.WebSocketApplication {
+        private final Map<Object, Command> connected = new ConcurrentHashMap<>();
+
+        @Override
+        <WebSocket> void onMessage(HttpServer<?, ?, WebSocket, ?> server, WebSocket socket, String text) {
+            Command c = SESSIONS.get(text);
+            if (c == null) {
+                LOG.log(Level.WARNING, "No command for {0}", text);
+                return;
+            }
+            connected.put(socket, c);
+            c.connect(socket);
+        }
+
+        @Override
+        <WebSocket> void onClose(HttpServer<?, ?, WebSocket, ?> server, WebSocket socket) {
+            Command c = connected.remove(socket);
+            if (c != null) {
+                c.disconnect(socket);
+            }
+        }
+    }
+
+    static String webSocketURL(String prefix, String path) {
+        URI uri = URI.create(prefix);
+        String scheme = "https".equals(uri.getScheme()) ? "wss" : "ws"; // NOI18N
+        return scheme + "://" + uri.getRawAuthority() + path;
+    }
+
     private final class RootPage extends HttpServer.Handler {
+        private static final String AUTHORITY = "@AUTHORITY@";
+        private static final String SESSION_ID = "@SESSION_ID@";
         private final URL page;
+        private final Resources resources;
+        private volatile PageTemplate template;
+        private volatile String[] script;
 
         public RootPage(URL page) {
             this.page = page;
+            this.resources = new Resources(page);
+        }
+
+        private PageTemplate template() throws IOException {
+            PageTemplate t = template;
+            if (t == null || !t.isValid()) {
+                t = PageTemplate.load(page);
+                template = t;
+            }
+            return t;
+        }
+
+        /** The script is the same for all pages, just the host and
+         * session id differ. It is generated once with placeholders and
+         * split into parts, each placeholder being a part of its own.
+         */
+        private String[] script() throws IOException {
+            String[] s = script;
+            if (s == null) {
+                StringWriter sw = new StringWriter();
+                emitScript(sw, "http://" + AUTHORITY + "/", SESSION_ID);
+                s = splitPlaceholders(sw.toString());
+                script = s;
+            }
+            return s;
+        }
+
+        private String[] splitPlaceholders(String text) {
+            List<String> parts = new ArrayList<>();
+            int from = 0;
+            for (;;) {
+                int authority = text.indexOf(AUTHORITY, from);
+                int session = text.indexOf(SESSION_ID, from);
+                int at = authority == -1 ? session : session == -1 ? authority : Math.min(authority, session);
+                if (at == -1) {
+                    parts.add(text.substring(from));
+                    return parts.toArray(new String[0]);
+                }
+                String placeholder = at == authority ? AUTHORITY : SESSION_ID;
+                parts.add(text.substring(from, at));
+                parts.add(placeholder);
+                from = at + placeholder.length();
+            }
         }
 
         @Override
@@ -343,13 +449,14 @@ Executor, Closeable {
             String path = server.getRequestURI(rqst);
             cors(server, rspns);
             if ("/".equals(path) || "index.html".equals(path)) {
-                Reader is;
-                String prefix = "http://" + server.getServerName(rqst) + ":" + server.getServerPort(rqst) + "/";
+                String authority = server.getServerName(rqst) + ":" + server.getServerPort(rqst);
+                String prefix = "http://" + authority + "/";
                 Writer w = server.getWriter(rspns);
                 server.setContentType(rspns, "text/html");
                 final Command cmd = new Command(server, Browser.this, prefix);
+                PageTemplate t;
                 try {
-                    is = new InputStreamReader(page.openStream());
+                    t = template();
                 } catch (IOException ex) {
                     w.write("<html><body>");
                     w.write("<h1>Browser</h1>");
@@ -360,36 +467,17 @@ Executor, Closeable {
                     return;
                 }
                 SESSIONS.put(cmd.id, cmd);
-                int state = 0;
-                for (;;) {
-                    int ch = is.read();
-                    if (ch == -1) {
-                        break;
+                w.write(t.head);
+                for (String part : script()) {
+                    if (AUTHORITY.equals(part)) {
+                        w.write(authority);
+                    } else if (SESSION_ID.equals(part)) {
+                        w.write(cmd.id);
+                    } else {
+                        w.write(part);
                     }
-                    char lower = Character.toLowerCase((char)ch);
-                    switch (state) {
-                        case 1000: break;
-                        case 0: if (lower == '<') state = 1; break;
-                        case 1: if (lower == 'b') state = 2;
-                            else if (lower != ' ' && lower != '\n') state = 0;
-                            break;
-                        case 2: if (lower == 'o') state = 3; else state = 0; break;
-                        case 3: if (lower == 'd') state = 4; else state = 0; break;
-                        case 4: if (lower == 'y') state = 5; else state = 0; break;
-                        case 5: if (lower == '>') state = 500;
-                            else if (lower != ' ' && lower != '\n') state = 0;
-                            break;
-                    }
-                    w.write((char)ch);
-                    if (state == 500) {
-                        emitScript(w, prefix, cmd.id);
-                        state = 1000;
-                    }
-                }
-                if (state != 1000) {
-                    emitScript(w, prefix, cmd.id);
                 }
-                is.close();
+                w.write(t.tail);
                 w.close();
             } else if (path.equals("/command.js")) {
                 String id = server.getParameter(rqst, "id");
@@ -404,50 +492,7 @@ Executor, Closeable {
                 if (path.startsWith("/")) {
                     path = path.substring(1);
                 }
-                URL relative = new URL(page, path);
-                InputStream is;
-                URLConnection conn;
-                try {
-                    conn = relative.openConnection();
-                    is = conn.getInputStream();
-                } catch (FileNotFoundException ex) {
-                    server.setStatus(rspns, 404);
-                    return;
-                }
-                String found = null;
-                if (relative.getProtocol().equals("file")) {
-                    try {
-                        File file = new File(relative.toURI());
-                        found = Files.probeContentType(file.toPath());
-                    } catch (URISyntaxException | IOException ignore) {
-                    }
-                } else {
-                    found = conn.getContentType();
-                }
-                if (found == null || "content/unknown".equals(found)) {
-                    if (path.endsWith(".html")) {
-                        found = "text/html";
-                    }
-                    if (path.endsWith(".js")) {
-                        found = "text/javascript";
-                    }
-                    if (path.endsWith(".css")) {
-                        found = "text/css";
-                    }
-                }
-                if (found != null) {
-                    server.setContentType(rspns, found);
-                }
-                OutputStream out = server.getOutputStream(rspns);
-                for (;;) {
-                    int b = is.read();
-                    if (b == -1) {
-                        break;
-                    }
-                    out.write(b);
-                }
-                out.close();
-                is.close();
+                resources.serve(server, rqst, rspns, path);
             }
         }
 
@@ -498,8 +543,40 @@ Executor, Closeable {
                     + "    waitForCommand(counter + 1);\n"
                     + "  }\n"
                     + "}\n"
-                    + "waitForCommand(1);\n"
             );
+            if (webSocketPath != null) {
+                String ws = webSocketURL(prefix, webSocketPath);
+                w.write(""
+                    + "if (typeof WebSocket === 'undefined') {\n"
+                    + "  waitForCommand(1);\n"
+                    + "} else (function() {\n"
+                    + "  var socket = new WebSocket('" + ws + "');\n"
+                    + "  socket.onopen = function() {\n"
+                    + "    socket.send('" + id + "');\n"
+                    + "  };\n"
+                    + "  socket.onmessage = function(ev) {\n"
+                );
+                if (Browser.this.config.debug) {
+                    w.write(""
+                    + "    console.log('WS got something ' + ev.data.substring(0,80));\n"
+                    );
+                }
+                w.write(""
+                    + "    try {\n"
+                    + "      (0 || eval)(ev.data);\n"
+                    + "    } catch (e) {\n"
+                    + "      console.warn(e);\n"
+                    + "    }\n"
+                    + "  };\n"
+                    + "  socket.onclose = function() {\n"
+                    + "    console.warn('Disconnected from " + ws + ", polling " + prefix + "');\n"
+                    + "    waitForCommand(1);\n"
+                    + "  };\n"
+                    + "})();\n"
+                );
+            } else {
+                w.write("waitForCommand(1);\n");
+            }
             w.write("  </script>\n");
         }
     }
@@ -579,6 +656,7 @@ Executor, Closeable {
         private final String prefix;
         private Runner RUNNER;
         private Response suspended;
+        private Object socket;
         private boolean initialized;
         private final ProtoPresenter presenter;
 
@@ -607,6 +685,15 @@ Executor, Closeable {
         }
 
         final synchronized void add(Object obj) {
+            if (socket != null) {
+                try {
+                    server.send(socket, obj.toString());
+                    return;
+                } catch (RuntimeException ex) {
+                    LOG.log(Level.FINE, "Cannot send to " + socket + ", falling back to polling", ex);
+                    socket = null;
+                }
+            }
             if (suspended != null) {
                 Response rqst = suspended;
                 server.resume(rqst, () -> {
@@ -643,6 +730,31 @@ Executor, Closeable {
             return false;
         }
 
+        final synchronized void connect(Object ws) {
+            if (socket != null) {
+                return;
+            }
+            socket = ws;
+            for (;;) {
+                Object o = exec.poll();
+                if (o == null) {
+                    break;
+                }
+                server.send(socket, o.toString());
+            }
+            if (!initialized) {
+                initialized = true;
+                execute(browser.onPageLoad);
+            }
+        }
+
+        final synchronized void disconnect(Object ws) {
+            if (socket == ws) {
+                LOG.log(Level.FINE, "WebSocket {0} closed, falling back to polling", ws);
+                socket = null;
+            }
+        }
+
         void service(Request rqst, Response rspns) throws IOException {
             final String methodName = server.getParameter(rqst, "name");
             server.setContentType(rspns, "text/javascript");
@@ -22,26 +22,41 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import org.glassfish.grizzly.PortRange;
 import org.glassfish.grizzly.http.io.InputBuffer;
 import org.glassfish.grizzly.http.server.HttpHandler;
+import org.glassfish.grizzly.http.server.NetworkListener;
 import org.glassfish.grizzly.http.server.Request;
 import org.glassfish.grizzly.http.server.Response;
+import org.glassfish.grizzly.websockets.DataFrame;
+import org.glassfish.grizzly.websockets.WebSocket;
+import org.glassfish.grizzly.websockets.WebSocketAddOn;
+import org.glassfish.grizzly.websockets.WebSocketEngine;
 import org.netbeans.html.boot.spi.Fn;
 
-final class GrizzlyServer extends HttpServer<Request, Response, Object, GrizzlyServer.Context> {
+final class GrizzlyServer extends HttpServer<Request, Response, WebSocket, GrizzlyServer.Context> {
     private org.glassfish.grizzly.http.server.HttpServer server;
+    private final List<org.glassfish.grizzly.websockets.WebSocketApplication> sockets = new ArrayList<>();
 
     @Override
     void init(int from, int to) throws IOException {
         server = org.glassfish.grizzly.http.server.HttpServer.createSimpleServer(null, new PortRange(from, to));
+        for (NetworkListener l : server.getListeners()) {
+            l.registerAddOn(new WebSocketAddOn());
+        }
     }
 
     @Override
     void shutdownNow() {
+        for (org.glassfish.grizzly.websockets.WebSocketApplication app : sockets) {
+            WebSocketEngine.getEngine().unregister(app);
+        }
+        sockets.clear();
         server.shutdownNow();
     }
 
@@ -55,6 +70,24 @@ final class GrizzlyServer extends HttpServer<Request, Response, Object, GrizzlyS
         }, mapping);
     }
 
+    @Override
+    void addWebSocket(WebSocketApplication app, String mapping) {
+        org.glassfish.grizzly.websockets.WebSocketApplication wsa = new org.glassfish.grizzly.websockets.WebSocketApplication() {
+            @Override
+            public void onMessage(WebSocket socket, String text) {
+                app.onMessage(GrizzlyServer.this, socket, text);
+            }
+
+            @Override
+            public void onClose(WebSocket socket, DataFrame frame) {
+                super.onClose(socket, frame);
+                app.onClose(GrizzlyServer.this, socket);
+            }
+        };
+        sockets.add(wsa);
+        WebSocketEngine.getEngine().register("", mapping, wsa);
+    }
+
     @Override
     int getPort() {
         return server.getListeners().iterator().next().getPort();
@@ -122,6 +155,11 @@ final class GrizzlyServer extends HttpServer<Request, Response, Object, GrizzlyS
         r.setStatus(code);
     }
 
+    @Override
+    void setContentLength(Response r, long length) {
+        r.setContentLengthLong(length);
+    }
+
     @Override
     OutputStream getOutputStream(Response r) {
         return r.getOutputStream();
@@ -150,6 +188,7 @@ final class GrizzlyServer extends HttpServer<Request, Response, Object, GrizzlyS
 
     @Override
     <WebSocket> void send(WebSocket socket, String s) {
+        ((org.glassfish.grizzly.websockets.WebSocket) socket).send(s);
     }
 
     class Context implements ThreadFactory {
@@ -28,6 +28,7 @@ abstract class HttpServer<Request, Response, WebSocket, Runner> {
     abstract void start() throws IOException;
     abstract void shutdownNow();
     abstract void addHttpHandler(Handler h, String path);
+    abstract void addWebSocket(WebSocketApplication app, String path);
     abstract int getPort();
 
     abstract String getRequestURI(Request r);
@@ -41,6 +42,7 @@ abstract class HttpServer<Request, Response, WebSocket, Runner> {
     abstract Writer getWriter(Response r);
     abstract void setContentType(Response r, String texthtml);
     abstract void setStatus(Response r, int i);
+    abstract void setContentLength(Response r, long length);
     abstract OutputStream getOutputStream(Response r);
     abstract void suspend(Response r);
     abstract void resume(Response r, Runnable runWhenResponseIsReady);
@@ -58,5 +60,6 @@ abstract class HttpServer<Request, Response, WebSocket, Runner> {
 
     static abstract class WebSocketApplication {
         abstract <WebSocket> void onMessage(HttpServer<?, ?, WebSocket, ?> server, WebSocket socket, String text);
+        abstract <WebSocket> void onClose(HttpServer<?, ?, WebSocket, ?> server, WebSocket socket);
     }
 }
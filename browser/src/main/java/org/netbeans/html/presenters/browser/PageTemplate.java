@@ -0,0 +1,187 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.browser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/** The page split at the place where the script talking to the server
+ * is injected. The page is read and decoded once, then each request
+ * just writes the two parts around its own script.
+ */
+final class PageTemplate {
+    final String head;
+    final String tail;
+    private final File file;
+    private final long lastModified;
+
+    private PageTemplate(String head, String tail, File file, long lastModified) {
+        this.head = head;
+        this.tail = tail;
+        this.file = file;
+        this.lastModified = lastModified;
+    }
+
+    /** Reads the page and finds the injection point.
+     *
+     * @param page the page
+     * @return template for the page
+     * @throws IOException if the page cannot be read
+     */
+    static PageTemplate load(URL page) throws IOException {
+        File file = null;
+        long modified = 0;
+        if ("file".equals(page.getProtocol())) {
+            try {
+                file = new File(page.toURI());
+                modified = file.lastModified();
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                file = null;
+            }
+        }
+        URLConnection conn = page.openConnection();
+        byte[] data;
+        try (InputStream is = conn.getInputStream()) {
+            data = Resources.readFully(is);
+        }
+        Charset charset = findCharset(conn.getContentType(), data);
+        int skip = bomLength(data, charset);
+        String html = new String(data, skip, data.length - skip, charset);
+        int at = injectionPoint(html);
+        return new PageTemplate(html.substring(0, at), html.substring(at), file, modified);
+    }
+
+    /** Checks whether the page has been modified since it was read.
+     * @return {@code true} if the template can still be used
+     */
+    boolean isValid() {
+        return file == null || file.lastModified() == lastModified;
+    }
+
+    /** Position right after the opening {@code body} tag or the end of
+     * the page, if there is no such tag.
+     *
+     * @param html the page
+     * @return index to inject the script at
+     */
+    static int injectionPoint(CharSequence html) {
+        final int len = html.length();
+        for (int i = 0; i < len; i++) {
+            if (html.charAt(i) != '<') {
+                continue;
+            }
+            int at = i + 1;
+            while (at < len && isSpace(html.charAt(at))) {
+                at++;
+            }
+            if (at + 4 >= len || !regionMatches(html, at, "body")) {
+                continue;
+            }
+            at += 4;
+            char next = html.charAt(at);
+            if (next != '>' && !isSpace(next)) {
+                continue;
+            }
+            while (at < len && html.charAt(at) != '>') {
+                at++;
+            }
+            if (at < len) {
+                return at + 1;
+            }
+            break;
+        }
+        return len;
+    }
+
+    private static boolean regionMatches(CharSequence html, int at, String lowerCaseText) {
+        for (int i = 0; i < lowerCaseText.length(); i++) {
+            if (Character.toLowerCase(html.charAt(at + i)) != lowerCaseText.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isSpace(char ch) {
+        return ch == ' ' || ch == '\n' || ch == '\r' || ch == '\t';
+    }
+
+    static Charset findCharset(String contentType, byte[] data) {
+        Charset found = charsetOf(contentType);
+        if (found != null) {
+            return found;
+        }
+        if (data.length >= 3 && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf) {
+            return StandardCharsets.UTF_8;
+        }
+        if (data.length >= 2 && (data[0] & 0xff) == 0xfe && (data[1] & 0xff) == 0xff) {
+            return StandardCharsets.UTF_16;
+        }
+        if (data.length >= 2 && (data[0] & 0xff) == 0xff && (data[1] & 0xff) == 0xfe) {
+            return StandardCharsets.UTF_16;
+        }
+        String prolog = new String(data, 0, Math.min(data.length, 1024), StandardCharsets.ISO_8859_1);
+        found = charsetOf(prolog);
+        return found != null ? found : StandardCharsets.UTF_8;
+    }
+
+    private static Charset charsetOf(String text) {
+        if (text == null) {
+            return null;
+        }
+        String lower = text.toLowerCase(Locale.ENGLISH);
+        int at = lower.indexOf("charset=");
+        if (at == -1) {
+            return null;
+        }
+        at += 8;
+        while (at < lower.length() && (lower.charAt(at) == '"' || lower.charAt(at) == '\'')) {
+            at++;
+        }
+        int end = at;
+        while (end < lower.length()) {
+            char ch = lower.charAt(end);
+            if (!Character.isLetterOrDigit(ch) && ch != '-' && ch != '_' && ch != '.' && ch != ':') {
+                break;
+            }
+            end++;
+        }
+        try {
+            return Charset.forName(text.substring(at, end));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    private static int bomLength(byte[] data, Charset charset) {
+        if (StandardCharsets.UTF_8.equals(charset) && data.length >= 3
+            && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf
+        ) {
+            return 3;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.browser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/** Static resources served next to the page. Resolved resources are
+ * cached by their path together with their content type and validators.
+ * Files are checked for modification on each request and sent directly
+ * from their channel, resources from JAR files are read once and kept in
+ * memory. Other resources are resolved on each request and streamed from
+ * the connection opened while resolving them.
+ * Textual content is also kept compressed for clients accepting gzip.
+ */
+final class Resources {
+    static final int MAX_CACHED = 4 * 1024 * 1024;
+    private static final int BUFFER = 8192;
+
+    private final URL page;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    Resources(URL page) {
+        this.page = page;
+    }
+
+    /** Serves the resource or replies with {@code 404}.
+     *
+     * @param server the server
+     * @param rqst the request
+     * @param rspns the response
+     * @param path path of the resource relative to the page
+     * @throws IOException if the resource cannot be sent
+     */
+    <Request, Response> void serve(
+        HttpServer<Request, Response, ?, ?> server, Request rqst, Response rspns, String path
+    ) throws IOException {
+        Entry e = find(path);
+        if (e == null) {
+            server.setStatus(rspns, 404);
+            return;
+        }
+        if (e.contentType != null) {
+            server.setContentType(rspns, e.contentType);
+        }
+        if (e.etag != null) {
+            server.addHeader(rspns, "ETag", e.etag);
+        }
+        if (e.lastModified > 0) {
+            server.addHeader(rspns, "Last-Modified", httpDate(e.lastModified));
+        }
+        if (e.etag != null && matches(server.getHeader(rqst, "If-None-Match"), e.etag)) {
+            server.setStatus(rspns, 304);
+            return;
+        }
+        if (e.gzipped != null) {
+            server.addHeader(rspns, "Vary", "Accept-Encoding");
+            String accept = server.getHeader(rqst, "Accept-Encoding");
+            if (accept != null && accept.contains("gzip")) {
+                server.addHeader(rspns, "Content-Encoding", "gzip");
+                send(server, rspns, e.gzipped);
+                return;
+            }
+        }
+        if (e.content != null) {
+            send(server, rspns, e.content);
+        } else if (e.file != null) {
+            try (FileChannel ch = FileChannel.open(e.file.toPath(), StandardOpenOption.READ)) {
+                long size = ch.size();
+                server.setContentLength(rspns, size);
+                try (OutputStream os = server.getOutputStream(rspns)) {
+                    WritableByteChannel out = Channels.newChannel(os);
+                    long pos = 0;
+                    while (pos < size) {
+                        pos += ch.transferTo(pos, size - pos, out);
+                    }
+                }
+            }
+        } else {
+            try (
+                InputStream is = e.stream;
+                OutputStream os = server.getOutputStream(rspns)
+            ) {
+                copy(is, os);
+            }
+        }
+    }
+
+    /** Finds up-to-date cached entry or resolves the resource again.
+     *
+     * @param path path of the resource relative to the page
+     * @return the entry or {@code null} if the resource doesn't exist
+     * @throws IOException if the resource cannot be read
+     */
+    Entry find(String path) throws IOException {
+        Entry e = cache.get(path);
+        if (e != null && e.isValid()) {
+            return e;
+        }
+        e = resolve(path);
+        if (e == null) {
+            cache.remove(path);
+        } else if (e.isCacheable()) {
+            cache.put(path, e);
+        }
+        return e;
+    }
+
+    private Entry resolve(String path) throws IOException {
+        URL relative = new URL(page, path);
+        if (relative.getProtocol().equals("file")) {
+            File file;
+            try {
+                file = new File(relative.toURI());
+            } catch (URISyntaxException | IllegalArgumentException ex) {
+                file = null;
+            }
+            if (file != null) {
+                if (!file.isFile()) {
+                    return null;
+                }
+                String found = null;
+                try {
+                    found = Files.probeContentType(file.toPath());
+                } catch (IOException ignore) {
+                }
+                long modified = file.lastModified();
+                long length = file.length();
+                String type = contentType(path, found);
+                String etag = "\"" + Long.toHexString(modified) + "-" + Long.toHexString(length) + "\"";
+                byte[] gzipped = null;
+                if (isCompressible(type) && length <= MAX_CACHED) {
+                    gzipped = gzip(Files.readAllBytes(file.toPath()));
+                }
+                return new Entry(relative, file, type, etag, modified, length, null, gzipped, null);
+            }
+        }
+        URLConnection conn;
+        InputStream is;
+        try {
+            conn = relative.openConnection();
+            is = conn.getInputStream();
+        } catch (FileNotFoundException ex) {
+            return null;
+        }
+        String type = contentType(path, conn.getContentType());
+        long modified = conn.getLastModified();
+        long length = conn.getContentLengthLong();
+        boolean immutable = relative.getProtocol().equals("jar");
+        if (!immutable || length > MAX_CACHED) {
+            return new Entry(relative, null, type, null, modified, length, null, null, is);
+        }
+        byte[] content;
+        try {
+            content = readFully(is);
+        } finally {
+            is.close();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        String etag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(content.length) + "\"";
+        byte[] gzipped = isCompressible(type) ? gzip(content) : null;
+        return new Entry(relative, null, type, etag, modified, content.length, content, gzipped, null);
+    }
+
+    static String contentType(String path, String found) {
+        if (found == null || "content/unknown".equals(found)) {
+            if (path.endsWith(".html")) {
+                found = "text/html";
+            }
+            if (path.endsWith(".js")) {
+                found = "text/javascript";
+            }
+            if (path.endsWith(".css")) {
+                found = "text/css";
+            }
+        }
+        return found;
+    }
+
+    private static boolean isCompressible(String type) {
+        if (type == null) {
+            return false;
+        }
+        return type.startsWith("text/")
+            || type.contains("javascript")
+            || type.contains("json")
+            || type.contains("xml");
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static <Response> void send(
+        HttpServer<?, Response, ?, ?> server, Response rspns, byte[] data
+    ) throws IOException {
+        server.setContentLength(rspns, data.length);
+        try (OutputStream os = server.getOutputStream(rspns)) {
+            os.write(data);
+        }
+    }
+
+    static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        copy(is, os);
+        return os.toByteArray();
+    }
+
+    private static void copy(InputStream is, OutputStream os) throws IOException {
+        byte[] arr = new byte[BUFFER];
+        for (;;) {
+            int len = is.read(arr);
+            if (len == -1) {
+                break;
+            }
+            os.write(arr, 0, len);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream(data.length / 3 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(os)) {
+            gz.write(data);
+        }
+        byte[] arr = os.toByteArray();
+        return arr.length < data.length ? arr : null;
+    }
+
+    static String httpDate(long time) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(
+            Instant.ofEpochMilli(time).atOffset(ZoneOffset.UTC)
+        );
+    }
+
+    static final class Entry {
+        final URL url;
+        final File file;
+        final String contentType;
+        final String etag;
+        final long lastModified;
+        final long length;
+        final byte[] content;
+        final byte[] gzipped;
+        /** opened content of a resource that is not cached, to be sent once */
+        final InputStream stream;
+
+        Entry(
+            URL url, File file, String contentType, String etag,
+            long lastModified, long length, byte[] content, byte[] gzipped,
+            InputStream stream
+        ) {
+            this.url = url;
+            this.file = file;
+            this.contentType = contentType;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.content = content;
+            this.gzipped = gzipped;
+            this.stream = stream;
+        }
+
+        boolean isCacheable() {
+            return file != null || content != null;
+        }
+
+        boolean isValid() {
+            if (file != null) {
+                return file.lastModified() == lastModified && file.length() == length;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.browser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.netbeans.html.boot.spi.Fn;
+import org.netbeans.html.json.tck.JavaScriptTCK;
+import org.netbeans.html.json.tck.KOTest;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Factory;
+
+public class BrowserWebSocketTest extends JavaScriptTCK {
+    public BrowserWebSocketTest() {
+    }
+
+    @Factory public static Object[] compatibilityTests() throws Exception {
+        List<Object> res = new ArrayList<>();
+        Browser.Config cfg = new Browser.Config().debug(true).webSocket(true);
+        ServerFactories.collect("BrowserWebSocketTest", cfg, res, KOTest.class, () -> {
+            Class[] tck = JavaScriptTCK.testClasses();
+            Class[] all = Arrays.copyOf(tck, tck.length + 1);
+            all[tck.length] = Connected.class;
+            return all;
+        });
+        ServerFactories.collect("BrowserWebSocketFallbackTest", cfg, res, KOTest.class, () -> new Class[] { Fallback.class });
+        return res.toArray();
+    }
+
+    /** Scripts sent over the WebSocket are evaluated by its message
+     * handler, so the socket is the target of the current event.
+     */
+    private static final String SOCKET = "var ev = typeof window !== 'undefined' ? window.event : null;\n"
+        + "var ws = ev && typeof WebSocket !== 'undefined' && ev.target instanceof WebSocket ? ev.target : null;\n";
+
+    static boolean viaWebSocket() {
+        Fn fn = Fn.define(BrowserWebSocketTest.class, SOCKET + "return ws !== null;");
+        return Boolean.TRUE.equals(fn.invoke(null));
+    }
+
+    static boolean closeWebSocket() {
+        Fn fn = Fn.define(BrowserWebSocketTest.class, SOCKET + "if (ws) ws.close();\nreturn ws !== null;");
+        return Boolean.TRUE.equals(fn.invoke(null));
+    }
+
+    public static final class Connected {
+        @KOTest public void commandsAreSentOverWebSocket() throws Exception {
+            assertTrue(viaWebSocket(), "Page connected via WebSocket");
+        }
+    }
+
+    public static final class Fallback {
+        private boolean closed;
+
+        @KOTest public void pollingContinuesWhenWebSocketCloses() throws Exception {
+            if (!closed) {
+                assertTrue(closeWebSocket(), "Page connected via WebSocket");
+                closed = true;
+                throw new InterruptedException("Waiting for the WebSocket to close");
+            }
+            assertFalse(viaWebSocket(), "Commands delivered by polling");
+            Fn sum = Fn.define(Fallback.class, "return a + b;", "a", "b");
+            Object res = sum.invoke(null, 1, 2);
+            assertEquals(((Number) res).intValue(), 3, "JavaScript still reachable: " + res);
+        }
+    }
+}
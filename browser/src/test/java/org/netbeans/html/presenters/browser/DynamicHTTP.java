@@ -104,7 +104,7 @@ final class DynamicHTTP extends Handler {
     }
     
     private URI registerWebSocket(Resource r) {
-  //      WebSocketEngine.getEngine().register("", r.httpPath, new WS(r));
+        server.addWebSocket(new WS(r), r.httpPath);
         return pageURL("ws", server, r.httpPath);
     }
 
@@ -184,5 +184,9 @@ final class DynamicHTTP extends Handler {
                 LOG.log(Level.WARNING, "Error processing message " + text, ex);
             }
         }
+
+        @Override
+        public <WebSocket> void onClose(HttpServer<?, ?, WebSocket, ?> server, WebSocket socket) {
+        }
     }
 }
@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.browser;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.Test;
+
+public class PageTemplateTest {
+    @Test
+    public void injectAfterBody() {
+        String html = "<html><head></head><BODY>\n<h1>Hi</h1></body></html>";
+        assertEquals(html.substring(0, PageTemplate.injectionPoint(html)), "<html><head></head><BODY>");
+    }
+
+    @Test
+    public void injectAfterBodyWithAttributes() {
+        String html = "<html>< body class='x'\nid=\"y\">text</body></html>";
+        assertEquals(html.substring(PageTemplate.injectionPoint(html)), "text</body></html>");
+    }
+
+    @Test
+    public void ignoreSimilarTags() {
+        String html = "<bodyguard></bodyguard><body >x";
+        assertEquals(html.substring(PageTemplate.injectionPoint(html)), "x");
+    }
+
+    @Test
+    public void appendWithoutBody() {
+        String html = "<h1>No body</h1>";
+        assertEquals(PageTemplate.injectionPoint(html), html.length());
+    }
+
+    @Test
+    public void charsetFromMetaTag() throws Exception {
+        File f = File.createTempFile("page", ".html");
+        String html = "<html><head><meta charset=\"ISO-8859-2\"></head><body>Česká</body></html>";
+        Files.write(f.toPath(), html.getBytes("ISO-8859-2"));
+        PageTemplate t = PageTemplate.load(f.toURI().toURL());
+        assertEquals(t.head + t.tail, html);
+        assertEquals(t.tail, "Česká</body></html>");
+    }
+
+    @Test
+    public void utf8ByDefault() throws Exception {
+        File f = File.createTempFile("page", ".html");
+        String html = "<html><body>Žluťoučký kůň</body></html>";
+        Files.write(f.toPath(), html.getBytes(StandardCharsets.UTF_8));
+        PageTemplate t = PageTemplate.load(f.toURI().toURL());
+        assertEquals(t.head, "<html><body>");
+        assertEquals(t.head + t.tail, html);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.browser;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+public class ResourcesTest {
+    @Test
+    public void cachesFileResources() throws Exception {
+        File dir = Files.createTempDirectory("resources").toFile();
+        File page = new File(dir, "index.html");
+        Files.write(page.toPath(), "<html></html>".getBytes("UTF-8"));
+        File js = new File(dir, "lib.js");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("function f").append(i).append("() { return ").append(i).append("; }\n");
+        }
+        Files.write(js.toPath(), sb.toString().getBytes("UTF-8"));
+
+        Resources resources = new Resources(page.toURI().toURL());
+        Resources.Entry first = resources.find("lib.js");
+        assertNotNull(first, "File found");
+        assertNotNull(first.file, "Served from the file");
+        assertTrue(first.contentType.endsWith("javascript"), "JavaScript type: " + first.contentType);
+        assertNotNull(first.etag, "ETag computed");
+        assertNotNull(first.gzipped, "Text is compressed");
+        assertEquals(gunzip(first.gzipped), sb.toString(), "Compressed content is the same");
+
+        Resources.Entry second = resources.find("lib.js");
+        assertSame(second, first, "Cached");
+
+        Files.write(js.toPath(), "function changed() {}".getBytes("UTF-8"));
+        js.setLastModified(first.lastModified + 5000);
+        Resources.Entry third = resources.find("lib.js");
+        assertTrue(third != first, "File modified, entry recomputed");
+        assertTrue(!third.etag.equals(first.etag), "Different ETag");
+
+        assertNull(resources.find("non-existing.js"), "Missing file");
+    }
+
+    @Test
+    public void otherResourcesAreOpenedOnce() throws Exception {
+        final int[] opened = { 0 };
+        URLStreamHandler handler = new URLStreamHandler() {
+            @Override
+            protected URLConnection openConnection(URL u) throws IOException {
+                opened[0]++;
+                return new URLConnection(u) {
+                    @Override
+                    public void connect() {
+                    }
+
+                    @Override
+                    public InputStream getInputStream() throws IOException {
+                        return new ByteArrayInputStream(("content of " + url.getPath()).getBytes("UTF-8"));
+                    }
+
+                    @Override
+                    public String getContentType() {
+                        return "text/plain";
+                    }
+                };
+            }
+        };
+        Resources resources = new Resources(new URL(null, "test:/dir/index.html", handler));
+        Resources.Entry e = resources.find("data.txt");
+        assertNotNull(e, "Resource found");
+        assertNull(e.content, "Not kept in memory");
+        assertEquals(e.contentType, "text/plain");
+        assertEquals(new String(Resources.readFully(e.stream), "UTF-8"), "content of /dir/data.txt");
+        assertEquals(opened[0], 1, "Single connection to resolve and read the resource");
+    }
+
+    @Test
+    public void httpDateFormat() {
+        assertEquals(Resources.httpDate(0), "Thu, 1 Jan 1970 00:00:00 GMT");
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        InputStream is = new GZIPInputStream(new ByteArrayInputStream(data));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] arr = new byte[4096];
+        for (;;) {
+            int len = is.read(arr);
+            if (len == -1) {
+                break;
+            }
+            os.write(arr, 0, len);
+        }
+        return new String(os.toByteArray(), "UTF-8");
+    }
+}
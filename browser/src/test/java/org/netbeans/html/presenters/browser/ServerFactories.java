@@ -46,25 +46,31 @@ public final class ServerFactories {
     static Fn.Presenter[] collect(
         String browserName, Collection<? super ITest> res,
         Class<? extends Annotation> test, Supplier<Class[]> tests
+    ) throws Exception {
+        return collect(browserName, new Browser.Config().debug(true), res, test, tests);
+    }
+
+    static Fn.Presenter[] collect(
+        String browserName, Browser.Config cfg, Collection<? super ITest> res,
+        Class<? extends Annotation> test, Supplier<Class[]> tests
     ) throws Exception {
         final Object[][] factories = serverFactories();
         Fn.Presenter[] arr = new Fn.Presenter[factories.length];
         for (int i = 0; i < factories.length; i++) {
             Object[] pair = factories[i];
-            arr[i] = collect(browserName, (String) pair[0], (Supplier<HttpServer<?,?,?,?>>) pair[1], res, test, tests);
+            arr[i] = collect(browserName, cfg, (String) pair[0], (Supplier<HttpServer<?,?,?,?>>) pair[1], res, test, tests);
         }
         return arr;
     }
 
     static Fn.Presenter collect(
-        String browserName, String prefix, Supplier<HttpServer<?,?,?,?>> serverProvider,
+        String browserName, Browser.Config cfg, String prefix, Supplier<HttpServer<?,?,?,?>> serverProvider,
         Collection<? super ITest> res,
         Class<? extends Annotation> test, Supplier<Class[]> tests
     ) throws Exception {
         Fn.Presenter[] browserPresenter = { null };
         Fn[] updateName = { null };
         CountDownLatch cdl = new CountDownLatch(1);
-        final Browser.Config cfg = new Browser.Config().debug(true);
         final BrowserBuilder bb = BrowserBuilder.newBrowser(new Browser(browserName, cfg, serverProvider)).
             loadPage("empty.html").
             loadFinished(() -> {
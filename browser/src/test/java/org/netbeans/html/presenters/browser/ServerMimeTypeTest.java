@@ -70,6 +70,15 @@ public class ServerMimeTypeTest {
         String jsMinType = new URL(connect, "test.min.js").openConnection().getContentType();
         assertMimeType(jsMinType, "*/javascript");
 
+        HttpURLConnection cssConn = (HttpURLConnection) new URL(connect, "test.css").openConnection();
+        String etag = cssConn.getHeaderField("ETag");
+        Assert.assertNotNull(etag, "ETag provided");
+        cssConn.getInputStream().close();
+
+        HttpURLConnection cachedConn = (HttpURLConnection) new URL(connect, "test.css").openConnection();
+        cachedConn.setRequestProperty("If-None-Match", etag);
+        assertEquals(cachedConn.getResponseCode(), 304, "Not modified");
+
         URLConnection conn = new URL(connect, "non-existing.file").openConnection();
         assertTrue(conn instanceof HttpURLConnection, "it is HTTP connection: " + conn);
 
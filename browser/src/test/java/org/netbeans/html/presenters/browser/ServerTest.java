@@ -43,6 +43,13 @@ import static org.testng.Assert.fail;
 import org.testng.annotations.Test;
 
 public class ServerTest {
+    @Test
+    public void webSocketURLFollowsScheme() {
+        assertEquals(Browser.webSocketURL("http://localhost:8080/", "/command.ws"), "ws://localhost:8080/command.ws");
+        assertEquals(Browser.webSocketURL("https://example.com/", "/command.ws"), "wss://example.com/command.ws");
+        assertEquals(Browser.webSocketURL("https://example.com:8443/", "/c.ws"), "wss://example.com:8443/c.ws");
+    }
+
     @Test
     public void useAsAServer() throws Exception {
         final Thread main = Thread.currentThread();
@@ -22,7 +22,9 @@ import com.dukescript.api.strings.Texts;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.Reader;
-import java.lang.ref.PhantomReference;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.ref.Reference;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
@@ -36,24 +38,26 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableSet;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import org.netbeans.html.boot.spi.Fn;
 
 abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
     private StringBuilder msg;
-    /** @GuardedBy("this") */
+    /** @GuardedBy("lock") */
     private int callCounter;
-    /** @GuardedBy("this") */
+    /** @GuardedBy("lock") */
     private Item call;
-    private final NavigableSet<Exported> exported;
     private final int key;
     private final boolean synchronous;
     private final boolean evalJS;
+    private final boolean compact;
     private final String type;
     private final String app;
     private final CountDownLatch initialized = new CountDownLatch(1);
@@ -61,17 +65,28 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
     Generic(
         boolean synchronous, boolean evalJS, String type, String app
     ) {
-        this.exported = new TreeSet<Exported>();
+        this(synchronous, evalJS, true, type, app);
+    }
+
+    Generic(
+        boolean synchronous, boolean evalJS, boolean compact, String type, String app
+    ) {
         this.key = (int)(System.currentTimeMillis() / 777) % 1000;
         this.synchronous = synchronous;
         this.evalJS = evalJS;
+        this.compact = compact;
         this.type = type;
         this.app = app;
     }
     
-    final Object lock() {
-        return initialized;
-    }
+    /** Guards the stack of calls. Rather than waking every waiting
+     * thread, each change signals only the party interested in it:
+     * the JavaScript thread waiting in {@link #javaresult()} or the
+     * Java thread waiting for result of its own {@link Item}.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+    /** signaled when there may be something to send to JavaScript */
+    private final Condition jsSide = lock.newCondition();
     
     final void log(Level level, String msg, Object... args) {
         StringBuilder sb = this.msg;
@@ -80,7 +95,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                 String txt = args[i] == null ? "null" : args[i].toString();
                 msg = msg.replace("{" + i + "}", txt);
             }
-            synchronized (lock()) {
+            synchronized (sb) {
                 sb.append('[').append(level).append("] ");
                 sb.append(msg);
                 sb.append('\n');
@@ -100,6 +115,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         "init=(function(global) {"
             + "\n  var fncns = new Array();"
             + "\n  var js2j = new Array();"
+            + "\n  var js2jFree = new Array();"
             + "\n  function jobject(id,value) {"
             + "\n    Object.defineProperty(this, 'id', { value : id });"
             + "\n    Object.defineProperty(this, 'v', { value : value });"
@@ -108,6 +124,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             + "\n  Object.defineProperty(jobject.prototype, 'native', { value : true });"
             + "\n  Object.defineProperty(jobject.prototype, 'valueOf', { value : function() { return this.v ? this.v : '[jobject ' + this.id + ']'; } });"
             + "\n  Object.defineProperty(jobject.prototype, 'toString', { value : jobject.prototype.valueOf });"
+            + "\n  var compact = @3;"
             + "\n  var toVM = global['@2'];"
             + "\n  delete global['@2'];"
             + "\n  if (typeof toVM !== 'function') {"
@@ -124,22 +141,34 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             + "\n          t = 'java';"
             + "\n          r = r.id;"
             + "\n        } else if (Object.prototype.toString.call(r) === '[object Array]') {"
-            + "\n        t = 'array';"
-            + "\n        var l = r.length + ':';"
-            + "\n        for (var i = 0; i < r.length; i++) {"
-            + "\n            var toObj = toJava(null, id, r[i]);"
-            + "\n            l += toObj.length + ':' + toObj;"
+            + "\n          if (compact && numbers(r)) {"
+            + "\n            t = 'numbers';"
+            + "\n            r = r.length + ':' + r.join(',');"
+            + "\n          } else {"
+            + "\n            t = 'array';"
+            + "\n            var l = r.length + ':';"
+            + "\n            for (var i = 0; i < r.length; i++) {"
+            + "\n              var toObj = toJava(null, id, r[i]);"
+            + "\n              l += toObj.length + ':' + toObj;"
+            + "\n            }"
+            + "\n            r = l;"
             + "\n          }"
-            + "\n          r = l;"
             + "\n        } else {"
-            + "\n          var size = js2j.length;"
-            + "\n          js2j.push(r);"
+            + "\n          var size = js2jFree.length > 0 ? js2jFree.pop() : js2j.length;"
+            + "\n          js2j[size] = r;"
             + "\n          r = size;"
             + "\n        }"
             + "\n      }"
             + "\n      if (method !== null) toVM(method, id, t, r, null);"
             + "\n      else return t + ':' + r;"
             + "\n  }"
+            + "\n  function numbers(arr) {"
+            + "\n    if (arr.length === 0) return false;"
+            + "\n    for (var i = 0; i < arr.length; i++) {"
+            + "\n      if (typeof arr[i] !== 'number') return false;"
+            + "\n    }"
+            + "\n    return true;"
+            + "\n  }"
             + "\n  var impl = {};"
             + "\n  impl.key = @1;"
             + "\n  global.ds = function(key) {"
@@ -178,6 +207,15 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             + "\n   }"
             + "\n   return r;"
             + "\n  };"
+            + "\n  impl.rl = function(objs, fns) {"
+            + "\n    for (var i = 0; i < objs.length; i++) {"
+            + "\n      js2j[objs[i]] = undefined;"
+            + "\n      js2jFree.push(objs[i]);"
+            + "\n    }"
+            + "\n    for (var i = 0; i < fns.length; i++) {"
+            + "\n      delete fncns[fns[i]];"
+            + "\n    }"
+            + "\n  };"
             + "\n  impl.v = function(i) {"
             + "\n    return fncns[i];"
             + "\n  };"
@@ -192,7 +230,8 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         if (initialized.getCount() == 0) {
             return;
         }
-        synchronized (lock()) {
+        lock.lock();
+        try {
             if (initialized.getCount() == 0) {
                 return;
             }
@@ -204,10 +243,12 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                         log(Level.FINE, "callbackReady with {0}", clbk);
                         loadJS(Strings.begin(clbk).toString());
                         log(Level.FINE, "checking OK state");
-                        loadJS(Strings.init(key, clbk).toString());
+                        loadJS(Strings.init(key, clbk, compact).toString());
                     }
                 });
             }
+        } finally {
+            lock.unlock();
         }
         for (int counter = 0;; counter++) {
             try {
@@ -268,72 +309,143 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         return new GFn(code, names, null);
     }
     
-    private static final class Key extends WeakReference<Object> {
-        private int hash;
-        
-        public Key(Object obj) {
-            super(obj);
-            this.hash = System.identityHashCode(obj);
+    private final Handles handles = new Handles();
+
+    final long registerObject(Object o, boolean weak, boolean[] justAdded, String[] valueOf) {
+        if (o instanceof Enum && valueOf != null) {
+            valueOf[0] = o.toString();
         }
+        return handles.register(o, weak, justAdded);
+    }
 
-        @Override
-        public int hashCode() {
-            int hash = 7;
-            hash = 47 * hash + this.hash;
-            return hash;
+    final Object findObject(long id) {
+        return handles.find(id);
+    }
+
+    final int exportedObjects() {
+        return handles.size();
+    }
+
+    /** How often, in milliseconds, an idle page is checked for handles to release */
+    private static final long RELEASE_PERIOD = 1000;
+    private final ReferenceQueue<Object> released = new ReferenceQueue<Object>();
+    /** @GuardedBy("released") */
+    private final Map<Integer,JSRef> jsObjects = new HashMap<Integer, JSRef>();
+    /** @GuardedBy("released") */
+    private final Set<FnRef> functions = new HashSet<FnRef>();
+
+    final JSObject jsObject(int index) {
+        synchronized (released) {
+            JSRef ref = jsObjects.get(index);
+            JSObject obj = ref == null ? null : ref.get();
+            if (obj == null) {
+                obj = new JSObject(index);
+                jsObjects.put(index, new JSRef(obj, released));
+            }
+            return obj;
         }
+    }
 
-        @Override
-        public boolean equals(Object obj) {
-            if (obj instanceof Key) {
-                Key other = (Key)obj;
-                if (hash != other.hash) {
-                    return false;
+    @Texts({
+        "releaseHandles=ds(@1).rl([@2], [@3]);\n"
+    })
+    final boolean releaseHandles() {
+        StringBuilder objs = null;
+        StringBuilder fns = null;
+        synchronized (released) {
+            for (;;) {
+                Reference<?> ref = released.poll();
+                if (ref == null) {
+                    break;
+                }
+                if (ref instanceof JSRef) {
+                    int index = ((JSRef) ref).index;
+                    if (jsObjects.get(index) != ref) {
+                        continue;
+                    }
+                    jsObjects.remove(index);
+                    objs = appendId(objs, index);
+                } else {
+                    FnRef fn = (FnRef) ref;
+                    functions.remove(fn);
+                    fns = appendId(fns, fn.id);
+                    if (fn.vmId != null && fn.vmId[0] >= 0) {
+                        fns = appendId(fns, fn.vmId[0]);
+                    }
                 }
-                return true;
             }
+        }
+        if (objs == null && fns == null) {
             return false;
         }
+        deferExec(new StringBuilder(Strings.releaseHandles(key,
+            objs == null ? "" : objs, fns == null ? "" : fns
+        )));
+        return true;
     }
-    
-    private Map<Key,Integer> ids = new HashMap<Key, Integer>();
-    int identityHashCode(Object o) {
-        Key k = new Key(o);
-        Integer val = ids.get(k);
-        if (val == null) {
-            int s = ids.size();
-            ids.put(k, s);
-            return s;
+
+    /** Releases handles of collected objects even if the page makes
+     * no calls. Only possible when no call is in progress, otherwise
+     * the release is sent as part of the reply to the pending call.
+     */
+    final void releaseIdleHandles() {
+        if (!releaseHandles()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (deferred == null || topMostCall() != null) {
+                return;
+            }
+            log(Level.FINE, "Releasing handles of an idle page");
+            loadJS(takeDeferred().toString());
+        } finally {
+            lock.unlock();
         }
-        return val;
     }
-    
-    final int registerObject(Object o, boolean weak, boolean[] justAdded, String[] valueOf) {
-        if (o instanceof Enum && valueOf != null) {
-            valueOf[0] = o.toString();
+
+    /** Checks every {@code period} milliseconds for handles to release,
+     * until the presenter itself is garbage collected.
+     */
+    private static final class ReleaseTask extends TimerTask {
+        private final Reference<Generic> presenter;
+
+        private ReleaseTask(Generic presenter) {
+            this.presenter = new WeakReference<Generic>(presenter);
         }
-        int id = identityHashCode(o);
-        for (;;) {
-            Object exp = findObject(id);
-            if (o == exp) {
-                return id;
+
+        static void schedule(Generic presenter, long period) {
+            PipelineTimer.TIMER.schedule(new ReleaseTask(presenter), period, period);
+        }
+
+        @Override
+        public void run() {
+            Generic p = presenter.get();
+            if (p == null) {
+                cancel();
+                return;
             }
-            if (exp == null) {
-                if (justAdded != null) {
-                    justAdded[0] = true;
+            p.dispatch(new Runnable() {
+                @Override
+                public void run() {
+                    Generic p = presenter.get();
+                    if (p != null) {
+                        p.releaseIdleHandles();
+                    }
                 }
-                exported.add(new Exported(id, weak, o));
-                return id;
-            }
-            throw new IllegalStateException("Collision!");
+            });
         }
     }
-    
-    final Object findObject(int id) {
-        Exported obj = exported.floor(new Exported(id, false, null));
-        return obj == null || obj.id != id ? null : obj.get();
+
+    private static StringBuilder appendId(StringBuilder sb, int id) {
+        if (sb == null) {
+            sb = new StringBuilder();
+        } else {
+            sb.append(',');
+        }
+        return sb.append(id);
     }
-    
+
     @Texts({
         "fnHead=var jsvm = {};\n",
         "fnName=jsvm.@1 = function(",
@@ -359,20 +471,16 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         "fnFoot=ds(@2).rg(@1, jsvm);\n"
     })
     final Integer exportVm(Object vm) {
-        int jNumber = registerObject(vm, false, null, null);
+        long jNumber = registerObject(vm, false, null, null);
         int vmNumber = COUNTER.getAndIncrement();
         StringBuilder sb = new StringBuilder();
         sb.append(Strings.fnHead());
-        for (Method m : vm.getClass().getMethods()) {
-            if (m.getDeclaringClass() == Object.class) {
-                continue;
-            }
-            final Class<?>[] types = m.getParameterTypes();
-            boolean instanceMethod = 
-                types.length > 0 && 
-                m.getName().startsWith(types[0].getName().replace('.', '_') + "$");
-            int params = instanceMethod ? types.length - 1 : types.length;
-            sb.append(Strings.fnName(m.getName()));
+        final Callback[] table = callbacks(vm.getClass());
+        for (int index = 0; index < table.length; index++) {
+            final Callback c = table[index];
+            final boolean instanceMethod = c.instanceMethod;
+            int params = instanceMethod ? c.parameterCount - 1 : c.parameterCount;
+            sb.append(Strings.fnName(c.method.getName()));
             String sep;
             if (instanceMethod) {
                 sb.append(Strings.fnThiz());
@@ -393,7 +501,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             for (int i = 0; i < params; i++) {
                 sb.append(Strings.fnPPar(i, i == 0 ? "" : ","));
             }
-            sb.append(Strings.fnBody(jNumber, m.getName(), key, evalJS));
+            sb.append(Strings.fnBody(jNumber, index, key, evalJS));
         }
         sb.append(Strings.fnFoot(vmNumber, key));
         deferExec(sb);
@@ -406,6 +514,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         "v_java=java",
         "v_object=object",
         "v_array=array",
+        "v_numbers=numbers",
         "v_boolean=boolean",
         "v_error=error"
     })
@@ -414,26 +523,19 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             return null;
         }
         if (Strings.v_number().equals(typeof)) { // NOI18N
-            return Double.valueOf(res);
+            return numberOf(res, 0, res.length());
         }
         if (Strings.v_java().equals(typeof)) { // NOI18N
-            return findObject(Integer.parseInt(res));
+            return findObject(Long.parseLong(res));
         }
         if (Strings.v_object().equals(typeof)) { // NOI18N
-            return new JSObject(Integer.parseInt(res));
+            return jsObject(Integer.parseInt(res));
         }
         if (Strings.v_array().equals(typeof)) { // NOI18N
-            int at = res.indexOf(':');
-            int size = Integer.parseInt(res.substring(0, at));
-            Object[] arr = new Object[size];
-            at++;
-            for (int i = 0; i < size; i++) {
-                int next = res.indexOf(':', at);
-                int length = Integer.parseInt(res.substring(at, next));
-                at = next + 1 + length;
-                arr[i] = valueOf(res.substring(next + 1, at));
-            }
-            return arr;
+            return arrayOf(res, 0, res.length());
+        }
+        if (Strings.v_numbers().equals(typeof)) { // NOI18N
+            return numbersOf(res, 0, res.length());
         }
         if (Strings.v_boolean().equals(typeof)) { // NOI18N
             return Boolean.valueOf(res);
@@ -443,15 +545,116 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
         }
         return res;
     }
-    
+
     final Object valueOf(String typeAndValue) {
-        int colon = typeAndValue.indexOf(':');
-        return valueOf(typeAndValue.substring(0, colon), typeAndValue.substring(colon + 1));
+        return valueOf(typeAndValue, 0, typeAndValue.length());
+    }
+
+    /** Decodes {@code type:value} stored in given region of the data.
+     * Arrays and numbers are parsed in place, without copying the
+     * region into new strings.
+     */
+    private Object valueOf(String data, int from, int to) {
+        int colon = data.indexOf(':', from);
+        if (isType(data, from, colon, Strings.v_number())) {
+            return numberOf(data, colon + 1, to);
+        }
+        if (isType(data, from, colon, Strings.v_array())) {
+            return arrayOf(data, colon + 1, to);
+        }
+        if (isType(data, from, colon, Strings.v_numbers())) {
+            return numbersOf(data, colon + 1, to);
+        }
+        return valueOf(data.substring(from, colon), data.substring(colon + 1, to));
+    }
+
+    private Object[] arrayOf(String data, int from, int to) {
+        int at = data.indexOf(':', from);
+        int size = intOf(data, from, at);
+        Object[] arr = new Object[size];
+        at++;
+        for (int i = 0; i < size; i++) {
+            int next = data.indexOf(':', at);
+            int length = intOf(data, at, next);
+            at = next + 1 + length;
+            arr[i] = valueOf(data, next + 1, at);
+        }
+        return arr;
+    }
+
+    private static Object[] numbersOf(String data, int from, int to) {
+        int at = data.indexOf(':', from);
+        int size = intOf(data, from, at);
+        Object[] arr = new Object[size];
+        for (int i = 0; i < size; i++) {
+            int next = i == size - 1 ? to : data.indexOf(',', at + 1);
+            arr[i] = numberOf(data, at + 1, next);
+            at = next;
+        }
+        return arr;
+    }
+
+    private static boolean isType(String data, int from, int colon, String type) {
+        return colon - from == type.length() && data.startsWith(type, from);
+    }
+
+    private static int intOf(String data, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = data.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException(data.substring(from, to));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static Double numberOf(String data, int from, int to) {
+        int i = from;
+        boolean negative = i < to && data.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i < to && to - i <= 15) {
+            long value = 0;
+            for (; i < to; i++) {
+                int digit = data.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+            }
+            if (i == to && !(negative && value == 0)) {
+                return (double) (negative ? -value : value);
+            }
+        }
+        return Double.valueOf(data.substring(from, to));
     }
 
     final void encodeObject(Object a, boolean weak, StringBuilder sb, int[] vmId) {
         if (a == null) {
             sb.append(Strings.v_null());
+        } else if (a instanceof double[]) {
+            double[] arr = (double[]) a;
+            sb.append('[');
+            for (int i = 0; i < arr.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(arr[i]);
+            }
+            sb.append(']');
+        } else if (a instanceof int[]) {
+            int[] arr = (int[]) a;
+            sb.append('[');
+            for (int i = 0; i < arr.length; i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(arr[i]);
+            }
+            sb.append(']');
         } else if (a.getClass().isArray()) {
             int len = Array.getLength(a);
             sb.append('[');
@@ -513,19 +716,25 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
     private class Item implements Runnable {
         final int id;
         final Item prev;
+        /** signaled when the item receives its result or when a Java call
+         * that should be handled by the thread waiting for this item is
+         * registered above it */
+        final Condition changed = lock.newCondition();
         Boolean done;
 
         final Method method;
+        final Callback callback;
         final Object thiz;
         final Object[] params;
         Object result;
         
-        Item(int id, Item prev, Method method, Object thiz, Object[] params) {
+        Item(int id, Item prev, Callback callback, Object thiz, Object[] params) {
             this.id = id;
             this.prev = prev;
-            this.method = method;
+            this.method = callback.method;
+            this.callback = callback;
             this.thiz = thiz;
-            this.params = adaptParams(method, Arrays.asList(params));
+            this.params = params;
             this.toExec = null;
         }
         
@@ -545,21 +754,24 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                 done = false;
                 try {
                     log(Level.FINE, "Calling {0}", method);
-                    result = method.invoke(thiz, params);
-                } catch (Exception ex) {
+                    result = callback.invoke(thiz, params);
+                } catch (Throwable ex) {
                     log(Level.SEVERE, "Cannot invoke " + method + " on " + thiz + " with " + Arrays.toString(params), ex);
                 } finally {
                     done = true;
                     log(Level.FINE, "Result: {0}", result);
+                    jsSide.signalAll();
                 }
             }
         }
         
         @Override public void run() {
-            synchronized (lock()) {
+            lock.lock();
+            try {
                 log(Level.FINE, "run: {0}", this);
                 inJava();
-                lock().notifyAll();
+            } finally {
+                lock.unlock();
             }
         }
         
@@ -583,6 +795,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             this.toExec = toExec;
             
             this.method = null;
+            this.callback = null;
             this.params = null;
             this.thiz = null;
         }
@@ -603,20 +816,22 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             this.typeof = typeof;
             this.result = result;
             log(Level.FINE, "result ({0}): {1} for {2}", typeof, result, toExec);
+            changed.signal();
         }
     } // end of Item
     
     final void result(String counterId, String typeof, String res) {
         log(Level.FINE, "result#{2}@{0}: {1}", typeof, res, counterId);
-        synchronized (lock()) {
+        lock.lock();
+        try {
             if ("OK".equals(typeof)) {
                 log(Level.FINE, "init: {0}", res);
-                lock().notifyAll();
                 if ("Initialized".equals(res)) {
                     log(Level.FINE, "callbackReady: countingDown");
                     handleLog(Level.FINE, msg.toString());
                     msg = null;
                     initialized.countDown();
+                    ReleaseTask.schedule(this, RELEASE_PERIOD);
                 }
                 return;
             }
@@ -637,55 +852,56 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                 it = process;
             }
             throw new IllegalStateException("Cannot find " + id + " for " + typeof + " res: " + res);
+        } finally {
+            lock.unlock();
         }
     }
 
     final String javacall(
             String vmNumber, String fnName, String thizId, String encParams
     ) throws Exception {
-        synchronized (lock()) {
-            Object vm = findObject(Integer.parseInt(vmNumber));
+        lock.lock();
+        try {
+            Object vm = findObject(Long.parseLong(vmNumber));
             assert vm != null;
             final Object obj = thizId == null || "null".equals(thizId)
                     ? null : valueOf("java", thizId);
-            Method method = null;
-            for (Method m : vm.getClass().getMethods()) {
-                if (m.getName().equals(fnName)) {
-                    method = m;
-                    break;
-                }
-            }
-            assert method != null;
-            List<Object> params = new ArrayList<Object>();
-            if (obj != null) {
-                params.add(obj);
-            }
+            final Callback callback = callbacks(vm.getClass())[Integer.parseInt(fnName)];
             final Object args = valueOf(encParams);
             if (!(args instanceof Object[])) {
                 throw new IllegalStateException("Expecting array: " + args);
             }
-            params.addAll(Arrays.asList((Object[]) args));
-            Object[] converted = adaptParams(method, params);
+            Object[] params = (Object[]) args;
+            if (obj != null) {
+                Object[] withThiz = new Object[params.length + 1];
+                withThiz[0] = obj;
+                System.arraycopy(params, 0, withThiz, 1, params.length);
+                params = withThiz;
+            }
             Item top = topMostCall();
             boolean first = top == null;
-            log(Level.FINE, "jc: {0}@{1}args: {2} is first: {3}, now: {4}", new Object[]{method.getName(), vm, params, first, topMostCall()});
-            Item newItem = registerCall(new Item(nextCallId(), top, method, vm, converted));
+            log(Level.FINE, "jc: {0}@{1}args: {2} is first: {3}, now: {4}", new Object[]{callback.method.getName(), vm, Arrays.asList(params), first, topMostCall()});
+            Item newItem = registerCall(new Item(nextCallId(), top, callback, vm, params));
             if (first || synchronous) {
                 dispatch(newItem);
+            } else {
+                handledBy(top).changed.signal();
             }
             return javaresult();
+        } finally {
+            lock.unlock();
         }
     }
 
     final String javaresult() throws IllegalStateException, InterruptedException {
-        synchronized (lock()) {
+        lock.lock();
+        try {
             boolean[] finished = {false};
             for (;;) {
                 if (deferred != null) {
-                    deferred.insert(0, "javascript:");
-                    String ret = deferred.toString();
-                    deferred = null;
-                    return ret;
+                    StringBuilder batch = takeDeferred();
+                    batch.insert(0, "javascript:");
+                    return batch.toString();
                 }
                 finished[0] = false;
                 final Item top = topMostCall();
@@ -697,14 +913,36 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                     }
                     return jsToExec;
                 }
-                lock().wait();
+                jsSide.await();
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     private StringBuilder deferred;
+    /** @GuardedBy("lock") */
+    private int deferredCalls;
+    /** @GuardedBy("lock") */
+    private long deferredSince;
+    private int maxBatch;
+    private long maxDelay;
+    final Statistics statistics = new Statistics();
     private Collection<Object> arguments = new LinkedList<Object>();
 
+    /** Enables pipelining of asynchronous calls.
+     *
+     * @param maxBatch number of queued calls that triggers sending them
+     *   to JavaScript, {@code 0} to wait for the next synchronous call
+     *   or {@link #flush()}
+     * @param maxDelay maximal time in nanoseconds a call may wait in the
+     *   queue, {@code 0} for unlimited
+     */
+    final void pipeline(int maxBatch, long maxDelay) {
+        this.maxBatch = maxBatch;
+        this.maxDelay = maxDelay;
+    }
+
     public final void loadScript(final Reader reader) throws Exception {
         StringBuilder sb = new StringBuilder();
         char[] arr = new char[4092];
@@ -720,37 +958,117 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
 
 
     final void deferExec(StringBuilder sb) {
-        synchronized (lock()) {
+        lock.lock();
+        try {
             log(Level.FINE, "deferExec: {0} empty: {1}, call: {2}", new Object[]{sb, deferred == null, topMostCall()});
             if (deferred == null) {
                 deferred = sb;
             } else {
                 deferred.append(sb);
             }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final void deferCall(StringBuilder sb) {
+        lock.lock();
+        try {
+            deferExec(sb);
+            if (deferredCalls++ == 0) {
+                deferredSince = System.nanoTime();
+                if (maxDelay > 0) {
+                    schedulePipelineFlush();
+                }
+            }
+            if (maxBatch > 0 && deferredCalls >= maxBatch) {
+                pipelineFlush();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Sends queued calls to JavaScript without waiting for a result.
+     * Only possible when no call is in progress, otherwise the queue
+     * is sent as part of the reply to the pending JavaScript call.
+     */
+    final void pipelineFlush() {
+        lock.lock();
+        try {
+            if (deferred == null || deferredCalls == 0 || topMostCall() != null) {
+                return;
+            }
+            log(Level.FINE, "Pipelining {0} calls", deferredCalls);
+            loadJS(takeDeferred().toString());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void schedulePipelineFlush() {
+        final long since = deferredSince;
+        final Runnable flush = new Runnable() {
+            @Override
+            public void run() {
+                lock.lock();
+                try {
+                    if (deferredSince == since) {
+                        pipelineFlush();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+        PipelineTimer.TIMER.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                dispatch(flush);
+            }
+        }, Math.max(1, TimeUnit.NANOSECONDS.toMillis(maxDelay)));
+    }
+
+    private static final class PipelineTimer {
+        static final Timer TIMER = new Timer("Generic Presenter Pipeline", true);
+    }
+
+    private StringBuilder takeDeferred() {
+        assert lock.isHeldByCurrentThread();
+        StringBuilder batch = deferred;
+        deferred = null;
+        if (deferredCalls > 0) {
+            statistics.flushed(deferredCalls, System.nanoTime() - deferredSince);
+            deferredCalls = 0;
         }
+        return batch;
     }
 
     @Texts({
         "flushExec=\n\nds(@1).toJava('r', '@2', null);\n"
     })
     void flushImpl() {
-        synchronized (lock()) {
+        lock.lock();
+        try {
             if (deferred != null) {
                 final int id = nextCallId();
                 log(Level.FINE, "flush#{1}: {0}", deferred, id);
                 exec(id, Strings.flushExec(key, id).toString());
             }
+        } finally {
+            lock.unlock();
         }
     }
 
     final Object exec(int id, String fn) {
         Object ret;
         boolean first;
-        synchronized (lock()) {
+        lock.lock();
+        try {
             if (deferred != null) {
-                deferred.append(fn);
-                fn = deferred.toString();
-                deferred = null;
+                StringBuilder batch = takeDeferred();
+                batch.append(fn);
+                fn = batch.toString();
                 log(Level.FINE, "Flushing {0}", fn);
             }
 
@@ -761,6 +1079,9 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                 myCall = registerCall(new Item(id, top, fn));
                 load = synchronous;
                 first = false;
+                if (!load) {
+                    jsSide.signalAll();
+                }
             } else {
                 myCall = registerCall(new Item(id, null, null));
                 load = true;
@@ -773,48 +1094,148 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
                 if (myCall.typeof != null) {
                     break;
                 }
+                Item c = topMostCall();
+                if (c != null && c.method != null && c.done == null) {
+                    c.inJava();
+                    continue;
+                }
                 try {
-                    lock().wait();
+                    myCall.changed.await();
                 } catch (InterruptedException ex) {
                     log(Level.SEVERE, null, ex);
                 }
-                Item c = topMostCall();
-                if (c != null) {
-                    c.inJava();
-                }
-                lock().notifyAll();
             }
             ret = valueOf(myCall.typeof, (String) myCall.result);
-        }
-        if (first) {
-            arguments.clear();
+            if (first) {
+                arguments.clear();
+            }
+        } finally {
+            lock.unlock();
         }
         return ret;
     }
     
-    private static Object[] adaptParams(Method toCall, List<Object> args) {
-        final Object[] arr = new Object[args.size()];
-        final Class<?>[] types = toCall.getParameterTypes();
-        for (int i = 0; i < arr.length; i++) {
-            arr[i] = adaptType(types[i], args.get(i));
+    /** @GuardedBy("callbacks") */
+    private final Map<Class<?>,Callback[]> callbacks = new HashMap<Class<?>, Callback[]>();
+
+    /** Dispatch table of methods callable from JavaScript. Built once
+     * per class, its indexes are used by the generated JavaScript to
+     * identify the method to call.
+     */
+    private Callback[] callbacks(Class<?> clazz) {
+        synchronized (callbacks) {
+            Callback[] table = callbacks.get(clazz);
+            if (table == null) {
+                List<Callback> arr = new ArrayList<Callback>();
+                for (Method m : clazz.getMethods()) {
+                    if (m.getDeclaringClass() == Object.class) {
+                        continue;
+                    }
+                    arr.add(new Callback(m));
+                }
+                table = arr.toArray(new Callback[arr.size()]);
+                callbacks.put(clazz, table);
+            }
+            return table;
         }
-        return arr;
     }
-    
-    private static Object adaptType(Class<?> type, Object value) {
-        if (type.isPrimitive() && value instanceof Number) {
-            final Number n = (Number)value;
-            if (type == Byte.TYPE) return n.byteValue();
-            if (type == Short.TYPE) return n.shortValue();
-            if (type == Integer.TYPE) return n.intValue();
-            if (type == Long.TYPE) return n.longValue();
-            if (type == Float.TYPE) return n.floatValue();
-            if (type == Double.TYPE) return n.doubleValue();
-            if (type == Character.TYPE) return (char)n.intValue();
+
+    private static final class Callback {
+        final Method method;
+        final boolean instanceMethod;
+        final int parameterCount;
+        private final Class<?>[] types;
+        private final MethodHandle handle;
+
+        Callback(Method m) {
+            this.method = m;
+            this.types = m.getParameterTypes();
+            this.parameterCount = types.length;
+            this.instanceMethod =
+                types.length > 0 &&
+                m.getName().startsWith(types[0].getName().replace('.', '_') + "$");
+            this.handle = createHandle(m, types);
         }
-        return value;
-    }
-    
+
+        Object invoke(Object thiz, Object[] args) throws Throwable {
+            if (handle != null) {
+                return handle.invoke(thiz, args);
+            }
+            final Object[] arr = new Object[args.length];
+            for (int i = 0; i < arr.length; i++) {
+                arr[i] = adaptType(types[i], args[i]);
+            }
+            return method.invoke(thiz, arr);
+        }
+
+        private static MethodHandle createHandle(Method m, Class<?>[] types) {
+            try {
+                MethodHandle mh = MethodHandles.publicLookup().unreflect(m);
+                MethodHandle[] filters = new MethodHandle[types.length];
+                for (int i = 0; i < types.length; i++) {
+                    if (types[i].isPrimitive() && types[i] != Boolean.TYPE) {
+                        filters[i] = MethodHandles.lookup().findStatic(
+                            Callback.class, types[i].getName() + "Value",
+                            MethodType.methodType(types[i], Object.class)
+                        );
+                    }
+                }
+                mh = MethodHandles.filterArguments(mh, 1, filters);
+                mh = mh.asType(MethodType.genericMethodType(types.length + 1));
+                return mh.asSpreader(Object[].class, types.length);
+            } catch (IllegalAccessException ex) {
+                return null;
+            } catch (NoSuchMethodException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+
+        private static byte byteValue(Object value) {
+            return ((Number) value).byteValue();
+        }
+
+        private static short shortValue(Object value) {
+            return ((Number) value).shortValue();
+        }
+
+        private static int intValue(Object value) {
+            return ((Number) value).intValue();
+        }
+
+        private static long longValue(Object value) {
+            return ((Number) value).longValue();
+        }
+
+        private static float floatValue(Object value) {
+            return ((Number) value).floatValue();
+        }
+
+        private static double doubleValue(Object value) {
+            return ((Number) value).doubleValue();
+        }
+
+        private static char charValue(Object value) {
+            if (value instanceof Character) {
+                return (Character) value;
+            }
+            return (char) ((Number) value).intValue();
+        }
+
+        private static Object adaptType(Class<?> type, Object value) {
+            if (type.isPrimitive() && value instanceof Number) {
+                final Number n = (Number)value;
+                if (type == Byte.TYPE) return n.byteValue();
+                if (type == Short.TYPE) return n.shortValue();
+                if (type == Integer.TYPE) return n.intValue();
+                if (type == Long.TYPE) return n.longValue();
+                if (type == Float.TYPE) return n.floatValue();
+                if (type == Double.TYPE) return n.doubleValue();
+                if (type == Character.TYPE) return (char)n.intValue();
+            }
+            return value;
+        }
+    } // end of Callback
+
     private static final class JSObject {
         private final int index;
 
@@ -879,7 +1300,11 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             }
             sb.append(Strings.registerCode(code));
             this.vmId = isVm ? new int[] { -1 } : null;
+            releaseHandles();
             deferExec(sb);
+            synchronized (released) {
+                functions.add(new FnRef(this, id, vmId, released));
+            }
         }
 
         @Override
@@ -899,6 +1324,7 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             if (vmId != null && vmId[0] < 0) {
                 vmId[0] = exportVm(args[args.length - 1]);
             }
+            releaseHandles();
 
             StringBuilder sb = new StringBuilder(256);
             encodeObject(thiz, false, sb, null);
@@ -909,100 +1335,68 @@ abstract class Generic implements Fn.Presenter, Fn.KeepAlive, Flushable {
             }
             sb.append(");");
             
-            arguments.add(thiz);
-            arguments.add(args);
-
-            synchronized (lock()) {
+            lock.lock();
+            try {
+                arguments.add(thiz);
+                arguments.add(args);
                 int callId = nextCallId();
                 sb.insert(0, Strings.invokeImplFn(id, wait4js, key, callId));
                 if (wait4js) {
                     return exec(callId, sb.toString());
                 } else {
-                    deferExec(sb);
+                    deferCall(sb);
                     return null;
                 }
+            } finally {
+                lock.unlock();
             }
         }
     }
     
-    private static final class Exported implements Comparable<Exported> {
-        private final int id;
-        private final Object obj;
-        private final boolean ref;
+    private static final class JSRef extends WeakReference<JSObject> {
+        final int index;
 
-        Exported(int id, boolean ref, Object obj) {
-            this.id = id;
-            this.obj = ref ? createReferenceFor(obj) : obj;
-            this.ref = ref;
-            WeakHolder.clean();
-        }
-        
-        protected Object get() {
-            if (ref) {
-                return ((Reference<?>)obj).get();
-            } else {
-                return obj;
-            }
-        }
-        
-        @Override
-        public int compareTo(Exported o) {
-            return id - o.id;
-        }
-
-        private static Object createReferenceFor(Object obj) {
-            Reference<Object> ref = new WeakReference<Object>(obj);
-            if (obj instanceof Reference) {
-                Reference<?> myRef = (Reference<?>) obj;
-                if (obj.getClass().getName().equals("org.netbeans.html.ko4j.Knockout")) {
-                    // workaround for #255677
-                    WeakHolder h = new WeakHolder(myRef.get(), obj);
-                    h.register();
-                }
-            }
-            return ref;
+        JSRef(JSObject referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.index = referent.index;
         }
     }
 
-    private static final class WeakHolder extends PhantomReference<Object> {
-        private static final ReferenceQueue QUEUE = new ReferenceQueue();
-        private static final Set<WeakHolder> active = new HashSet<WeakHolder>();
-        private final Object knockout;
-
-        public WeakHolder(Object referent, Object knockout) {
-            super(referent, QUEUE);
-            this.knockout = knockout;
-        }
-
-        static void clean() {
-            for (;;) {
-                WeakHolder h = (WeakHolder) QUEUE.poll();
-                if (h == null) {
-                    break;
-                }
-                active.remove(h);
-            }
-        }
+    private static final class FnRef extends WeakReference<Fn> {
+        final int id;
+        final int[] vmId;
 
-        void register() {
-            active.add(this);
+        FnRef(Fn referent, int id, int[] vmId, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.id = id;
+            this.vmId = vmId;
         }
     }
 
     private Item topMostCall() {
-        assert Thread.holdsLock(lock());
+        assert lock.isHeldByCurrentThread();
         return call;
     }
 
     private Item registerCall(Item call) {
-        assert Thread.holdsLock(lock());
+        assert lock.isHeldByCurrentThread();
         this.call = call;
-        lock().notifyAll();
         return call;
     }
 
+    /** Finds the item whose thread is expected to handle a Java call
+     * registered on top of given item.
+     */
+    private static Item handledBy(Item top) {
+        Item it = top;
+        while (it.method != null && it.prev != null) {
+            it = it.prev;
+        }
+        return it;
+    }
+
     private int nextCallId() {
-        assert Thread.holdsLock(lock());
+        assert lock.isHeldByCurrentThread();
         return ++callCounter;
     }
 }
@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/** Generational table of Java objects exported to JavaScript. Each
+ * object gets a slot and the handle sent to JavaScript combines the
+ * slot index with its generation. Slots of weakly exported objects
+ * are reclaimed once the objects are garbage collected and reused
+ * with a new generation, so stale handles never resolve to a different
+ * object. A slot whose generations are exhausted is retired rather than
+ * wrapped around and a fresh slot is used instead. Handles are
+ * {@code long} values of at most 53 bits - exactly representable as
+ * JavaScript numbers - which leaves room for 2^53 registrations.
+ */
+final class Handles {
+    private static final int SLOT_BITS = 30;
+    private static final long SLOT_MASK = (1L << SLOT_BITS) - 1;
+    static final int GENERATION_BITS = 53 - SLOT_BITS;
+
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+    private final Map<Entry,Entry> ids = new HashMap<Entry,Entry>();
+    private Entry[] slots = new Entry[64];
+    private int[] generations = new int[64];
+    private int[] free = new int[16];
+    private int freeCount;
+    private int used;
+    private final int generationMask;
+
+    Handles() {
+        this(GENERATION_BITS);
+    }
+
+    Handles(int generationBits) {
+        this.generationMask = (1 << generationBits) - 1;
+    }
+
+    /** Finds or allocates handle for given object.
+     *
+     * @param o the object to export
+     * @param weak should the object be held only weakly?
+     * @param justAdded if non-{@code null} its first element is set
+     *   to {@code true} when new handle was allocated
+     * @return handle of the object
+     */
+    synchronized long register(Object o, boolean weak, boolean[] justAdded) {
+        reclaim();
+        Entry probe = new Entry(o, -1, null);
+        Entry existing = ids.get(probe);
+        probe.clear();
+        if (existing != null) {
+            if (!weak && existing.strong == null) {
+                existing.strong = o;
+            }
+            return existing.id;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = free[--freeCount];
+        } else {
+            slot = used++;
+            if (slot > SLOT_MASK) {
+                // more than 2^30 objects alive at once
+                throw new IllegalStateException("Too many exported objects: " + slot);
+            }
+            if (slot == slots.length) {
+                slots = Arrays.copyOf(slots, slot * 2);
+                generations = Arrays.copyOf(generations, slot * 2);
+            }
+        }
+        long id = ((long) generations[slot] << SLOT_BITS) | slot;
+        Entry e = new Entry(o, id, queue);
+        if (!weak) {
+            e.strong = o;
+        } else {
+            WeakHolder.register(o);
+        }
+        slots[slot] = e;
+        ids.put(e, e);
+        if (justAdded != null) {
+            justAdded[0] = true;
+        }
+        return id;
+    }
+
+    /** Finds object for a handle.
+     *
+     * @param id the handle
+     * @return the object or {@code null} if the handle is stale
+     */
+    synchronized Object find(long id) {
+        int slot = (int) (id & SLOT_MASK);
+        if (id < 0 || slot >= used) {
+            return null;
+        }
+        Entry e = slots[slot];
+        if (e == null || e.id != id) {
+            return null;
+        }
+        return e.strong != null ? e.strong : e.get();
+    }
+
+    /** Number of currently occupied slots.
+     * @return number of live handles
+     */
+    synchronized int size() {
+        reclaim();
+        return ids.size();
+    }
+
+    private void reclaim() {
+        for (;;) {
+            Entry e = (Entry) queue.poll();
+            if (e == null) {
+                break;
+            }
+            int slot = (int) (e.id & SLOT_MASK);
+            if (slots[slot] != e) {
+                continue;
+            }
+            ids.remove(e);
+            slots[slot] = null;
+            generations[slot] = (generations[slot] + 1) & generationMask;
+            if (generations[slot] == 0) {
+                // wrapping around would let stale handles resolve again,
+                // a new slot is taken from the unused ones instead
+                continue;
+            }
+            if (freeCount == free.length) {
+                free = Arrays.copyOf(free, freeCount * 2);
+            }
+            free[freeCount++] = slot;
+        }
+        WeakHolder.clean();
+    }
+
+    private static final class Entry extends WeakReference<Object> {
+        private final int hash;
+        final long id;
+        Object strong;
+
+        Entry(Object obj, long id, ReferenceQueue<Object> queue) {
+            super(obj, queue);
+            this.hash = System.identityHashCode(obj);
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj instanceof Entry) {
+                Entry other = (Entry) obj;
+                if (hash != other.hash) {
+                    return false;
+                }
+                Object mine = get();
+                return mine != null && mine == other.get();
+            }
+            return false;
+        }
+    }
+
+    private static final class WeakHolder extends PhantomReference<Object> {
+        private static final ReferenceQueue<Object> QUEUE = new ReferenceQueue<Object>();
+        private static final Set<WeakHolder> active = new HashSet<WeakHolder>();
+        private final Object knockout;
+
+        private WeakHolder(Object referent, Object knockout) {
+            super(referent, QUEUE);
+            this.knockout = knockout;
+        }
+
+        static void register(Object obj) {
+            if (obj instanceof Reference) {
+                Reference<?> myRef = (Reference<?>) obj;
+                if (obj.getClass().getName().equals("org.netbeans.html.ko4j.Knockout")) {
+                    // workaround for #255677
+                    WeakHolder h = new WeakHolder(myRef.get(), obj);
+                    synchronized (active) {
+                        active.add(h);
+                    }
+                }
+            }
+        }
+
+        static void clean() {
+            for (;;) {
+                WeakHolder h = (WeakHolder) QUEUE.poll();
+                if (h == null) {
+                    break;
+                }
+                synchronized (active) {
+                    active.remove(h);
+                }
+            }
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import org.netbeans.html.boot.spi.Fn.Presenter;
 
 /** The <em>prototypical</em> presenter builder. Builds a {@link Presenter} based on
@@ -33,6 +34,9 @@ public final class ProtoPresenterBuilder {
     private Preparator onReady;
     private boolean sync;
     private boolean eval;
+    private boolean compact = true;
+    private int maxBatch;
+    private long maxDelay;
     private String type;
     private String app;
     private Displayer displayer;
@@ -129,6 +133,44 @@ public final class ProtoPresenterBuilder {
         return this;
     }
 
+    /** Controls the encoding of arrays sent from JavaScript to Java.
+     * By default arrays consisting only of numbers are transferred
+     * in a compact form and decoded without allocating a string per
+     * element. The JavaScript side is informed about the chosen encoding
+     * during initialization.
+     *
+     * @param compact {@code true} to use the compact encoding of numeric arrays,
+     *   {@code false} to fall back to the textual encoding of each element
+     * @return this builder
+     * @since 1.8
+     */
+    public ProtoPresenterBuilder compactArrays(boolean compact) {
+        this.compact = compact;
+        return this;
+    }
+
+    /** Enables pipelining of asynchronous calls into JavaScript.
+     * Calls made via {@link org.netbeans.html.boot.spi.Fn#invokeLater}
+     * are queued and, unless a synchronous call sends them sooner,
+     * delivered to JavaScript in a single batch without waiting for
+     * a reply once the queue reaches {@code maxBatch} calls or its
+     * oldest call has waited {@code maxDelay}. Batch sizes and latencies
+     * are available via {@link ProtoPresenter#lookup lookup}({@link Statistics}.class).
+     *
+     * @param maxBatch number of queued calls that triggers a batch,
+     *   {@code 0} to not limit the number of queued calls
+     * @param maxDelay maximal time a call stays in the queue,
+     *   {@code 0} to not limit the time
+     * @param unit the unit of {@code maxDelay}
+     * @return this builder
+     * @since 1.8
+     */
+    public ProtoPresenterBuilder pipeline(int maxBatch, long maxDelay, TimeUnit unit) {
+        this.maxBatch = maxBatch;
+        this.maxDelay = unit.toNanos(maxDelay);
+        return this;
+    }
+
     /** The type of the presenter (iOS, Android, etc.).
      * @param type string to identify the presenter
     * @return this builder
@@ -234,13 +276,14 @@ public final class ProtoPresenterBuilder {
         private final Object[] data;
 
         GenPresenter(ProtoPresenterBuilder b) {
-            super(b.sync, b.eval, b.type, b.app);
+            super(b.sync, b.eval, b.compact, b.type, b.app);
             this.loadScript = b.loadScript;
             this.executor = b.executor;
             this.onReady = b.onReady;
             this.displayer = b.displayer;
             this.logger = b.logger;
             this.data = b.data.toArray();
+            pipeline(b.maxBatch, b.maxDelay);
         }
 
         @Override
@@ -276,6 +319,9 @@ public final class ProtoPresenterBuilder {
 
         @Override
         public <T> T lookup(Class<T> type) {
+            if (type == Statistics.class) {
+                return type.cast(statistics);
+            }
             for (Object o : data) {
                 if (type == o.getClass()) {
                     return type.cast(o);
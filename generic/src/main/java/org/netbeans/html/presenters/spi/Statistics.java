@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.util.concurrent.TimeUnit;
+
+/** Counters describing how asynchronous calls into JavaScript are
+ * batched by a {@link ProtoPresenter}. Obtain the instance via
+ * {@link ProtoPresenter#lookup(java.lang.Class) presenter.lookup(Statistics.class)}.
+ *
+ * @since 1.8
+ */
+public final class Statistics {
+    private long flushes;
+    private long calls;
+    private int maxBatch;
+    private long totalLatency;
+    private long maxLatency;
+
+    Statistics() {
+    }
+
+    synchronized void flushed(int batch, long latencyNanos) {
+        flushes++;
+        calls += batch;
+        if (batch > maxBatch) {
+            maxBatch = batch;
+        }
+        totalLatency += latencyNanos;
+        if (latencyNanos > maxLatency) {
+            maxLatency = latencyNanos;
+        }
+    }
+
+    /** Number of batches sent to JavaScript.
+     * @return number of flushed batches
+     */
+    public synchronized long getFlushCount() {
+        return flushes;
+    }
+
+    /** Number of asynchronous calls sent to JavaScript in all batches.
+     * @return total number of batched calls
+     */
+    public synchronized long getBatchedCallCount() {
+        return calls;
+    }
+
+    /** The largest number of calls sent in a single batch.
+     * @return maximal batch size
+     */
+    public synchronized int getMaxBatchSize() {
+        return maxBatch;
+    }
+
+    /** Average number of calls per batch.
+     * @return average batch size or {@code 0} if nothing has been flushed yet
+     */
+    public synchronized double getAverageBatchSize() {
+        return flushes == 0 ? 0 : (double) calls / flushes;
+    }
+
+    /** Average time between queuing the first call of a batch and
+     * sending the batch to JavaScript.
+     *
+     * @param unit the unit to express the latency in
+     * @return average flush latency
+     */
+    public synchronized long getAverageFlushLatency(TimeUnit unit) {
+        return flushes == 0 ? 0 : unit.convert(totalLatency / flushes, TimeUnit.NANOSECONDS);
+    }
+
+    /** The longest time a call waited in a batch before being sent
+     * to JavaScript.
+     *
+     * @param unit the unit to express the latency in
+     * @return maximal flush latency
+     */
+    public synchronized long getMaxFlushLatency(TimeUnit unit) {
+        return unit.convert(maxLatency, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "Statistics{flushes=" + flushes + ", calls=" + calls
+            + ", maxBatch=" + maxBatch + ", maxLatency=" + maxLatency + "ns}";
+    }
+}
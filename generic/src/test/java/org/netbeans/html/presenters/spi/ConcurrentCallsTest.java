@@ -0,0 +1,218 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.net.URL;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import org.netbeans.html.boot.spi.Fn;
+import static org.testng.Assert.*;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/** Stress test of the call stack. Several producer threads queue
+ * asynchronous calls and flush them while a single "JavaScript" thread
+ * answers the synchronous ones. Calls from JavaScript to Java that call
+ * back into JavaScript are handed over between the threads.
+ */
+public class ConcurrentCallsTest {
+    private static final Pattern RESULT = Pattern.compile("toJava\\('r', '([0-9]+)'");
+    private static final int CALLS = 2000;
+
+    @DataProvider(name = "producers")
+    public static Object[][] producers() {
+        return new Object[][] {
+            { 1 }, { 4 }, { 16 }
+        };
+    }
+
+    @Test(dataProvider = "producers")
+    public void allCallsDelivered(final int producers) throws Exception {
+        final ExecutorService engine = Executors.newSingleThreadExecutor();
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+        final AtomicInteger delivered = new AtomicInteger();
+        final Generic[] p = { null };
+        p[0] = new Generic(true, true, "type", "app") {
+            @Override
+            void handleLog(Level level, String msg, Object... args) {
+            }
+
+            @Override
+            void callbackFn(ProtoPresenterBuilder.OnPrepared onReady) {
+                onReady.callbackIsPrepared("clbk");
+            }
+
+            @Override
+            void loadJS(final String js) {
+                if (js.contains("'Initialized'")) {
+                    p[0].result("-1", "OK", "Initialized");
+                    return;
+                }
+                engine.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        int at = -1;
+                        for (;;) {
+                            at = js.indexOf("call();", at + 1);
+                            if (at == -1) {
+                                break;
+                            }
+                            delivered.incrementAndGet();
+                        }
+                        Matcher m = RESULT.matcher(js);
+                        if (m.find()) {
+                            try {
+                                p[0].result(m.group(1), "null", "null");
+                            } catch (Throwable t) {
+                                failures.add(t);
+                            }
+                        }
+                    }
+                });
+            }
+
+            @Override
+            void dispatch(Runnable r) {
+                r.run();
+            }
+
+            @Override
+            public void displayPage(URL url, Runnable r) {
+            }
+        };
+        p[0].init();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(producers);
+        final int perThread = CALLS / producers;
+        for (int i = 0; i < producers; i++) {
+            new Thread("Producer " + i) {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < perThread; j++) {
+                            p[0].deferCall(new StringBuilder("call();"));
+                            if (j % 10 == 9) {
+                                p[0].flush();
+                            }
+                        }
+                        p[0].flush();
+                    } catch (Throwable t) {
+                        failures.add(t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS), "All producers finished");
+        engine.shutdown();
+        assertTrue(engine.awaitTermination(10, TimeUnit.SECONDS), "JavaScript thread finished");
+
+        assertNoFailures(failures);
+        assertEquals(delivered.get(), perThread * producers, "All calls delivered");
+    }
+
+    @Test
+    public void nestedCallsFromOtherThread() throws Exception {
+        final ExecutorService engine = Executors.newSingleThreadExecutor();
+        final ExecutorService java = Executors.newSingleThreadExecutor();
+        final ScriptEngine eng = new ScriptEngineManager().getEngineByMimeType("text/javascript");
+        eng.getBindings(ScriptContext.ENGINE_SCOPE).put("polyglot.js.allowAllAccess", true);
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+        final ProtoPresenter[] presenter = { null };
+        presenter[0] = ProtoPresenterBuilder.newBuilder()
+            .app("Testing")
+            .type("test")
+            .dispatcher(java, false)
+            .loadJavaScript((js) -> engine.execute(() -> {
+                try {
+                    eng.eval(js);
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }), false)
+            .displayer((url, r) -> r.run())
+            .preparator((ready) -> engine.execute(() -> {
+                eng.getBindings(ScriptContext.ENGINE_SCOPE).put("jvm", new ReleaseHandlesTest.Callback(presenter[0]));
+                try {
+                    eng.eval("(function(global) {\n"
+                        + "  var jvm = global.jvm;\n"
+                        + "  global.testingCB = function(m,a1,a2,a3,a4) {\n"
+                        + "    return jvm.pass(m,a1,a2,a3,a4);\n"
+                        + "  }\n"
+                        + "})(this);\n"
+                    );
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+                ready.callbackIsPrepared("testingCB");
+            }), true)
+            .build();
+
+        Fn outer = presenter[0].defineFn("return 'outer(' + vm.nested(x) + ')';", "x", "vm");
+        Fn inner = presenter[0].defineFn("return 'inner(' + x + ')';", "x");
+        Nested vm = new Nested(inner);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(outer.invoke(null, "" + i, vm), "outer(java(inner(" + i + ")))", "Round " + i);
+        }
+        assertNoFailures(failures);
+        assertNoFailures(vm.failures);
+        engine.shutdown();
+        java.shutdown();
+    }
+
+    public static final class Nested {
+        private final Fn inner;
+        final Queue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+
+        Nested(Fn inner) {
+            this.inner = inner;
+        }
+
+        public String nested(String x) {
+            try {
+                return "java(" + inner.invoke(null, x) + ")";
+            } catch (Throwable t) {
+                failures.add(t);
+                return null;
+            }
+        }
+    }
+
+    private static void assertNoFailures(Queue<Throwable> failures) {
+        for (Throwable t : failures) {
+            AssertionError err = new AssertionError("Unexpected failure: " + t);
+            err.initCause(t);
+            throw err;
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.net.URL;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DispatchTest {
+    private Generic p;
+
+    @BeforeMethod public void initInstance() {
+        p = new Generic(true, true, "type", "app") {
+            @Override
+            void handleLog(Level level, String msg, Object... args) {
+            }
+
+            @Override
+            void callbackFn(ProtoPresenterBuilder.OnPrepared onReady) {
+            }
+
+            @Override
+            void loadJS(String js) {
+            }
+
+            @Override
+            void dispatch(Runnable r) {
+                r.run();
+            }
+
+            @Override
+            public void displayPage(URL url, Runnable r) {
+            }
+        };
+    }
+
+    @Test public void callsByIndex() throws Exception {
+        VM vm = new VM();
+        p.exportVm(vm);
+        String script = p.javaresult();
+        long vmId = p.registerObject(vm, false, null, null);
+
+        String add = p.javacall("" + vmId, indexOf(script, "add"), null, "array:2:8:number:28:number:3");
+        assertEquals(add, "5", "Primitive parameters converted");
+
+        String ch = p.javacall("" + vmId, indexOf(script, "next"), null, "array:1:9:number:65");
+        assertEquals(ch, "66", "Characters are sent as numbers");
+
+        String hello = p.javacall("" + vmId, indexOf(script, "hello"), null, "array:1:11:string:Duke");
+        assertEquals(hello, "\"Hello Duke\"");
+        assertEquals(vm.calls, 3, "Three calls made");
+    }
+
+    private static String indexOf(String script, String name) {
+        Pattern p = Pattern.compile("jsvm\\." + name + " = function\\(.*?toVM\\('c', '[0-9]+', '([0-9]+)'", Pattern.DOTALL);
+        Matcher m = p.matcher(script);
+        assertTrue(m.find(), "Found " + name + " in " + script);
+        return m.group(1);
+    }
+
+    public static final class VM {
+        int calls;
+
+        public int add(int a, int b) {
+            calls++;
+            return a + b;
+        }
+
+        public char next(char ch) {
+            calls++;
+            return (char) (ch + 1);
+        }
+
+        public String hello(String name) {
+            calls++;
+            return "Hello " + name;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.Set;
+import static org.testng.Assert.*;
+import org.testng.annotations.Test;
+
+public class HandlesTest {
+    @Test public void sameObjectSameHandle() {
+        Handles h = new Handles();
+        Object obj = new Object();
+        boolean[] added = { false };
+        long id = h.register(obj, false, added);
+        assertTrue(added[0], "Newly added");
+        added[0] = false;
+        assertEquals(h.register(obj, false, added), id, "Same handle");
+        assertFalse(added[0], "Not added again");
+        assertSame(h.find(id), obj);
+    }
+
+    @Test public void weakSlotsAreReused() throws Exception {
+        Handles h = new Handles();
+        Object obj = new Object();
+        long id = h.register(obj, true, null);
+        assertSame(h.find(id), obj);
+        Reference<Object> ref = new WeakReference<Object>(obj);
+        obj = null;
+        assertGC(ref);
+        for (int i = 0; i < 100 && h.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(h.size(), 0, "Slot has been reclaimed");
+        assertNull(h.find(id), "Stale handle doesn't resolve");
+
+        Object next = new Object();
+        long nextId = h.register(next, true, null);
+        assertTrue(nextId != id, "New generation of the handle");
+        assertNull(h.find(id), "Stale handle still doesn't resolve");
+        assertSame(h.find(nextId), next);
+    }
+
+    @Test public void strongExportIsKept() throws Exception {
+        Handles h = new Handles();
+        Object obj = new Object();
+        long id = h.register(obj, true, null);
+        assertEquals(h.register(obj, false, null), id, "Upgraded to strong");
+        Reference<Object> ref = new WeakReference<Object>(obj);
+        obj = null;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        assertNotNull(ref.get(), "Still referenced");
+        assertSame(h.find(id), ref.get());
+    }
+
+    @Test public void exhaustedSlotIsRetired() throws Exception {
+        Handles h = new Handles(9);
+        Set<Long> seen = new HashSet<Long>();
+        int slotChanges = 0;
+        long previous = -1;
+        for (int i = 0; i < 600; i++) {
+            Object obj = new Object();
+            long id = h.register(obj, true, null);
+            assertTrue(seen.add(id), "Handle " + id + " never issued twice");
+            if (previous != -1 && (previous & 0x3fffffff) != (id & 0x3fffffff)) {
+                slotChanges++;
+            }
+            previous = id;
+            obj = null;
+            for (int j = 0; j < 100 && h.size() > 0; j++) {
+                System.gc();
+                Thread.sleep(1);
+            }
+            assertEquals(h.size(), 0, "Slot reclaimed in round " + i);
+        }
+        assertEquals(slotChanges, 1, "Slot retired once its generations were used up");
+    }
+
+    private static void assertGC(Reference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get(), "Object has been collected");
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PipelineTest {
+    private List<String> loaded;
+    private Generic p;
+
+    @BeforeMethod public void initInstance() {
+        loaded = new CopyOnWriteArrayList<String>();
+        p = new Generic(true, true, "type", "app") {
+            @Override
+            void handleLog(Level level, String msg, Object... args) {
+            }
+
+            @Override
+            void callbackFn(ProtoPresenterBuilder.OnPrepared onReady) {
+            }
+
+            @Override
+            void loadJS(String js) {
+                loaded.add(js);
+            }
+
+            @Override
+            void dispatch(Runnable r) {
+                r.run();
+            }
+
+            @Override
+            public void displayPage(URL url, Runnable r) {
+            }
+        };
+    }
+
+    @Test public void noPipeliningByDefault() {
+        for (int i = 0; i < 10; i++) {
+            p.deferCall(new StringBuilder("call(" + i + ");"));
+        }
+        assertTrue(loaded.isEmpty(), "Calls wait for synchronous call: " + loaded);
+        assertEquals(p.statistics.getFlushCount(), 0);
+    }
+
+    @Test public void batchIsSentWhenFull() {
+        p.pipeline(3, 0);
+        for (int i = 0; i < 7; i++) {
+            p.deferCall(new StringBuilder("call(" + i + ");"));
+        }
+        assertEquals(loaded.size(), 2, "Two batches sent: " + loaded);
+        assertEquals(loaded.get(0), "call(0);call(1);call(2);");
+        assertEquals(loaded.get(1), "call(3);call(4);call(5);");
+        assertEquals(p.statistics.getFlushCount(), 2);
+        assertEquals(p.statistics.getBatchedCallCount(), 6);
+        assertEquals(p.statistics.getMaxBatchSize(), 3);
+        assertEquals(p.statistics.getAverageBatchSize(), 3.0, 0.01);
+    }
+
+    @Test public void batchIsSentAfterDelay() throws Exception {
+        p.pipeline(0, TimeUnit.MILLISECONDS.toNanos(10));
+        p.deferCall(new StringBuilder("later();"));
+        for (int i = 0; i < 100 && loaded.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(loaded.size(), 1, "Sent by the timer: " + loaded);
+        assertEquals(loaded.get(0), "later();");
+        assertTrue(p.statistics.getMaxFlushLatency(TimeUnit.NANOSECONDS) > 0, "Latency measured");
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.presenters.spi;
+
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+import org.netbeans.html.boot.spi.Fn;
+import static org.testng.Assert.*;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ReleaseHandlesTest {
+    private static final Pattern RELEASE = Pattern.compile("ds\\((-?[0-9]+)\\)\\.rl\\(\\[([0-9,]*)\\], \\[([0-9,]*)\\]\\)");
+    private List<String> loaded;
+    private ScriptEngine eng;
+
+    @BeforeMethod public void initInstance() {
+        loaded = new CopyOnWriteArrayList<String>();
+    }
+
+    @Test public void collectedObjectsAreReleasedInOneBatch() throws Exception {
+        Generic p = new Generic(true, true, "type", "app") {
+            @Override
+            void handleLog(Level level, String msg, Object... args) {
+            }
+
+            @Override
+            void callbackFn(ProtoPresenterBuilder.OnPrepared onReady) {
+            }
+
+            @Override
+            void loadJS(String js) {
+                loaded.add(js);
+            }
+
+            @Override
+            void dispatch(Runnable r) {
+                r.run();
+            }
+
+            @Override
+            public void displayPage(URL url, Runnable r) {
+            }
+        };
+        Object first = p.jsObject(3);
+        Object second = p.jsObject(5);
+        Object kept = p.jsObject(7);
+
+        p.releaseIdleHandles();
+        assertTrue(loaded.isEmpty(), "Nothing to release yet: " + loaded);
+
+        Reference<Object> firstRef = new WeakReference<Object>(first);
+        Reference<Object> secondRef = new WeakReference<Object>(second);
+        first = null;
+        second = null;
+        assertGC(firstRef);
+        assertGC(secondRef);
+        for (int i = 0; i < 100 && loaded.isEmpty(); i++) {
+            p.releaseIdleHandles();
+            Thread.sleep(10);
+        }
+
+        assertEquals(loaded.size(), 1, "One release message: " + loaded);
+        Matcher m = RELEASE.matcher(loaded.get(0));
+        assertTrue(m.find(), "Release message: " + loaded);
+        String objs = m.group(2);
+        assertTrue(objs.equals("3,5") || objs.equals("5,3"), "Both objects released at once: " + objs);
+        assertEquals(m.group(3), "", "No functions released");
+        assertEquals(kept.toString(), "[jsobject-7]", "Still referenced");
+    }
+
+    @Test public void releasedSlotsAreReusedInJavaScript() throws Exception {
+        Generic p = jsPresenter();
+        Fn create = p.defineFn("return { 'v' : v };", "v");
+        Fn value = p.defineFn("return '' + o.v;", "o");
+
+        Object first = create.invoke(null, "first");
+        Object second = create.invoke(null, "second");
+        final String firstId = first.toString();
+        assertNotEquals(second.toString(), firstId, "Different objects");
+
+        Reference<Object> ref = new WeakReference<Object>(first);
+        first = null;
+        assertGC(ref);
+        String[] released = awaitRelease(p);
+        assertEquals(released[1], firstId.replaceAll("[^0-9]", ""), "Collected object released");
+
+        Object third = create.invoke(null, "third");
+        assertEquals(third.toString(), firstId, "Released slot reused by JavaScript");
+        assertEquals(value.invoke(null, third), "third");
+        assertEquals(value.invoke(null, second), "second");
+    }
+
+    @Test public void releasedFunctionsAreDeletedInJavaScript() throws Exception {
+        Generic p = jsPresenter();
+        Fn fn = p.defineFn("return 'called';");
+        assertEquals(fn.invoke(null), "called");
+        Matcher m = Pattern.compile("ds\\((-?[0-9]+)\\)\\.rg\\(([0-9]+),").matcher(loaded.toString());
+        assertTrue(m.find(), "Function registered: " + loaded);
+        String key = m.group(1);
+        String id = m.group(2);
+        assertEquals(eng.eval("typeof ds(" + key + ").v(" + id + ")"), "function");
+
+        Reference<Fn> ref = new WeakReference<Fn>(fn);
+        fn = null;
+        assertGC(ref);
+        String[] released = awaitRelease(p);
+        assertEquals(released[0], key);
+        assertEquals(released[2], id, "Collected function released");
+        assertEquals(eng.eval("typeof ds(" + key + ").v(" + id + ")"), "undefined");
+    }
+
+    private String[] awaitRelease(Generic p) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            for (String js : loaded) {
+                Matcher m = RELEASE.matcher(js);
+                if (m.find()) {
+                    return new String[] { m.group(1), m.group(2), m.group(3) };
+                }
+            }
+            p.releaseIdleHandles();
+            Thread.sleep(10);
+        }
+        fail("No release message: " + loaded);
+        return null;
+    }
+
+    private Generic jsPresenter() throws ScriptException {
+        eng = new ScriptEngineManager().getEngineByMimeType("text/javascript");
+        eng.getBindings(ScriptContext.ENGINE_SCOPE).put("polyglot.js.allowAllAccess", true);
+        final ProtoPresenter[] presenter = { null };
+        presenter[0] = ProtoPresenterBuilder.newBuilder()
+            .app("Testing")
+            .type("test")
+            .dispatcher((r) -> r.run(), false)
+            .loadJavaScript((js) -> {
+                loaded.add(js);
+                try {
+                    eng.eval(js);
+                } catch (ScriptException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }, true)
+            .displayer((url, r) -> r.run())
+            .preparator((ready) -> {
+                eng.getBindings(ScriptContext.ENGINE_SCOPE).put("jvm", new Callback(presenter[0]));
+                try {
+                    eng.eval("(function(global) {\n"
+                        + "  var jvm = global.jvm;\n"
+                        + "  global.testingCB = function(m,a1,a2,a3,a4) {\n"
+                        + "    return jvm.pass(m,a1,a2,a3,a4);\n"
+                        + "  }\n"
+                        + "})(this);\n"
+                    );
+                } catch (ScriptException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                ready.callbackIsPrepared("testingCB");
+            }, true)
+            .build();
+        return (Generic) presenter[0];
+    }
+
+    public static final class Callback {
+        private final ProtoPresenter presenter;
+
+        Callback(ProtoPresenter presenter) {
+            this.presenter = presenter;
+        }
+
+        private static String ts(Object o) {
+            return o == null ? null : o.toString();
+        }
+
+        public String pass(String method, Object a1, Object a2, Object a3, Object a4) throws Exception {
+            return presenter.js2java(method, ts(a1), ts(a2), ts(a3), ts(a4));
+        }
+    }
+
+    private static void assertGC(Reference<?> ref) throws InterruptedException {
+        for (int i = 0; i < 100 && ref.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull(ref.get(), "Object has been collected");
+    }
+}
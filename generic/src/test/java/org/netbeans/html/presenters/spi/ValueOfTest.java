@@ -57,4 +57,41 @@ public class ValueOfTest {
         assertEquals(arr.length, 1, "One array item");
         assertEquals(arr[0], 6.0, "Value is six");
     }
+
+    @Test public void parseNestedArray() {
+        Object res = p.valueOf("array:3:8:number:612:string:a:b:c29:array:2:9:null:null8:number:7");
+        assertTrue(res instanceof Object[], "It is an array: " + res);
+        Object[] arr = (Object[]) res;
+        assertEquals(arr.length, 3, "Three array items");
+        assertEquals(arr[0], 6.0, "Value is six");
+        assertEquals(arr[1], "a:b:c", "Colons in a string are kept");
+        assertTrue(arr[2] instanceof Object[], "Nested array: " + arr[2]);
+        Object[] nested = (Object[]) arr[2];
+        assertEquals(nested.length, 2, "Two nested items");
+        assertNull(nested[0], "First is null");
+        assertEquals(nested[1], 7.0, "Second is seven");
+    }
+
+    @Test public void parseNumbers() {
+        Object res = p.valueOf("numbers:5:1,-2,3.5,1e3,-0");
+        assertTrue(res instanceof Object[], "It is an array: " + res);
+        Object[] arr = (Object[]) res;
+        assertEquals(arr.length, 5, "Five array items");
+        assertEquals(arr[0], 1.0);
+        assertEquals(arr[1], -2.0);
+        assertEquals(arr[2], 3.5);
+        assertEquals(arr[3], 1000.0);
+        assertEquals(arr[4], -0.0);
+    }
+
+    @Test public void parseNumbersInArray() {
+        Object res = p.valueOf("array:2:15:numbers:2:4,NaN9:number:42");
+        assertTrue(res instanceof Object[], "It is an array: " + res);
+        Object[] arr = (Object[]) res;
+        assertEquals(arr.length, 2, "Two array items");
+        Object[] numbers = (Object[]) arr[0];
+        assertEquals(numbers[0], 4.0);
+        assertTrue(((Double) numbers[1]).isNaN(), "Second is NaN: " + numbers[1]);
+        assertEquals(arr[1], 42.0);
+    }
 }
@@ -26,10 +26,13 @@ import java.util.List;
 import java.util.Map;
 import net.java.html.BrwsrCtx;
 import net.java.html.json.Models;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.Transfer;
 import org.netbeans.html.json.tck.KOTest;
 import static net.java.html.json.tests.Utils.assertEquals;
 import static net.java.html.json.tests.Utils.assertNull;
 import static net.java.html.json.tests.Utils.assertNotNull;
+import static net.java.html.json.tests.Utils.assertTrue;
 
 /**
  *
@@ -276,6 +279,65 @@ public final class ConvertTypesTest {
         assertEquals(cnt, expect, "Person found in info");
     }
     
+    @KOTest
+    public void convertNestedArraysFromJavaScript() throws Exception {
+        final Object o = Utils.executeScript(ConvertTypesTest.class,
+            "return { 'nicknames' : [ 'son', 'dj' ], 'age' : [ 1, 2, 3 ],\n" +
+            "  'info' : [\n" +
+            "    { 'firstName' : 'son', 'lastName' : 'dj', 'address' : { 'street' : 'Schnirchova' } },\n" +
+            "    { 'firstName' : 'dad', 'lastName' : 'dj' }\n" +
+            "  ]\n" +
+            "};\n"
+        );
+
+        People p = Models.fromRaw(newContext(), People.class, o);
+
+        assertEquals(p.getNicknames().size(), 2, "Two nicknames: " + p.getNicknames());
+        assertEquals(p.getNicknames().get(1), "dj", "Second nickname: " + p.getNicknames());
+        assertEquals(p.getAge().size(), 3, "Three ages: " + p.getAge());
+        assertEquals(p.getAge().get(2), 3, "Third age: " + p.getAge());
+        assertEquals(p.getInfo().size(), 2, "Two persons: " + p.getInfo());
+        assertEquals(p.getInfo().get(0).getFirstName(), "son", "First person: " + p.getInfo());
+        assertEquals(p.getInfo().get(0).getAddress().getStreet(), "Schnirchova", "Nested address: " + p.getInfo());
+        assertEquals(p.getInfo().get(1).getFirstName(), "dad", "Second person: " + p.getInfo());
+        assertNull(p.getInfo().get(1).getAddress(), "No address: " + p.getInfo());
+    }
+
+    @KOTest
+    public void batchExtractReturnsNestedArrays() throws Exception {
+        final BrwsrCtx c = newContext();
+        Transfer t = Contexts.find(c, Transfer.class);
+        assertNotNull(t, "Transfer found in " + c);
+        if (!(t instanceof Transfer.BatchExtract)) {
+            return;
+        }
+        final Object arr = Utils.executeScript(ConvertTypesTest.class,
+            "return [\n" +
+            "  { 'nicknames' : [ 'son', [ 'dj' ] ], 'firstName' : 'son' },\n" +
+            "  { 'nicknames' : [], 'firstName' : null }\n" +
+            "];\n"
+        );
+        assertTrue(arr instanceof Object[], "JavaScript array is an Object[]: " + arr);
+        Object[] objs = (Object[]) arr;
+        final String[] props = { "nicknames", "firstName", "missing", null };
+        Object[][] values = { new Object[props.length], new Object[props.length] };
+
+        ((Transfer.BatchExtract) t).extract(objs, props, values);
+
+        assertTrue(values[0][0] instanceof Object[], "Nested array is an Object[]: " + values[0][0]);
+        Object[] nicknames = (Object[]) values[0][0];
+        assertEquals(nicknames.length, 2, "Two nicknames");
+        assertEquals(nicknames[0], "son", "First nickname");
+        assertTrue(nicknames[1] instanceof Object[], "Doubly nested array is an Object[]: " + nicknames[1]);
+        assertEquals(((Object[]) nicknames[1])[0], "dj", "Doubly nested value");
+        assertEquals(values[0][1], "son", "First name");
+        assertNull(values[0][2], "Undefined property is null");
+        assertNotNull(values[0][3], "null property yields the object itself");
+        assertTrue(values[1][0] instanceof Object[], "Empty array is an Object[]: " + values[1][0]);
+        assertEquals(((Object[]) values[1][0]).length, 0, "Empty nested array");
+        assertNull(values[1][1], "null value");
+    }
+
     @KOTest
     public void parseOnEmptyArray() throws Exception {
         final BrwsrCtx c = newContext();
@@ -67,6 +67,9 @@ import org.netbeans.html.json.spi.Technology;
  * As soon as one of the properties the derived property method is accessing
  * changes, the method is called again to recompute its new value and the
  * change is notified to the underlying {@linkplain Technology (rendering) technology}.
+ * Since version 1.8 one can mark the property {@link #lazy() lazy} -
+ * then the change is only notified and the new value gets computed when
+ * the technology asks for it.
  * <p>
  * Method's return type defines the type of the derived property. It may be
  * any primitive type, {@link String}, {@link Enum enum type} or a 
@@ -133,4 +136,35 @@ public @interface ComputedProperty {
      * @since 1.2
      */
     public String write() default "";
+
+    /** Remembers the computed value. By default the method annotated by
+     * {@link ComputedProperty} is called on each access to the property.
+     * When the computation is expensive (for example it is displayed
+     * in many rows of a table) one can ask the generated class to
+     * keep the last computed value and return it until one of the
+     * properties the computation depends on changes:
+     * <p>
+     * {@codesnippet net.java.html.json.MemoizedTest#memoizedProperty}
+     * <p>
+     * The method has to compute its value only from the properties
+     * of models, as any other state isn't tracked.
+     *
+     * @return {@code true} to remember the computed value
+     * @since 1.8
+     */
+    public boolean memoize() default false;
+
+    /** Only notifies changes, doesn't compute the new value. By default
+     * a setter of a property this computed property depends on calls
+     * the annotated method to pass the new value to the
+     * {@linkplain Technology technology}. When the computation is expensive
+     * or the property often isn't displayed at all, mark it lazy: the setters
+     * then only report the property as changed and its value is computed
+     * when the technology asks for it. {@link #memoize() Memoized} properties
+     * are always reported this way.
+     *
+     * @return {@code true} to compute the value only on demand
+     * @since 1.8
+     */
+    public boolean lazy() default false;
 }
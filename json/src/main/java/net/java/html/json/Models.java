@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 import org.netbeans.html.json.impl.JSON;
 import org.netbeans.html.json.impl.SimpleList;
 import org.netbeans.html.json.spi.Technology;
@@ -62,6 +63,9 @@ public final class Models {
     }
     
     /** Generic method to parse content of a model class from a stream.
+     * If the context has no technology to read JSON (e.g. on a server),
+     * the stream is parsed in Java directly into the properties of
+     * the model (since 1.8).
      * 
      * @param <M> type of the <code>model</code> class
      * @param c context of the technology to use for reading 
@@ -97,6 +101,36 @@ public final class Models {
         JSON.readStream(c, model, is, collectTo);
     }
     
+    /** Parses stream with (possibly huge) array of objects incrementally.
+     * Unlike {@link #parse(net.java.html.BrwsrCtx, java.lang.Class, java.io.InputStream, java.util.Collection)}
+     * the whole document is never materialized - each element of the array
+     * is converted to a model instance as soon as it is read and
+     * handed to <code>onEach</code>. The stream isn't read further until
+     * <code>onEach</code> returns, thus only a single element needs to
+     * be in memory at a time. If the stream contains an object rather than
+     * an array, exactly one instance is reported.
+     * <p>
+     * The JSON text is parsed in Java (as <code>UTF-8</code>) in the calling
+     * thread, regardless of the technology registered in the context.
+     *
+     * @param <M> the type of the individual JSON object
+     * @param c context of the technology to bind the model instances to
+     * @param model the model class generated by {@link Model} annotation
+     * @param is input stream with data
+     * @param onEach callback to receive the individual model instances
+     *   or <code>null</code> to just verify the content and count the elements
+     * @return number of model instances read from the stream
+     * @throws IOException thrown when an I/O problem appears or the stream
+     *   doesn't contain valid JSON
+     * @since 1.8
+     */
+    public static <M> long parseEach(
+        BrwsrCtx c, Class<M> model,
+        InputStream is, Consumer<? super M> onEach
+    ) throws IOException {
+        return JSON.readEach(c, model, is, onEach);
+    }
+
     /** Converts an existing, raw, JSON object into a {@link Model model class}.
      * 
      * @param <M> the type of the model class
@@ -137,6 +171,34 @@ public final class Models {
         return JSON.find(model);
     }
     
+    /** Writes JSON representation of a {@link Model model}. The text is
+     * the same as the one returned by <code>toString()</code> of the model,
+     * but it is written directly into the provided output - including all
+     * the nested models and lists - without creating intermediate strings.
+     * Useful when sending large model graphs over the wire.
+     * <p>
+     * A {@link Collection} is written as a JSON array of its
+     * elements, whatever their type is. The same applies to collections
+     * sent as data of {@link OnReceive} requests: since version 1.8
+     * they are sent as JSON arrays, while older versions sent the
+     * <code>toString()</code> text of collections that weren't lists of models.
+     *
+     * @param model the model object or a collection of model objects
+     * @param out where to write the JSON text to - for example a
+     *   {@link java.io.Writer} or {@link StringBuilder}
+     * @throws IOException if writing to <code>out</code> fails
+     * @throws IllegalArgumentException if the <code>model</code> is
+     *    neither instance of a class generated by {@link Model model annotation}
+     *    processor nor a collection
+     * @since 1.8
+     */
+    public static void write(Object model, Appendable out) throws IOException {
+        if (!(model instanceof Collection) && (model == null || !isModel(model.getClass()))) {
+            throw new IllegalArgumentException("Not a model " + model);
+        }
+        JSON.write(model, out);
+    }
+
     /** Apply bindings of a model class to overall page. In <em>ko4j</em> mode,
      * it binds the model values to the currently active page. 
      * 
@@ -167,6 +229,27 @@ public final class Models {
         JSON.applyBindings(model, targetId);
     }
 
+    /** Runs the code and notifies the UI about the changes it makes to
+     * the model at once, when the code is over. Each changed property is
+     * reported just once, regardless how many times it was modified:
+     *
+     * {@codesnippet net.java.html.json.BatchTest#batchUpdate}
+     *
+     * Changes the current thread makes to other models while the code runs
+     * are collected as well and each model is notified once when the code
+     * is over. Changes made by other threads are reported immediately.
+     *
+     * @param model instance of a {@link Model class}
+     * @param code the code modifying the model
+     * @throws IllegalArgumentException if the <code>model</code> is not
+     * instance of a class generated by {@link Model model annotation}
+     * processor.
+     * @since 1.8
+     */
+    public static void batch(Object model, Runnable code) {
+        JSON.batch(model, code);
+    }
+
     /** Wrap provided values into mutable list.
      *
      * @param <T> type of the values and resulting list
@@ -81,6 +81,13 @@ import java.lang.annotation.Target;
  * The method shall be non-private
  * and unless {@link Model#instance() instance mode} is on also static.
  * <p>
+ * Since version 1.8 concurrent calls that would send identical request
+ * (the same URL, headers and data) over the same transport share a single
+ * network fetch - each of them receives the same reply. This applies
+ * only to the safe <code>GET</code>, <code>HEAD</code> and <code>OPTIONS</code>
+ * methods - writes like <code>PUT</code>, <code>DELETE</code> or
+ * <code>POST</code> are always sent one by one.
+ * <p>
  * Visit an <a target="_blank" href="http://dew.apidesign.org/dew/#7138581">on-line demo</a>
  * to see REST access via {@link OnReceive} annotation.
  *
@@ -18,6 +18,8 @@
  */
 package org.netbeans.html.json.impl;
 
+import java.util.ArrayList;
+import java.util.List;
 import net.java.html.BrwsrCtx;
 import org.netbeans.html.json.spi.FunctionBinding;
 import org.netbeans.html.json.spi.PropertyBinding;
@@ -77,6 +79,49 @@ public final class Bindings<Data> {
         return data;
     }
 
+    /** Converts many models to their JavaScript representation. Models
+     * sharing a technology that supports {@link Technology.BatchToJavaScript}
+     * are converted by a single call.
+     *
+     * @param bindings bindings of the models, may contain <code>null</code>s
+     * @param into array to store the representations at the same indexes
+     */
+    static void jsObjs(Bindings<?>[] bindings, Object[] into) {
+        for (int i = 0; i < bindings.length; i++) {
+            if (bindings[i] != null) {
+                bindings[i].jsObjs(bindings, into, i);
+            }
+        }
+    }
+
+    private void jsObjs(Bindings<?>[] bindings, Object[] into, int from) {
+        if (!(bp instanceof Technology.BatchToJavaScript)) {
+            bindings[from] = null;
+            Object r = jsObj();
+            if (r != null) {
+                into[from] = r;
+            }
+            return;
+        }
+        final int[] at = new int[bindings.length - from];
+        final List<Data> all = new ArrayList<Data>(at.length);
+        for (int i = from; i < bindings.length; i++) {
+            final Bindings<?> b = bindings[i];
+            if (b != null && b.bp == bp) {
+                at[all.size()] = i;
+                all.add(((Bindings<Data>) b).data);
+                bindings[i] = null;
+            }
+        }
+        Technology.BatchToJavaScript<Data> toJS = (Technology.BatchToJavaScript<Data>) bp;
+        Object[] js = toJS.toJavaScript(all);
+        for (int i = 0; i < js.length; i++) {
+            if (js[i] != null) {
+                into[at[i]] = js[i];
+            }
+        }
+    }
+
     public void valueHasMutated(String firstName, Object oldValue, Object newValue) {
         if (bp instanceof Technology.ValueMutated) {
             Technology.ValueMutated<Data> vm = (Technology.ValueMutated<Data>)bp;
@@ -88,6 +133,39 @@ public final class Bindings<Data> {
         }
     }
     
+    /** Informs the technology about a change of a range of an array.
+     *
+     * @return <code>false</code> if the technology doesn't support
+     *    {@link Technology.ArrayChange partial updates}
+     */
+    boolean splice(String name, int size, int index, int removeCount, Object[] inserted) {
+        if (bp instanceof Technology.ArrayChange) {
+            Technology.ArrayChange<Data> ac = (Technology.ArrayChange<Data>) bp;
+            Object[] arr = inserted.clone();
+            JSON.findAll(arr, this);
+            ac.splice(data, name, size, index, removeCount, arr);
+            return true;
+        }
+        return false;
+    }
+
+    public void valueHasMutated(String[] names, Object[] oldValues, Object[] newValues) {
+        if (bp instanceof Technology.BatchMutated) {
+            Technology.BatchMutated<Data> bm = (Technology.BatchMutated<Data>)bp;
+            Object[] ov = new Object[names.length];
+            Object[] nv = new Object[names.length];
+            for (int i = 0; i < names.length; i++) {
+                ov[i] = JSON.find(oldValues[i], this);
+                nv[i] = JSON.find(newValues[i], this);
+            }
+            bm.valueHasMutated(data, names, ov, nv);
+        } else {
+            for (int i = 0; i < names.length; i++) {
+                valueHasMutated(names[i], oldValues[i], newValues[i]);
+            }
+        }
+    }
+
     public void applyBindings(String id) {
         if (bp instanceof Technology.ApplyId) {
             Technology.ApplyId<Data> ai = (Technology.ApplyId<Data>) bp;
@@ -21,11 +21,17 @@ package org.netbeans.html.json.impl;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
 import net.java.html.BrwsrCtx;
 import org.netbeans.html.context.spi.Contexts;
 import org.netbeans.html.json.spi.FunctionBinding;
 import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.JSONReader;
 import org.netbeans.html.json.spi.PropertyBinding;
 import org.netbeans.html.json.spi.Proto;
 import org.netbeans.html.json.spi.Technology;
@@ -63,10 +69,46 @@ public final class JSON {
         }
     }
     public static void extract(BrwsrCtx c, Object value, String[] props, Object[] values) {
+        if (value instanceof JSONStream.Obj) {
+            ((JSONStream.Obj) value).extract(props, values);
+            return;
+        }
         Transfer t = findTransfer(c);
         t.extract(value, props, values);
     }
 
+    public static void extract(BrwsrCtx c, Object[] objs, String[] props, Object[][] values) {
+        Transfer t = findTransfer(c);
+        Object[] batch = null;
+        int[] at = null;
+        int cnt = 0;
+        for (int i = 0; i < objs.length; i++) {
+            if (objs[i] == null) {
+                continue;
+            }
+            values[i] = new Object[props.length];
+            if (!(t instanceof Transfer.BatchExtract) || objs[i] instanceof JSONStream.Obj) {
+                extract(c, objs[i], props, values[i]);
+                continue;
+            }
+            if (batch == null) {
+                batch = new Object[objs.length];
+                at = new int[objs.length];
+            }
+            batch[cnt] = objs[i];
+            at[cnt++] = i;
+        }
+        if (cnt == 0) {
+            return;
+        }
+        Object[] found = cnt == batch.length ? batch : Arrays.copyOf(batch, cnt);
+        Object[][] foundValues = new Object[cnt][];
+        for (int i = 0; i < cnt; i++) {
+            foundValues[i] = values[at[i]];
+        }
+        ((Transfer.BatchExtract) t).extract(found, props, foundValues);
+    }
+
     private static Object getProperty(BrwsrCtx c, Object obj, String prop) {
         if (prop == null) return obj;
 
@@ -88,26 +130,83 @@ public final class JSON {
         }
         if (value instanceof String) {
             String s = (String)value;
-            int len = s.length();
-            StringBuilder sb = new StringBuilder(len + 10);
-            sb.append('"');
-            for (int i = 0; i < len; i++) {
-                char ch = s.charAt(i);
-                switch (ch) {
-                    case '\"': sb.append("\\\""); break;
-                    case '\n': sb.append("\\n"); break;
-                    case '\r': sb.append("\\r"); break;
-                    case '\t': sb.append("\\t"); break;
-                    case '\\': sb.append("\\\\"); break;
-                    default: sb.append(ch);
-                }
+            StringBuilder sb = new StringBuilder(s.length() + 10);
+            try {
+                writeString(s, sb);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
             }
-            sb.append('"');
             return sb.toString();
         }
         return value.toString();
     }
 
+    /** Writes the same text as {@link #toJSON(java.lang.Object)} returns.
+     * Models and lists of models are written directly into the output,
+     * without creating intermediate strings. Other collections are
+     * written as JSON arrays as well - unlike {@link #toJSON(java.lang.Object)}
+     * which uses their <code>toString()</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public static void write(Object value, Appendable out) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            out.append(value.toString());
+            return;
+        }
+        if (value instanceof Enum) {
+            value = value.toString();
+        }
+        if (value instanceof Character) {
+            value = Character.toString((Character)value);
+        }
+        if (value instanceof String) {
+            writeString((String) value, out);
+            return;
+        }
+        if (value instanceof Collection) {
+            out.append('[');
+            String sep = "";
+            for (Object e : (Collection<?>) value) {
+                out.append(sep);
+                write(e, out);
+                sep = ",";
+            }
+            out.append(']');
+            return;
+        }
+        // an instance exists, so its model class has already registered its type
+        Proto.Type<Object> type = (Proto.Type<Object>) ModelTypes.MODELS.find(value.getClass())[0];
+        if (type != null) {
+            PropertyBindingAccessor.writeTo(type, value, out);
+            return;
+        }
+        out.append(value.toString());
+    }
+
+    private static void writeString(String s, Appendable out) throws IOException {
+        final int len = s.length();
+        out.append('"');
+        int from = 0;
+        for (int i = 0; i < len; i++) {
+            String escape;
+            switch (s.charAt(i)) {
+                case '\"': escape = "\\\""; break;
+                case '\n': escape = "\\n"; break;
+                case '\r': escape = "\\r"; break;
+                case '\t': escape = "\\t"; break;
+                case '\\': escape = "\\\\"; break;
+                default: continue;
+            }
+            out.append(s, from, i).append(escape);
+            from = i + 1;
+        }
+        out.append(s, from, len).append('"');
+    }
+
     public static String toString(BrwsrCtx c, Object obj, String prop) {
         obj = getProperty(c, obj, prop);
         return obj == null ? null : obj.toString();
@@ -270,6 +369,38 @@ public final class JSON {
         return b == null ? null : b.jsObj();
     }
 
+    /** Replaces elements of the array with their technology representation.
+     * Models handled by the same {@link Technology.BatchToJavaScript technology}
+     * are converted at once. Elements without any representation are kept.
+     */
+    static void findAll(Object[] arr, Bindings model) {
+        Bindings<?>[] bindings = null;
+        for (int i = 0; i < arr.length; i++) {
+            final Object object = arr[i];
+            if (object == null) {
+                continue;
+            }
+            final Proto proto = object instanceof Collection ? null : findProto(object);
+            if (proto == null) {
+                Object r = find(object, model);
+                if (r != null) {
+                    arr[i] = r;
+                }
+                continue;
+            }
+            final Bindings<?> b = PropertyBindingAccessor.getBindings(proto, true, null);
+            if (b != null) {
+                if (bindings == null) {
+                    bindings = new Bindings<?>[arr.length];
+                }
+                bindings[i] = b;
+            }
+        }
+        if (bindings != null) {
+            Bindings.jsObjs(bindings, arr);
+        }
+    }
+
     private static Proto findProto(Object object) {
         Proto.Type<?> type = JSON.findType(object.getClass());
         if (type == null) {
@@ -279,6 +410,29 @@ public final class JSON {
         return proto;
     }
 
+    /** Checks whether conversion of the object to its technology
+     * representation requires {@link #find(java.lang.Object, org.netbeans.html.json.impl.Bindings) finding}
+     * representation of a model.
+     */
+    public static boolean isModelOrList(Object object) {
+        if (object == null) {
+            return false;
+        }
+        if (object instanceof Collection) {
+            return true;
+        }
+        if (
+            object instanceof String ||
+            object instanceof Boolean ||
+            object instanceof Number ||
+            object instanceof Character ||
+            object instanceof Enum<?>
+        ) {
+            return false;
+        }
+        return findType(object.getClass()) != null;
+    }
+
     public static Object find(Object object) {
         return find(object, null);
     }
@@ -291,6 +445,14 @@ public final class JSON {
         proto.applyBindings(id);
     }
 
+    public static void batch(Object object, Runnable code) {
+        final Proto proto = findProto(object);
+        if (proto == null) {
+            throw new IllegalArgumentException("Not a model: " + object.getClass());
+        }
+        proto.batch(code);
+    }
+
     public static abstract class WS {
         private WS() {
         }
@@ -394,6 +556,9 @@ public final class JSON {
     public static <T> T readStream(BrwsrCtx c, Class<T> modelClazz, InputStream data, Collection<? super T> collectTo)
     throws IOException {
         Transfer tr = findTransfer(c);
+        if (tr == EmptyTech.EMPTY) {
+            return parseStream(c, modelClazz, data, collectTo);
+        }
         Object rawJSON = tr.toJSON((InputStream)data);
         if (rawJSON instanceof Object[]) {
             final Object[] arr = (Object[])rawJSON;
@@ -414,6 +579,58 @@ public final class JSON {
         }
         return res;
     }
+    /** Reads the stream in Java, without any technology. Models are
+     * {@link Proto.Type#parse parsed} by their generated codecs.
+     */
+    private static <T> T parseStream(BrwsrCtx c, Class<T> modelClazz, InputStream data, Collection<? super T> collectTo)
+    throws IOException {
+        JSONStream stream = new JSONStream(new InputStreamReader(data, "UTF-8"));
+        JSONReader reader = PropertyBindingAccessor.createReader(stream);
+        if (!stream.startArray()) {
+            T res = reader.read(c, modelClazz);
+            if (collectTo != null) {
+                collectTo.add(res);
+            }
+            return res;
+        }
+        boolean empty = true;
+        while (stream.hasNext()) {
+            T res = reader.read(c, modelClazz);
+            if (collectTo == null) {
+                return res;
+            }
+            collectTo.add(res);
+            empty = false;
+        }
+        if (empty && collectTo == null) {
+            throw new EOFException("Recieved an empty array");
+        }
+        return null;
+    }
+
+    public static <T> long readEach(
+        BrwsrCtx c, Class<T> modelClazz, InputStream data, Consumer<? super T> onEach
+    ) throws IOException {
+        JSONStream stream = new JSONStream(new InputStreamReader(data, "UTF-8"));
+        JSONReader reader = PropertyBindingAccessor.createReader(stream);
+        if (!stream.startArray()) {
+            T res = reader.read(c, modelClazz);
+            if (onEach != null) {
+                onEach.accept(res);
+            }
+            return 1;
+        }
+        long cnt = 0;
+        while (stream.hasNext()) {
+            T res = reader.read(c, modelClazz);
+            if (onEach != null) {
+                onEach.accept(res);
+            }
+            cnt++;
+        }
+        return cnt;
+    }
+
     public static <T> T read(BrwsrCtx c, Class<T> modelClazz, Object data) {
         if (data == null) {
             return null;
@@ -431,6 +648,42 @@ public final class JSON {
         }
         throw new NullPointerException();
     }
+    public static <T> T parse(BrwsrCtx c, Class<T> modelClazz, JSONReader r) throws IOException {
+        for (int i = 0; i < 2; i++) {
+            Proto.Type<?> from = ModelTypes.MODELS.find(modelClazz)[0];
+            if (from == null) {
+                initClass(modelClazz);
+            } else {
+                return modelClazz.cast(PropertyBindingAccessor.parseFrom(from, c, r));
+            }
+        }
+        return read(c, modelClazz, r.nextValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> List<T> readArray(BrwsrCtx c, Class<T> modelClazz, Object data) {
+        if (modelClazz != String.class) {
+            for (int i = 0; i < 2; i++) {
+                Proto.Type<?> from = ModelTypes.MODELS.find(modelClazz)[0];
+                if (from == null) {
+                    initClass(modelClazz);
+                } else {
+                    return (List<T>) from.readArray(c, data);
+                }
+            }
+        }
+        Object[] arr = asArray(data);
+        List<T> res = new ArrayList<>(arr.length);
+        for (Object e : arr) {
+            res.add(read(c, modelClazz, e));
+        }
+        return res;
+    }
+
+    public static Object[] asArray(Object data) {
+        return data instanceof Object[] ? (Object[]) data : data == null ? new Object[0] : new Object[] { data };
+    }
+
     static void initClass(Class<?> modelClazz) {
         try {
             // try to resolve the class
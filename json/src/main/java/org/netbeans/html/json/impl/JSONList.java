@@ -18,11 +18,13 @@
  */
 package org.netbeans.html.json.impl;
 
+import java.io.IOException;
 import java.lang.reflect.Array;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import org.netbeans.html.json.spi.Proto;
+import org.netbeans.html.json.spi.Technology;
 
 /**
  *
@@ -33,6 +35,7 @@ public final class JSONList<T> extends SimpleList<T> {
     private final String name;
     private final String[] deps;
     private final int index;
+    private volatile int modCount;
 
     public JSONList(Proto proto, String name, int changeIndex, String... deps) {
         this.proto = proto;
@@ -65,24 +68,29 @@ public final class JSONList<T> extends SimpleList<T> {
     @Override
     public boolean add(T e) {
         prepareChange();
+        final int at = size();
         boolean ret = super.add(e);
-        notifyChange();
+        notifySplice(at, at, 0, e);
         return ret;
     }
 
     @Override
     public boolean addAll(Collection<? extends T> c) {
         prepareChange();
+        final int at = size();
+        Object[] added = c.toArray();
         boolean ret = super.addAll(c);
-        notifyChange();
+        notifySplice(at, at, 0, added);
         return ret;
     }
 
     @Override
     public boolean addAll(int index, Collection<? extends T> c) {
         prepareChange();
+        final int before = size();
+        Object[] added = c.toArray();
         boolean ret = super.addAll(index, c);
-        notifyChange();
+        notifySplice(before, index, 0, added);
         return ret;
     }
 
@@ -96,8 +104,14 @@ public final class JSONList<T> extends SimpleList<T> {
     @Override
     public boolean remove(Object o) {
         prepareChange();
+        final int before = size();
+        final int at = indexOf(o);
         boolean ret = super.remove(o);
-        notifyChange();
+        if (ret) {
+            notifySplice(before, at, 1);
+        } else {
+            notifyChange();
+        }
         return ret;
     }
 
@@ -133,29 +147,32 @@ public final class JSONList<T> extends SimpleList<T> {
     public T set(int index, T element) {
         prepareChange();
         T ret = super.set(index, element);
-        notifyChange();
+        notifySplice(size(), index, 1, element);
         return ret;
     }
 
     @Override
     public void add(int index, T element) {
         prepareChange();
+        final int before = size();
         super.add(index, element);
-        notifyChange();
+        notifySplice(before, index, 0, element);
     }
 
     @Override
     public T remove(int index) {
         prepareChange();
+        final int before = size();
         T ret = super.remove(index);
-        notifyChange();
+        notifySplice(before, index, 1);
         return ret;
     }
 
     @Override
     void clearImpl(int from, int to) {
+        final int before = size();
         super.clearImpl(from, to);
-        notifyChange();
+        notifySplice(before, from, to - from);
     }
 
     @Override
@@ -164,16 +181,12 @@ public final class JSONList<T> extends SimpleList<T> {
         if (!it.hasNext()) {
             return "[]";
         }
-        String sep = "";
         StringBuilder sb = new StringBuilder();
-        sb.append('[');
-        while (it.hasNext()) {
-            T t = it.next();
-            sb.append(sep);
-            sb.append(JSON.toJSON(t));
-            sep = ",";
+        try {
+            JSON.write(this, sb);
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex);
         }
-        sb.append(']');
         return sb.toString();
     }
 
@@ -188,23 +201,55 @@ public final class JSONList<T> extends SimpleList<T> {
     }
 
     private void notifyChange() {
+        modCount++;
         proto.getContext().execute(new Runnable() {
             @Override
             public void run() {
                 proto.valueHasMutated(name);
+                notifyDependants(PropertyBindingAccessor.getBindings(proto, false, null));
+            }
+        });
+    }
+
+    /** Notifies about a change of a range of the list. Technologies
+     * supporting {@link Technology.ArrayChange} get just the changed
+     * elements, others are notified about change of the whole list.
+     *
+     * @param size size of the list before the change
+     * @param at index where the change happened
+     * @param removed number of removed elements
+     * @param inserted elements inserted at index <code>at</code>
+     */
+    private void notifySplice(final int size, final int at, final int removed, final Object... inserted) {
+        final int expectedModCount = ++modCount;
+        proto.getContext().execute(new Runnable() {
+            @Override
+            public void run() {
                 Bindings m = PropertyBindingAccessor.getBindings(proto, false, null);
-                if (m != null) {
-                    for (String dependant : deps) {
-                        m.valueHasMutated(dependant, null, null);
-                    }
-                    if (index >= 0) {
-                        PropertyBindingAccessor.notifyProtoChange(proto, index);
-                    }
+                if (
+                    m == null || expectedModCount != modCount ||
+                    !m.splice(name, size, at, removed, inserted)
+                ) {
+                    proto.valueHasMutated(name);
+                } else {
+                    PropertyBindingAccessor.notifyProtoDependants(proto, name);
                 }
+                notifyDependants(m);
             }
         });
     }
 
+    private void notifyDependants(Bindings m) {
+        if (m != null) {
+            for (String dependant : deps) {
+                m.valueHasMutated(dependant, null, null);
+            }
+            if (index >= 0) {
+                PropertyBindingAccessor.notifyProtoChange(proto, index);
+            }
+        }
+    }
+
     @Override
     public JSONList clone() {
         throw new UnsupportedOperationException();
@@ -212,12 +257,7 @@ public final class JSONList<T> extends SimpleList<T> {
 
     static final Object koData(Collection<?> c, Bindings m) {
         Object[] arr = c.toArray(new Object[c.size()]);
-        for (int i = 0; i < arr.length; i++) {
-            Object r = JSON.find(arr[i], m);
-            if (r != null) {
-                arr[i] = r;
-            }
-        }
+        JSON.findAll(arr, m);
         return m.wrapArray(arr);
     }
 
@@ -0,0 +1,660 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Incremental JSON reader. Either reads whole values or walks the
+ * elements of a top level array one by one, so only a single element
+ * needs to be kept in memory. Objects are represented as {@link Obj},
+ * arrays as {@code Object[]} and numbers as {@link Integer}, {@link Long}
+ * or {@link Double} - e.g. raw values {@link JSON#extract} and
+ * {@link org.netbeans.html.json.spi.Proto.Type#replaceValue} understand.
+ * <p>
+ * Generated codecs use the token level methods behind
+ * {@link org.netbeans.html.json.spi.JSONReader} instead - they walk
+ * objects and arrays and convert primitive values without boxing.
+ */
+public final class JSONStream {
+    private static final int OBJECT = 1;
+    private static final int ARRAY = 2;
+    private static final int SINGLE = 3;
+    private static final int FIRST = 4;
+
+    private final Reader reader;
+    private final char[] buf = new char[8192];
+    private int pos;
+    private int len;
+    private long offset;
+    private boolean eof;
+    private int elements = -1;
+    private int[] stack = new int[16];
+    private int depth;
+    private final StringBuilder num = new StringBuilder();
+    private long longValue;
+    private double doubleValue;
+
+    public JSONStream(Reader reader) {
+        this.reader = reader;
+    }
+
+    /** Checks whether the input starts with an array. If so, the array
+     * is opened and its elements can be obtained by {@link #hasNext()}
+     * and {@link #value()}.
+     *
+     * @return {@code true} if the input is an array
+     * @throws IOException if reading fails
+     */
+    boolean startArray() throws IOException {
+        int ch = skipSpace();
+        if (ch == '[') {
+            elements = 0;
+            return true;
+        }
+        if (ch != -1) {
+            unread();
+        }
+        return false;
+    }
+
+    /** Moves to next element of the array opened by {@link #startArray()}.
+     *
+     * @return {@code true} if there is next element to read by {@link #value()}
+     * @throws IOException if the input isn't valid JSON array
+     */
+    boolean hasNext() throws IOException {
+        if (elements == -1) {
+            return false;
+        }
+        int ch = skipSpace();
+        if (ch == ']') {
+            elements = -1;
+            return false;
+        }
+        if (ch == -1) {
+            throw new EOFException("Unterminated array");
+        }
+        if (elements++ > 0) {
+            if (ch != ',') {
+                throw error("Expecting ',' or ']'");
+            }
+        } else {
+            unread();
+        }
+        return true;
+    }
+
+    public Object value() throws IOException {
+        int ch = skipSpace();
+        switch (ch) {
+            case '{': return object();
+            case '[': return array();
+            case '"': return string();
+            case 't': literal("rue"); return Boolean.TRUE;
+            case 'f': literal("alse"); return Boolean.FALSE;
+            case 'n': literal("ull"); return null;
+            default:
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    return number(ch);
+                }
+                throw error("Unexpected character '" + (char) ch + "'");
+        }
+    }
+
+    //
+    // token level access
+    //
+
+    /** Checks for <code>null</code> and consumes it.
+     * @return {@code true} if the next value was <code>null</code>
+     */
+    public boolean isNull() throws IOException {
+        int ch = skipSpace();
+        if (ch == 'n') {
+            literal("ull");
+            return true;
+        }
+        unreadIfAny(ch);
+        return false;
+    }
+
+    /** Checks whether the next value is an object without consuming it.
+     * @return {@code true} if the next value starts with <code>{</code>
+     */
+    public boolean isObject() throws IOException {
+        int ch = skipSpace();
+        unreadIfAny(ch);
+        return ch == '{';
+    }
+
+    public void beginObject() throws IOException {
+        if (skipSpace() != '{') {
+            throw error("Expecting '{'");
+        }
+        push(OBJECT | FIRST);
+    }
+
+    /** Name of the next property in the current object.
+     * @return the name or <code>null</code> when the object is over
+     */
+    public String nextName() throws IOException {
+        int ch = skipSpace();
+        if (ch == '}') {
+            depth--;
+            return null;
+        }
+        if ((stack[depth - 1] & FIRST) == 0) {
+            if (ch != ',') {
+                throw error("Expecting ',' or '}'");
+            }
+            ch = skipSpace();
+        }
+        stack[depth - 1] = OBJECT;
+        if (ch != '"') {
+            throw error("Expecting property name");
+        }
+        String name = string();
+        if (skipSpace() != ':') {
+            throw error("Expecting ':'");
+        }
+        return name;
+    }
+
+    /** Starts reading an array. A single value is treated as an array
+     * of one element.
+     * @return {@code false} if the value is <code>null</code>
+     */
+    public boolean beginArray() throws IOException {
+        int ch = skipSpace();
+        if (ch == '[') {
+            push(ARRAY | FIRST);
+            return true;
+        }
+        if (ch == 'n') {
+            literal("ull");
+            return false;
+        }
+        unreadIfAny(ch);
+        push(SINGLE | FIRST);
+        return true;
+    }
+
+    /** Moves to next element of the array opened by {@link #beginArray()}.
+     * @return {@code true} if there is another element
+     */
+    public boolean hasNextElement() throws IOException {
+        final int state = stack[depth - 1];
+        if ((state & ~FIRST) == SINGLE) {
+            if ((state & FIRST) != 0) {
+                stack[depth - 1] = SINGLE;
+                return true;
+            }
+            depth--;
+            return false;
+        }
+        int ch = skipSpace();
+        if (ch == ']') {
+            depth--;
+            return false;
+        }
+        if ((state & FIRST) == 0) {
+            if (ch != ',') {
+                throw error("Expecting ',' or ']'");
+            }
+        } else {
+            unreadIfAny(ch);
+        }
+        stack[depth - 1] = ARRAY;
+        return true;
+    }
+
+    public String nextString() throws IOException {
+        int ch = skipSpace();
+        if (ch == '"') {
+            return string();
+        }
+        unreadIfAny(ch);
+        Object value = value();
+        return value == null ? null : value.toString();
+    }
+
+    public long nextLong() throws IOException {
+        return nextNumber() ? longValue : (long) doubleValue;
+    }
+
+    public int nextInt() throws IOException {
+        return nextNumber() ? (int) longValue : (int) doubleValue;
+    }
+
+    public double nextDouble() throws IOException {
+        return nextNumber() ? longValue : doubleValue;
+    }
+
+    public boolean nextBoolean() throws IOException {
+        int ch = skipSpace();
+        switch (ch) {
+            case 't': literal("rue"); return true;
+            case 'f': literal("alse"); return false;
+            case '"': return Boolean.parseBoolean(string());
+            default:
+                unreadIfAny(ch);
+                if (ch == '-' || (ch >= '0' && ch <= '9')) {
+                    return nextDouble() != 0.0;
+                }
+                skipValue();
+                return false;
+        }
+    }
+
+    public char nextChar() throws IOException {
+        int ch = skipSpace();
+        if (ch == '"') {
+            String s = string();
+            return s.isEmpty() ? (char) 0 : s.charAt(0);
+        }
+        unreadIfAny(ch);
+        return Character.toChars(nextInt())[0];
+    }
+
+    /** Skips the next value.
+     */
+    public void skipValue() throws IOException {
+        int ch = skipSpace();
+        switch (ch) {
+            case '"':
+                for (;;) {
+                    int c = read();
+                    if (c == '"') {
+                        return;
+                    }
+                    if (c == '\\') {
+                        read();
+                    } else if (c == -1) {
+                        throw error("Unterminated string");
+                    }
+                }
+            case '{':
+            case '[':
+                int level = 1;
+                while (level > 0) {
+                    int c = read();
+                    if (c == '"') {
+                        unread();
+                        skipValue();
+                    } else if (c == '{' || c == '[') {
+                        level++;
+                    } else if (c == '}' || c == ']') {
+                        level--;
+                    } else if (c == -1) {
+                        throw error("Unterminated value");
+                    }
+                }
+                return;
+            default:
+                unreadIfAny(ch);
+                value();
+        }
+    }
+
+    /** Reads the next number into {@link #longValue} or {@link #doubleValue}.
+     * Strings, booleans and <code>null</code> are converted the way
+     * {@link JSON#numberValue(java.lang.Object)} does.
+     *
+     * @return {@code true} if the number is integer stored in {@link #longValue}
+     */
+    private boolean nextNumber() throws IOException {
+        int ch = skipSpace();
+        if (ch == '-' || (ch >= '0' && ch <= '9')) {
+            if (scanNumber(ch) && num.length() < 19) {
+                final boolean negative = ch == '-';
+                int i = negative ? 1 : 0;
+                long value = 0;
+                boolean digits = i < num.length();
+                for (; i < num.length(); i++) {
+                    char digit = num.charAt(i);
+                    if (digit < '0' || digit > '9') {
+                        digits = false;
+                        break;
+                    }
+                    value = value * 10 + (digit - '0');
+                }
+                if (digits) {
+                    longValue = negative ? -value : value;
+                    return true;
+                }
+            }
+            try {
+                doubleValue = Double.parseDouble(num.toString());
+            } catch (NumberFormatException ex) {
+                throw error("Invalid number " + num);
+            }
+            return false;
+        }
+        switch (ch) {
+            case 'n': literal("ull"); longValue = 0; return true;
+            case 't': literal("rue"); longValue = 1; return true;
+            case 'f': literal("alse"); longValue = 0; return true;
+            case '"':
+                try {
+                    doubleValue = Double.parseDouble(string());
+                } catch (NumberFormatException ex) {
+                    doubleValue = Double.NaN;
+                }
+                return false;
+            default:
+                unreadIfAny(ch);
+                skipValue();
+                doubleValue = Double.NaN;
+                return false;
+        }
+    }
+
+    private void push(int state) {
+        if (depth == stack.length) {
+            stack = Arrays.copyOf(stack, depth * 2);
+        }
+        stack[depth++] = state;
+    }
+
+    private void unreadIfAny(int ch) {
+        if (ch != -1) {
+            unread();
+        }
+    }
+
+    private Obj object() throws IOException {
+        Obj obj = new Obj();
+        int ch = skipSpace();
+        if (ch == '}') {
+            return obj;
+        }
+        for (;;) {
+            if (ch != '"') {
+                throw error("Expecting property name");
+            }
+            String name = string();
+            if (skipSpace() != ':') {
+                throw error("Expecting ':'");
+            }
+            obj.put(name, value());
+            ch = skipSpace();
+            if (ch == '}') {
+                return obj;
+            }
+            if (ch != ',') {
+                throw error("Expecting ',' or '}'");
+            }
+            ch = skipSpace();
+        }
+    }
+
+    private Object[] array() throws IOException {
+        int ch = skipSpace();
+        if (ch == ']') {
+            return new Object[0];
+        }
+        if (ch == -1) {
+            throw new EOFException("Unterminated array");
+        }
+        unread();
+        List<Object> arr = new ArrayList<Object>();
+        for (;;) {
+            arr.add(value());
+            ch = skipSpace();
+            if (ch == ']') {
+                return arr.toArray();
+            }
+            if (ch != ',') {
+                throw error("Expecting ',' or ']'");
+            }
+        }
+    }
+
+    private String string() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (;;) {
+            int start = pos;
+            while (pos < len) {
+                char ch = buf[pos];
+                if (ch == '"' || ch == '\\') {
+                    break;
+                }
+                pos++;
+            }
+            sb.append(buf, start, pos - start);
+            int ch = read();
+            if (ch == '"') {
+                return sb.toString();
+            }
+            if (ch == '\\') {
+                sb.append(escape());
+            } else if (ch == -1) {
+                throw error("Unterminated string");
+            } else {
+                sb.append((char) ch);
+            }
+        }
+    }
+
+    private char escape() throws IOException {
+        int ch = read();
+        switch (ch) {
+            case '"': return '"';
+            case '\\': return '\\';
+            case '/': return '/';
+            case 'b': return '\b';
+            case 'f': return '\f';
+            case 'n': return '\n';
+            case 'r': return '\r';
+            case 't': return '\t';
+            case 'u':
+                int value = 0;
+                for (int i = 0; i < 4; i++) {
+                    int digit = Character.digit(read(), 16);
+                    if (digit == -1) {
+                        throw error("Invalid unicode escape");
+                    }
+                    value = value * 16 + digit;
+                }
+                return (char) value;
+            default: throw error("Invalid escape '\\" + (char) ch + "'");
+        }
+    }
+
+    private Number number(int first) throws IOException {
+        boolean integer = scanNumber(first);
+        String text = num.toString();
+        try {
+            if (integer && num.length() < 19) {
+                long value = Long.parseLong(text);
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            }
+            return Double.valueOf(text);
+        } catch (NumberFormatException ex) {
+            throw error("Invalid number " + text);
+        }
+    }
+
+    /** Reads characters of a number into {@link #num}.
+     * @return {@code true} if the number is an integer
+     */
+    private boolean scanNumber(int first) throws IOException {
+        num.setLength(0);
+        num.append((char) first);
+        boolean integer = true;
+        for (;;) {
+            int ch = read();
+            if ((ch >= '0' && ch <= '9') || ch == '-' || ch == '+') {
+                num.append((char) ch);
+            } else if (ch == '.' || ch == 'e' || ch == 'E') {
+                num.append((char) ch);
+                integer = false;
+            } else {
+                unreadIfAny(ch);
+                if (!isNumber(num)) {
+                    throw error("Invalid number " + num);
+                }
+                return integer;
+            }
+        }
+    }
+
+    /** Checks the text follows the JSON number grammar:
+     * <code>-?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?</code>.
+     */
+    static boolean isNumber(CharSequence text) {
+        int i = 0;
+        final int len = text.length();
+        if (i < len && text.charAt(i) == '-') {
+            i++;
+        }
+        if (i < len && text.charAt(i) == '0') {
+            i++;
+        } else {
+            int start = i;
+            i = digits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < len && text.charAt(i) == '.') {
+            int start = ++i;
+            i = digits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        if (i < len && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < len && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            int start = i;
+            i = digits(text, i);
+            if (i == start) {
+                return false;
+            }
+        }
+        return i == len;
+    }
+
+    private static int digits(CharSequence text, int i) {
+        while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+            i++;
+        }
+        return i;
+    }
+
+    private void literal(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("Unexpected literal");
+            }
+        }
+    }
+
+    private int skipSpace() throws IOException {
+        for (;;) {
+            int ch = read();
+            if (ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+                return ch;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pos == len) {
+            offset += len;
+            len = reader.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = 0;
+                eof = true;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+
+    private void unread() {
+        pos--;
+    }
+
+    private IOException error(String msg) {
+        if (eof) {
+            return new EOFException("Unexpected end of JSON input");
+        }
+        return new IOException(msg + " at position " + (offset + pos - 1));
+    }
+
+    /** Parsed JSON object. Its {@link #toString()} is the JSON text.
+     */
+    static final class Obj extends LinkedHashMap<String, Object> {
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            write(sb, this);
+            return sb.toString();
+        }
+
+        void extract(String[] props, Object[] values) {
+            for (int i = 0; i < props.length; i++) {
+                values[i] = props[i] == null ? this : get(props[i]);
+            }
+        }
+
+        private static void write(StringBuilder sb, Object value) {
+            if (value instanceof Map) {
+                sb.append('{');
+                String sep = "";
+                for (Map.Entry<?, ?> e : ((Map<?, ?>) value).entrySet()) {
+                    sb.append(sep);
+                    write(sb, e.getKey().toString());
+                    sb.append(':');
+                    write(sb, e.getValue());
+                    sep = ",";
+                }
+                sb.append('}');
+            } else if (value instanceof Object[]) {
+                sb.append('[');
+                String sep = "";
+                for (Object e : (Object[]) value) {
+                    sb.append(sep);
+                    write(sb, e);
+                    sep = ",";
+                }
+                sb.append(']');
+            } else if (value instanceof String) {
+                sb.append(JSON.toJSON(value));
+            } else {
+                sb.append(value);
+            }
+        }
+    }
+}
@@ -46,6 +46,7 @@ import javax.annotation.processing.ProcessingEnvironment;
 import javax.annotation.processing.Processor;
 import javax.annotation.processing.RoundEnvironment;
 import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.annotation.processing.SupportedOptions;
 import javax.annotation.processing.SupportedSourceVersion;
 import javax.lang.model.SourceVersion;
 import javax.lang.model.element.AnnotationMirror;
@@ -91,7 +92,12 @@ import org.openide.util.lookup.ServiceProvider;
     "net.java.html.json.ComputedProperty",
     "net.java.html.json.Property"
 })
+@SupportedOptions(ModelProcessor.CODECS)
 public final class ModelProcessor extends AbstractProcessor {
+    /** Processor option to turn off generation of codecs parsing JSON
+     * in plain Java. Set to <code>false</code> to make generated classes smaller.
+     */
+    static final String CODECS = "org.netbeans.html.json.codecs"; // NOI18N
     private static final Logger LOG = Logger.getLogger(ModelProcessor.class.getName());
     private final Map<Element,String> models = new WeakHashMap<Element,String>();
     private final Map<String,List<String>> packages = new HashMap<String,List<String>>();
@@ -444,10 +450,26 @@ public final class ModelProcessor extends AbstractProcessor {
                 w.append("      throw new UnsupportedOperationException();\n");
                 w.append("    }\n");
                 w.append(onReceiveType);
-                w.append("    @Override public " + className + " read(net.java.html.BrwsrCtx c, Object json) { return new " + className + "(c, json); }\n");
+                w.append("    @Override public " + className + " read(net.java.html.BrwsrCtx c, Object json) { return new " + className + "(c, json, null); }\n");
+                w.append("    @Override protected " + className + " read(net.java.html.BrwsrCtx c, Object json, Object[] values) { return new " + className + "(c, json, values); }\n");
+                w.append("    @Override protected String[] extractedProperties() {\n");
+                w.append("      return new String[] {\n");
+                for (int i = 0; i < propsGetSet.size(); i++) {
+                    Prprt p = findPrprt(props, propsGetSet.get(i).name);
+                    if (p == null) {
+                        continue;
+                    }
+                    w.append("        \"").append(propsGetSet.get(i).name).append("\",\n");
+                }
+                w.append("      };\n");
+                w.append("    }\n");
                 w.append("    @Override public " + className + " cloneTo(" + className + " o, net.java.html.BrwsrCtx c) { return o.clone(c); }\n");
+                w.append("    @Override protected void write(" + className + " model, java.lang.Appendable out) throws java.io.IOException { model.writeJSON(out); }\n");
+                if (!"false".equals(processingEnv.getOptions().get(CODECS))) {
+                    writeParse(className, props, w);
+                }
                 w.append("  }\n");
-                w.append("  private ").append(className).append("(net.java.html.BrwsrCtx c, Object json) {\n");
+                w.append("  private ").append(className).append("(net.java.html.BrwsrCtx c, Object json, Object[] ret) {\n");
                 w.append("    this(c);\n");
                 int values = 0;
                 for (int i = 0; i < propsGetSet.size(); i++) {
@@ -457,16 +479,18 @@ public final class ModelProcessor extends AbstractProcessor {
                     }
                     values++;
                 }
-                w.append("    Object[] ret = new Object[" + values + "];\n");
-                w.append("    proto.extract(json, new String[] {\n");
+                w.append("    if (ret == null) {\n");
+                w.append("      ret = new Object[" + values + "];\n");
+                w.append("      proto.extract(json, new String[] {\n");
                 for (int i = 0; i < propsGetSet.size(); i++) {
                     Prprt p = findPrprt(props, propsGetSet.get(i).name);
                     if (p == null) {
                         continue;
                     }
-                    w.append("      \"").append(propsGetSet.get(i).name).append("\",\n");
+                    w.append("        \"").append(propsGetSet.get(i).name).append("\",\n");
                 }
-                w.append("    }, ret);\n");
+                w.append("      }, ret);\n");
+                w.append("    }\n");
                 for (int i = 0, cnt = 0, prop = 0; i < propsGetSet.size(); i++) {
                     final String pn = propsGetSet.get(i).name;
                     Prprt p = findPrprt(props, pn);
@@ -477,12 +501,12 @@ public final class ModelProcessor extends AbstractProcessor {
                     boolean[] isEnum = { false };
                     boolean isPrimitive[] = { false };
                     String type = checkType(props[prop++], isModel, isEnum, isPrimitive);
-                    if (p.array()) {
+                    if (p.array() && isModel[0]) {
+                        w.append("    this.prop_").append(pn).append(".addAll(proto.readArray");
+                        w.append("(" + type + ".class, ret[" + cnt + "]));\n");
+                    } else if (p.array()) {
                         w.append("    for (Object e : useAsArray(ret[" + cnt + "])) {\n");
-                        if (isModel[0]) {
-                            w.append("      this.prop_").append(pn).append(".add(proto.read");
-                            w.append("(" + type + ".class, e));\n");
-                        } else if (isEnum[0]) {
+                        if (isEnum[0]) {
                             w.append("        this.prop_").append(pn);
                             w.append(".add(e == null ? null : ");
                             w.append(type).append(".valueOf(TYPE.stringValue(e)));\n");
@@ -707,7 +731,11 @@ public final class ModelProcessor extends AbstractProcessor {
                     Collection<String[]> dependants = deps.get(p.name());
                     if (dependants != null) {
                         for (String[] pair : dependants) {
-                            w.write("    proto.valueHasMutated(\"" + pair[0] + "\", null, " + pair[1] + "());\n");
+                            if (pair[1] == null) {
+                                w.write("    proto.valueHasMutated(\"" + pair[0] + "\");\n");
+                            } else {
+                                w.write("    proto.valueHasMutated(\"" + pair[0] + "\", null, " + pair[1] + "());\n");
+                            }
                         }
                     }
                 }
@@ -825,11 +853,21 @@ public final class ModelProcessor extends AbstractProcessor {
 
             String[] gs = toGetSet(sn, tn, array);
 
-            w.write("  public " + tn);
-            if (array) {
-                w.write("<" + toCheck + ">");
+            final boolean memoize = cp.memoize();
+            final boolean lazy = cp.lazy();
+            final int index = props.size();
+            final String rtn = array ? tn + "<" + toCheck + ">" : tn;
+            if (memoize) {
+                w.write("  private " + rtn + " memo_" + sn + ";\n");
             }
+            w.write("  public " + rtn);
             w.write(" " + gs[0] + "() {\n");
+            if (memoize) {
+                w.write("    proto.accessProperty(\"" + sn + "\");\n");
+                w.write("    if (proto.isMemoized(" + index + ")) {\n");
+                w.write("      return memo_" + sn + ";\n");
+                w.write("    }\n");
+            }
             int arg = 0;
             boolean deep = false;
 
@@ -867,7 +905,7 @@ public final class ModelProcessor extends AbstractProcessor {
                         depends = new LinkedHashSet<String[]>();
                         deps.put(dn, depends);
                     }
-                    depends.add(new String[] { sn, gs[0] });
+                    depends.add(new String[] { sn, memoize || lazy ? null : gs[0] });
                 }
             } else {
                 VariableElement firstProp = methodParameters.get(0);
@@ -890,12 +928,17 @@ public final class ModelProcessor extends AbstractProcessor {
             if (tp != null) {
                 deep = tp.deep();
             }
-            if (deep) {
+            if (deep || memoize) {
                 w.write("      proto.acquireLock(\"" + sn + "\");\n");
             } else {
                 w.write("      proto.acquireLock();\n");
             }
-            w.write("      return " + fqn(ee.getEnclosingElement().asType(), ee) + '.' + e.getSimpleName() + "(");
+            if (memoize) {
+                w.write("      memo_" + sn + " = ");
+            } else {
+                w.write("      return ");
+            }
+            w.write(fqn(ee.getEnclosingElement().asType(), ee) + '.' + e.getSimpleName() + "(");
             String sep = "";
             for (int i = 1; i <= arg; i++) {
                 w.write(sep);
@@ -903,6 +946,10 @@ public final class ModelProcessor extends AbstractProcessor {
                 sep = ", ";
             }
             w.write(");\n");
+            if (memoize) {
+                w.write("      proto.memoize(" + index + ");\n");
+                w.write("      return memo_" + sn + ";\n");
+            }
             w.write("    } finally {\n");
             w.write("      proto.releaseLock();\n");
             w.write("    }\n");
@@ -1779,12 +1826,19 @@ public final class ModelProcessor extends AbstractProcessor {
     private void writeToString(Prprt[] props, Writer w) throws IOException {
         w.write("  public String toString() {\n");
         w.write("    StringBuilder sb = new StringBuilder();\n");
+        w.write("    try {\n");
+        w.write("      writeJSON(sb);\n");
+        w.write("    } catch (java.io.IOException ex) {\n");
+        w.write("      throw new IllegalStateException(ex);\n");
+        w.write("    }\n");
+        w.write("    return sb.toString();\n");
+        w.write("  }\n");
+        w.write("  private void writeJSON(java.lang.Appendable sb) throws java.io.IOException {\n");
         w.write("    sb.append('{');\n");
         String sep = "";
         for (Prprt p : props) {
             w.write(sep);
-            w.append("    sb.append('\"').append(\"" + p.name() + "\")");
-                w.append(".append('\"').append(\":\");\n");
+            w.append("    sb.append(\"\\\"" + p.name() + "\\\":\");\n");
             String tn = typeName(p);
             String[] gs = toGetSet(p.name(), tn, p.array());
             boolean isModel[] = { false };
@@ -1792,18 +1846,105 @@ public final class ModelProcessor extends AbstractProcessor {
             boolean isPrimitive[] = { false };
             checkType(p, isModel, isEnum, isPrimitive);
             if (isModel[0]) {
-                w.append("    sb.append(TYPE.toJSON(thisToNull(this.prop_");
-                w.append(p.name()).append(")));\n");
+                w.append("    TYPE.writeJSON(thisToNull(this.prop_");
+                w.append(p.name()).append("), sb);\n");
             } else {
-                w.append("    sb.append(TYPE.toJSON(");
-                w.append(gs[0]).append("()));\n");
+                w.append("    TYPE.writeJSON(");
+                w.append(gs[0]).append("(), sb);\n");
             }
             sep =    "    sb.append(',');\n";
         }
         w.write("    sb.append('}');\n");
-        w.write("    return sb.toString();\n");
         w.write("  }\n");
     }
+    private void writeParse(String className, Prprt[] props, Writer w) throws IOException {
+        w.write("    @Override protected " + className + " parse(net.java.html.BrwsrCtx c, org.netbeans.html.json.spi.JSONReader r) throws java.io.IOException {\n");
+        w.write("      " + className + " m = new " + className + "(c);\n");
+        w.write("      r.beginObject();\n");
+        w.write("      for (;;) {\n");
+        w.write("        String n = r.nextName();\n");
+        w.write("        if (n == null) return m;\n");
+        final boolean useSwitch = processingEnv.getSourceVersion().compareTo(SourceVersion.RELEASE_7) >= 0;
+        if (useSwitch) {
+            w.write("        switch (n) {\n");
+        }
+        String sep = "        ";
+        for (Prprt p : props) {
+            boolean[] isModel = { false };
+            boolean[] isEnum = { false };
+            boolean[] isPrimitive = { false };
+            String type = checkType(p, isModel, isEnum, isPrimitive);
+            String value;
+            if (isPrimitive[0]) {
+                if (type.equals("short") || type.equals("byte")) {
+                    value = "(" + type + ") r.nextInt()";
+                } else if (type.equals("float")) {
+                    value = "(float) r.nextDouble()";
+                } else {
+                    value = "r.next" + Character.toUpperCase(type.charAt(0)) + type.substring(1) + "()";
+                }
+            } else if (isModel[0]) {
+                value = "r.read(c, " + type + ".class)";
+            } else if (isEnum[0]) {
+                value = null;
+            } else if (type.equals("java.lang.String")) {
+                value = "r.nextString()";
+            } else {
+                value = "(" + type + ") r.nextValue()";
+            }
+            String indent;
+            if (useSwitch) {
+                w.write("          case \"" + p.name() + "\": {\n");
+                indent = "            ";
+            } else {
+                w.write(sep + "if (\"" + p.name() + "\".equals(n)) {\n");
+                sep = "        } else ";
+                indent = "          ";
+            }
+            if (p.array()) {
+                final String tn = typeName(p);
+                w.write(indent + "if (r.beginArray()) {\n");
+                w.write(indent + "  java.util.List<" + tn + "> l = new java.util.ArrayList<" + tn + ">();\n");
+                w.write(indent + "  while (r.hasNext()) {\n");
+                if (value == null) {
+                    w.write(indent + "    String s = r.nextString();\n");
+                    w.write(indent + "    l.add(s == null ? null : " + type + ".valueOf(s));\n");
+                } else {
+                    w.write(indent + "    l.add(" + value + ");\n");
+                }
+                w.write(indent + "  }\n");
+                w.write(indent + "  m.prop_" + p.name() + ".addAll(l);\n");
+                w.write(indent + "}\n");
+            } else if (value == null) {
+                w.write(indent + "String s = r.nextString();\n");
+                w.write(indent + "try {\n");
+                w.write(indent + "  m.prop_" + p.name() + " = s == null ? null : " + type + ".valueOf(s);\n");
+                w.write(indent + "} catch (IllegalArgumentException ex) {\n");
+                w.write(indent + "  ex.printStackTrace();\n");
+                w.write(indent + "}\n");
+            } else {
+                w.write(indent + "m.prop_" + p.name() + " = " + value + ";\n");
+            }
+            if (useSwitch) {
+                w.write(indent + "break;\n");
+                w.write("          }\n");
+            }
+        }
+        if (useSwitch) {
+            w.write("          default:\n");
+            w.write("            r.skipValue();\n");
+            w.write("        }\n");
+        } else if (props.length > 0) {
+            w.write("        } else {\n");
+            w.write("          r.skipValue();\n");
+            w.write("        }\n");
+        } else {
+            w.write("        r.skipValue();\n");
+        }
+        w.write("      }\n");
+        w.write("    }\n");
+    }
+
     private void writeClone(String className, Prprt[] props, Writer w) throws IOException {
         w.write("  public " + className + " clone() {\n");
         w.write("    return clone(proto.getContext());\n");
@@ -18,8 +18,10 @@
  */
 package org.netbeans.html.json.impl;
 
+import java.io.IOException;
 import net.java.html.BrwsrCtx;
 import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.JSONReader;
 import org.netbeans.html.json.spi.PropertyBinding;
 import org.netbeans.html.json.spi.Proto;
 
@@ -49,9 +51,13 @@ public abstract class PropertyBindingAccessor {
 
     protected abstract Bindings bindings(Proto proto, boolean initialize, Object copyFrom);
     protected abstract void notifyChange(Proto proto, int propIndex);
+    protected abstract void notifyDependants(Proto proto, String propName);
     protected abstract Proto findProto(Proto.Type<?> type, Object object);
     protected abstract <Model> Model cloneTo(Proto.Type<Model> type, Model model, BrwsrCtx c);
     protected abstract Object read(Proto.Type<?> from, BrwsrCtx c, Object data);
+    protected abstract <Model> void write(Proto.Type<Model> type, Model model, Appendable out) throws IOException;
+    protected abstract JSONReader newReader(JSONStream stream);
+    protected abstract Object parse(Proto.Type<?> from, BrwsrCtx c, JSONReader r) throws IOException;
 
     static Bindings getBindings(Proto proto, boolean initialize, Object copyFrom) {
         return DEFAULT.bindings(proto, initialize, copyFrom);
@@ -61,6 +67,10 @@ public abstract class PropertyBindingAccessor {
         DEFAULT.notifyChange(proto, propIndex);
     }
 
+    static void notifyProtoDependants(Proto proto, String propName) {
+        DEFAULT.notifyDependants(proto, propName);
+    }
+
     static <M> PropertyBinding create(
         Proto.Type<M> access, Bindings<?> bindings, String name, int index, M model , byte propertyType
     ) {
@@ -82,4 +92,13 @@ public abstract class PropertyBindingAccessor {
     static Object readFrom(Proto.Type<?> from, BrwsrCtx c, Object data) {
         return DEFAULT.read(from, c, data);
     }
+    static <Model> void writeTo(Proto.Type<Model> type, Model model, Appendable out) throws IOException {
+        DEFAULT.write(type, model, out);
+    }
+    static JSONReader createReader(JSONStream stream) {
+        return DEFAULT.newReader(stream);
+    }
+    static Object parseFrom(Proto.Type<?> from, BrwsrCtx c, JSONReader r) throws IOException {
+        return DEFAULT.parse(from, c, r);
+    }
 }
@@ -220,7 +220,7 @@ public class SimpleList<E> implements List<E> {
     }
 
     void  clearImpl(int from, int to) {
-        for (int i = 0; i + from < size; i++) {
+        for (int i = 0; to + i < size; i++) {
             arr[from + i] = arr[to + i];
         }
         size += from;
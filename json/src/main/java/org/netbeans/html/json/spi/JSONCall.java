@@ -18,9 +18,22 @@
  */
 package org.netbeans.html.json.spi;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import net.java.html.BrwsrCtx;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.impl.JSON;
 import org.netbeans.html.json.impl.RcvrJSON;
 
 /** Description of a JSON call request that is supposed to be processed
@@ -29,13 +42,24 @@ import org.netbeans.html.json.impl.RcvrJSON;
  * @author Jaroslav Tulach
  */
 public final class JSONCall {
+    private static final Map<InFlight, JSONCall> IN_FLIGHT = new HashMap<InFlight, JSONCall>();
+    /** only safe methods, sharing writes could reorder them */
+    private static final Set<String> SHAREABLE = new HashSet<String>(Arrays.asList(
+        "GET", "HEAD", "OPTIONS" // NOI18N
+    ));
     private final RcvrJSON whenDone;
-    private final String headers;
+    private String headers;
     private final String urlBefore;
     private final String urlAfter;
     private final String method;
     private final Object data;
     private final BrwsrCtx ctx;
+    private ResponseCache cache;
+    private String cacheKey;
+    private ResponseCache.Entry stale;
+    private Map<String, String> responseHeaders;
+    private InFlight flight;
+    private List<JSONCall> followers;
 
     JSONCall(
         BrwsrCtx ctx, RcvrJSON whenDone,
@@ -60,11 +84,27 @@ public final class JSONCall {
         return this.data != null;
     }
 
+    /** Writes the data to send into the provided stream. Models are
+     * written as JSON objects. Any {@link java.util.Collection} is written
+     * as a JSON array of its elements - since version 1.8. Older versions
+     * sent the <code>toString()</code> text of collections which weren't
+     * lists of models. Other data is sent as its <code>toString()</code>.
+     * The text is encoded in <code>UTF-8</code>.
+     *
+     * @param os the stream to write to
+     * @throws IOException if there are no data or writing fails
+     */
     public void writeData(OutputStream os) throws IOException {
         if (this.data == null) {
             throw new IOException("No data!");
         }
-        os.write(this.data.toString().getBytes("UTF-8"));
+        if (JSON.isModelOrList(this.data)) {
+            Writer w = new BufferedWriter(new OutputStreamWriter(os, "UTF-8"));
+            JSON.write(this.data, w);
+            w.flush();
+        } else {
+            os.write(this.data.toString().getBytes("UTF-8"));
+        }
         os.flush();
     }
 
@@ -101,15 +141,172 @@ public final class JSONCall {
         if (result == null) {
             dispatch(RcvrJSON.MsgEvnt.createOpen());
         } else {
+            if (cache != null) {
+                cache.store(cacheKey, stale, result, responseHeaders());
+            }
+            List<JSONCall> others = land();
             dispatch(RcvrJSON.MsgEvnt.createMessage(result));
+            if (others != null) {
+                for (JSONCall c : others) {
+                    c.dispatch(RcvrJSON.MsgEvnt.createMessage(copy(result)));
+                }
+            }
+        }
+    }
+
+    /** Records a header of the received response. Transfers should
+     * report the headers before calling {@link #notifySuccess(java.lang.Object)}
+     * or {@link #notifyNotModified()}, so the response can be
+     * {@link ResponseCache cached}.
+     *
+     * @param name name of the header
+     * @param value value of the header
+     * @since 1.8
+     */
+    public void setResponseHeader(String name, String value) {
+        if (name == null || value == null) {
+            return;
         }
+        Map<String, String> map = responseHeaders();
+        String key = name.toLowerCase(Locale.ENGLISH);
+        String prev = map.get(key);
+        map.put(key, prev == null ? value : prev + ", " + value);
+    }
+
+    /** Called when the server replies <code>304 Not Modified</code> to
+     * a conditional request issued by the {@link ResponseCache}. The
+     * previously cached response is then delivered as the result of the call.
+     *
+     * @since 1.8
+     */
+    public void notifyNotModified() {
+        if (stale == null) {
+            notifyError(new IOException("Not modified: " + urlBefore));
+            return;
+        }
+        cache.notModified(cacheKey, stale, responseHeaders());
+        List<JSONCall> others = land();
+        dispatch(RcvrJSON.MsgEvnt.createMessage(stale.result()));
+        if (others != null) {
+            for (JSONCall c : others) {
+                c.dispatch(RcvrJSON.MsgEvnt.createMessage(stale.result()));
+            }
+        }
+    }
+
+    /** Joins an identical request to the same transfer that is already
+     * in progress. Only requests with idempotent methods are shared -
+     * they are identical when their method, URL, headers and data are the same.
+     * If there is no such request, this one is registered as in progress.
+     *
+     * @param transfer the transfer to process the call
+     * @return <code>true</code> if the call will be answered when the
+     *   request in progress finishes
+     */
+    boolean joinInFlight(Transfer transfer) {
+        if (method != null && !SHAREABLE.contains(method.toUpperCase(Locale.ENGLISH))) {
+            return false;
+        }
+        InFlight key = new InFlight(transfer, method, urlBefore, urlAfter, headers, data);
+        synchronized (IN_FLIGHT) {
+            JSONCall leader = IN_FLIGHT.get(key);
+            if (leader != null) {
+                if (leader.followers == null) {
+                    leader.followers = new ArrayList<JSONCall>();
+                }
+                leader.followers.add(this);
+                return true;
+            }
+            IN_FLIGHT.put(key, this);
+            flight = key;
+        }
+        return false;
+    }
+
+    /** Marks the request as finished.
+     *
+     * @return calls waiting for the same response or <code>null</code>
+     */
+    private List<JSONCall> land() {
+        if (flight == null) {
+            return null;
+        }
+        synchronized (IN_FLIGHT) {
+            if (IN_FLIGHT.get(flight) == this) {
+                IN_FLIGHT.remove(flight);
+            }
+            flight = null;
+            List<JSONCall> others = followers;
+            followers = null;
+            return others;
+        }
+    }
+
+    /** The transfer failed to process the call. Calls waiting for the
+     * same response are notified about the error.
+     *
+     * @param error the problem
+     */
+    void abandon(Throwable error) {
+        List<JSONCall> others = land();
+        if (others != null) {
+            for (JSONCall c : others) {
+                c.dispatch(RcvrJSON.MsgEvnt.createError(error));
+            }
+        }
+    }
+
+    private static Object copy(Object result) {
+        return result instanceof Object[] ? ((Object[]) result).clone() : result;
+    }
+
+    /** Delivers the result from the {@link ResponseCache} registered
+     * in the context, if there is a fresh one. Otherwise prepares
+     * the call to revalidate or store the response.
+     *
+     * @return <code>true</code> if the call has been answered from the cache
+     */
+    boolean serveFromCache() {
+        if (data != null || (method != null && !"GET".equalsIgnoreCase(method))) {
+            return false;
+        }
+        ResponseCache c = Contexts.find(ctx, ResponseCache.class);
+        if (c == null) {
+            return false;
+        }
+        String key = ResponseCache.key(method, urlBefore, urlAfter, headers);
+        ResponseCache.Entry e = c.find(key);
+        if (e != null && e.isFresh(System.currentTimeMillis())) {
+            dispatch(RcvrJSON.MsgEvnt.createMessage(e.result()));
+            return true;
+        }
+        this.cache = c;
+        this.cacheKey = key;
+        if (e != null) {
+            this.stale = e;
+            this.headers = e.conditionalHeaders(headers);
+        }
+        return false;
+    }
+
+    private Map<String, String> responseHeaders() {
+        if (responseHeaders == null) {
+            responseHeaders = new HashMap<String, String>();
+        }
+        return responseHeaders;
     }
 
     public void notifyError(Throwable error) {
         if (error == null) {
             dispatch(RcvrJSON.MsgEvnt.createClose());
         } else {
+            List<JSONCall> others = land();
             dispatch(RcvrJSON.MsgEvnt.createError(error));
+            if (others != null) {
+                for (JSONCall c : others) {
+                    c.dispatch(RcvrJSON.MsgEvnt.createError(error));
+                }
+            }
         }
     }
 
@@ -125,4 +322,29 @@ public final class JSONCall {
     public String getMessage() {
         return this.data.toString();
     }
+
+    private static final class InFlight {
+        private final Transfer transfer;
+        private final String key;
+
+        InFlight(Transfer transfer, String method, String urlBefore, String urlAfter, String headers, Object data) {
+            this.transfer = transfer;
+            this.key = ResponseCache.key(method, urlBefore, urlAfter, headers)
+                + (data == null ? "" : "\n\n" + data);
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(transfer) ^ key.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof InFlight)) {
+                return false;
+            }
+            InFlight other = (InFlight) obj;
+            return transfer == other.transfer && key.equals(other.key);
+        }
+    }
 }
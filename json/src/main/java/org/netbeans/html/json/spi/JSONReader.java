@@ -0,0 +1,195 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.spi;
+
+import java.io.IOException;
+import java.io.Reader;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import org.netbeans.html.json.impl.JSON;
+import org.netbeans.html.json.impl.JSONStream;
+
+/** Streaming access to JSON text used by classes generated by the
+ * {@link Model} annotation to read their properties directly, without
+ * any {@link Transfer} and without boxing of primitive values. Instances
+ * are created by the system when {@link Models#parse(net.java.html.BrwsrCtx, java.lang.Class, java.io.InputStream) parsing}
+ * JSON in plain Java and passed to
+ * {@link Proto.Type#parse(net.java.html.BrwsrCtx, org.netbeans.html.json.spi.JSONReader)}.
+ * <p>
+ * The conversions of values follow the rules used when reading raw
+ * JSON objects - e.g. a string <code>"42"</code> read by {@link #nextInt()}
+ * yields <code>42</code> and <code>null</code> yields <code>0</code>.
+ *
+ * @since 1.8
+ */
+public final class JSONReader {
+    private final JSONStream stream;
+
+    JSONReader(JSONStream stream) {
+        this.stream = stream;
+    }
+
+    /** Creates a reader of JSON text. Useful for {@link Transfer}
+     * implementations which receive JSON in Java - their
+     * {@link #nextValue()} yields objects as {@link java.util.Map maps}
+     * and arrays as {@code Object[]}, values the system knows how to
+     * extract properties from without asking the {@link Transfer}.
+     *
+     * @param r the reader to read JSON text from
+     * @return new reader
+     */
+    public static JSONReader create(Reader r) {
+        return new JSONReader(new JSONStream(r));
+    }
+
+    /** Starts reading an object.
+     *
+     * @throws IOException if the next value isn't an object
+     */
+    public void beginObject() throws IOException {
+        stream.beginObject();
+    }
+
+    /** Moves to next property of the object opened by {@link #beginObject()}.
+     * Its value has to be read (or {@link #skipValue() skipped}) before
+     * asking for next name.
+     *
+     * @return name of the property or <code>null</code> when there are
+     *   no more properties in the object
+     * @throws IOException if the input isn't valid JSON
+     */
+    public String nextName() throws IOException {
+        return stream.nextName();
+    }
+
+    /** Starts reading an array. A value which isn't an array is treated
+     * as an array with a single element.
+     *
+     * @return <code>false</code> if the value is <code>null</code>,
+     *   <code>true</code> if the elements shall be read by {@link #hasNext()}
+     * @throws IOException if the input isn't valid JSON
+     */
+    public boolean beginArray() throws IOException {
+        return stream.beginArray();
+    }
+
+    /** Moves to next element of the array opened by {@link #beginArray()}.
+     *
+     * @return <code>true</code> if there is an element to read
+     * @throws IOException if the input isn't valid JSON
+     */
+    public boolean hasNext() throws IOException {
+        return stream.hasNextElement();
+    }
+
+    /** Reads a string value. Other values are converted to their text.
+     *
+     * @return the string or <code>null</code>
+     * @throws IOException if the input isn't valid JSON
+     */
+    public String nextString() throws IOException {
+        return stream.nextString();
+    }
+
+    /** Reads a number as an integer.
+     *
+     * @return the value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public int nextInt() throws IOException {
+        return stream.nextInt();
+    }
+
+    /** Reads a number as a long.
+     *
+     * @return the value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public long nextLong() throws IOException {
+        return stream.nextLong();
+    }
+
+    /** Reads a number as a double.
+     *
+     * @return the value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public double nextDouble() throws IOException {
+        return stream.nextDouble();
+    }
+
+    /** Reads a boolean value.
+     *
+     * @return the value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public boolean nextBoolean() throws IOException {
+        return stream.nextBoolean();
+    }
+
+    /** Reads a character - the first one of a string or one
+     * given by its code.
+     *
+     * @return the value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public char nextChar() throws IOException {
+        return stream.nextChar();
+    }
+
+    /** Reads the next value as an instance of a model class.
+     *
+     * @param <T> the type of the model class
+     * @param c the browser context to work in
+     * @param modelClass the model class
+     * @return new instance of the model class or <code>null</code>
+     * @throws IOException if the input isn't valid JSON
+     */
+    public <T> T read(BrwsrCtx c, Class<T> modelClass) throws IOException {
+        if (stream.isNull()) {
+            return null;
+        }
+        if (modelClass == String.class) {
+            return modelClass.cast(stream.nextString());
+        }
+        if (!stream.isObject()) {
+            return JSON.read(c, modelClass, stream.value());
+        }
+        return JSON.parse(c, modelClass, this);
+    }
+
+    /** Reads the next value in its raw form - e.g. one that can be
+     * passed to {@link Proto.Type#read(net.java.html.BrwsrCtx, java.lang.Object)}.
+     *
+     * @return the raw value
+     * @throws IOException if the input isn't valid JSON
+     */
+    public Object nextValue() throws IOException {
+        return stream.value();
+    }
+
+    /** Skips the next value.
+     *
+     * @throws IOException if the input isn't valid JSON
+     */
+    public void skipValue() throws IOException {
+        stream.skipValue();
+    }
+}
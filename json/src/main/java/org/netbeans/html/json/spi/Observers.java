@@ -20,93 +20,105 @@ package org.netbeans.html.json.spi;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.ListIterator;
 import org.netbeans.html.json.impl.SimpleList;
 
-/**
+/** Tracks dependencies between properties of {@link Proto} objects.
+ * Computations in progress are kept in a stack private to each thread,
+ * the registered observers are guarded by the lock of the {@link Proto}'s
+ * own instance of this class. There is no global lock - independent
+ * models can be accessed from different threads without contention.
  *
  * @author Jaroslav Tulach
  */
 final class Observers {
-    private static final List<Watcher> GLOBAL = SimpleList.asList();
+    private static final ThreadLocal<List<Watcher>> COMPUTING = new ThreadLocal<List<Watcher>>() {
+        @Override
+        protected List<Watcher> initialValue() {
+            return SimpleList.asList();
+        }
+    };
+    private static volatile boolean memoizing;
     private final List<Watcher> watchers = SimpleList.asList();
     private final List<Ref> observers = SimpleList.asList();
+    private Usages usages;
 
     Observers() {
-        assert Thread.holdsLock(GLOBAL);
     }
-    
-    static Usages beginComputing(Proto p, String name, Usages usages) {
-        synchronized (GLOBAL) {
-            final Watcher nw = new Watcher(p, name);
-            GLOBAL.add(nw);
-            return Usages.register(name, nw, usages);
+
+    static void beginComputing(Proto p, String name) {
+        final Watcher nw = new Watcher(p, name);
+        COMPUTING.get().add(nw);
+        if (name != null) {
+            Observers mine = p.observers(true);
+            synchronized (mine) {
+                mine.usages = Usages.register(name, nw, mine.usages);
+            }
         }
     }
-    
+
     static void verifyUnlocked(Proto p) {
-        synchronized (GLOBAL) {
-            for (Watcher w : GLOBAL) {
-                if (w.proto == p) {
-                    if (w.owner == Thread.currentThread()) {
-                        throw new IllegalStateException("Re-entrant attempt to access " + p.toStr());
-                    }
-                }
+        List<Watcher> computing = COMPUTING.get();
+        for (int i = 0; i < computing.size(); i++) {
+            if (computing.get(i).proto == p) {
+                throw new IllegalStateException("Re-entrant attempt to access " + p.toStr());
             }
-        }        
+        }
     }
 
     static void accessingValue(Proto p, String propName) {
-        synchronized (GLOBAL) {
-            for (Watcher w : GLOBAL) {
-                Observers mine = p.observers(true);
-                mine.add(w, new Ref(w, propName));
+        List<Watcher> computing = COMPUTING.get();
+        if (computing.isEmpty()) {
+            return;
+        }
+        Observers mine = p.observers(true);
+        synchronized (mine) {
+            for (int i = 0; i < computing.size(); i++) {
+                mine.add(computing.get(i), propName);
             }
         }
     }
-    
+
     static void finishComputing(Proto p) {
-        synchronized (GLOBAL) {
-            boolean found = false;
-            ListIterator<Watcher> it = GLOBAL.listIterator(GLOBAL.size());
-            while (it.hasPrevious()) {
-                Watcher w = it.previous();
-                if (w.proto == p && w.owner == Thread.currentThread()) {
-                    if (w.prop != null) {
-                        Observers mine = p.observers(true);
+        List<Watcher> computing = COMPUTING.get();
+        for (int i = computing.size() - 1; i >= 0; i--) {
+            Watcher w = computing.get(i);
+            if (w.proto == p) {
+                computing.remove(i);
+                if (w.prop != null) {
+                    Observers mine = p.observers(true);
+                    synchronized (mine) {
                         mine.add(w);
                     }
-                    found = true;
-                    it.remove();
-                    break;
                 }
-            }
-            if (!found) {
-                throw new IllegalStateException("Cannot find " + p + " in " + GLOBAL);
+                return;
             }
         }
+        throw new IllegalStateException("Cannot find " + p + " in " + computing);
     }
-    
+
     private static final class Ref {
         private final Watcher ref;
         private final String prop;
-        
+
         public Ref(Watcher ref, String prop) {
             this.ref = ref;
             this.prop = prop;
         }
-        
+
         final Watcher watcher() {
             Watcher w = get();
             if (w == null) {
                 return null;
             }
-            final Observers o = w.proto.observers(false);
+            final Proto p = w.proto;
+            final Observers o = p == null ? null : p.observers(false);
             if (o == null) {
                 return null;
             }
-            if (o.find(w.prop) == w) {
-                return w;
+            synchronized (o) {
+                if (o.find(w.prop) == w) {
+                    return w;
+                }
             }
             return null;
         }
@@ -117,6 +129,7 @@ final class Observers {
     }
 
     private Watcher find(String prop) {
+        assert Thread.holdsLock(this);
         if (prop == null) {
             return null;
         }
@@ -128,7 +141,8 @@ final class Observers {
         return null;
     }
 
-        final void add(Watcher w) {
+    private void add(Watcher w) {
+        assert Thread.holdsLock(this);
         for (int i = 0; i < watchers.size(); i++) {
             Watcher ith = watchers.get(i);
             if (w.prop == null) {
@@ -144,65 +158,105 @@ final class Observers {
         watchers.add(w);
     }
 
-    static final void valueHasMutated(Proto p, String propName) {
-        List<Watcher> mutated = SimpleList.asList();
-        synchronized (GLOBAL) {
-            Observers mine = p.observers(false);
-            if (mine == null) {
-                return;
-            }
+    /** Collects observers of given property. The observers are collected
+     * while holding the lock of <code>p</code>'s observers, but verified
+     * outside of it, as the verification needs the lock of the observing
+     * {@link Proto}.
+     */
+    private static List<Watcher> observersOf(Proto p, String propName) {
+        Observers mine = p.observers(false);
+        if (mine == null) {
+            return null;
+        }
+        List<Ref> candidates = null;
+        synchronized (mine) {
             Iterator<Ref> it = mine.observers.iterator();
             while (it.hasNext()) {
                 Ref ref = it.next();
-                Watcher w = ref.watcher();
-                if (w == null || w.proto == null) {
+                if (ref.get() == null) {
                     it.remove();
                     continue;
                 }
                 if (ref.prop.equals(propName)) {
-                    mutated.add(w);
+                    if (candidates == null) {
+                        candidates = SimpleList.asList();
+                    }
+                    candidates.add(ref);
                 }
             }
         }
+        if (candidates == null) {
+            return null;
+        }
+        List<Watcher> found = SimpleList.asList();
+        for (Ref ref : candidates) {
+            Watcher w = ref.watcher();
+            if (w != null) {
+                found.add(w);
+            }
+        }
+        return found;
+    }
+
+    static final void valueHasMutated(Proto p, String propName) {
+        List<Watcher> mutated = observersOf(p, propName);
+        if (mutated == null) {
+            return;
+        }
         for (Watcher w : mutated) {
             w.valueHasMutated();
         }
     }
 
-    void add(Watcher w, Ref r) {
-        Thread.holdsLock(GLOBAL);
+    static void memoizing() {
+        memoizing = true;
+    }
+
+    static void invalidateMemoized(Proto p, String propName) {
+        if (!memoizing) {
+            return;
+        }
+        List<Watcher> affected = observersOf(p, propName);
+        if (affected == null) {
+            return;
+        }
+        for (Watcher w : affected) {
+            Proto wp = w.proto;
+            if (wp != null && wp.clearMemoized(w.prop)) {
+                invalidateMemoized(wp, w.prop);
+            }
+        }
+    }
+
+    private void add(Watcher w, String prop) {
+        assert Thread.holdsLock(this);
         if (w == null) {
             return;
         }
         Iterator<Ref> it = observers.iterator();
         while (it.hasNext()) {
             Ref ref = it.next();
-            if (r == ref) {
-                return;
-            }
             final Watcher rw = ref.get();
             if (rw == null) {
                 it.remove();
                 continue;
             }
-            if (rw == w && ref.prop.equals(r.prop)) {
+            if (rw == w && ref.prop.equals(prop)) {
                 return;
             }
         }
-        observers.add(r);
+        observers.add(new Ref(w, prop));
     }
-    
+
     private static final class Watcher {
-        Proto proto;
-        final Thread owner;
+        volatile Proto proto;
         final String prop;
 
         Watcher(Proto proto, String prop) {
-            this.owner = Thread.currentThread();
             this.proto = proto;
             this.prop = prop;
         }
-        
+
         @Override
         public String toString() {
             return "Watcher: " + proto + ", " + prop;
@@ -18,12 +18,14 @@
  */
 package org.netbeans.html.json.spi;
 
+import java.io.IOException;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
 import net.java.html.BrwsrCtx;
 import net.java.html.json.ComputedProperty;
 import org.netbeans.html.json.impl.Bindings;
 import org.netbeans.html.json.impl.JSON;
+import org.netbeans.html.json.impl.JSONStream;
 import org.netbeans.html.json.impl.PropertyBindingAccessor;
 import org.netbeans.html.json.impl.RcvrJSON;
 
@@ -55,6 +57,11 @@ public abstract class PropertyBinding {
                 proto.onChange(propIndex);
             }
 
+            @Override
+            protected void notifyDependants(Proto proto, String propName) {
+                proto.dependantsHaveMutated(propName);
+            }
+
             @Override
             protected Proto findProto(Proto.Type<?> type, Object object) {
                 return type.protoFor(object);
@@ -70,6 +77,21 @@ public abstract class PropertyBinding {
                 return from.read(c, data);
             }
 
+            @Override
+            protected <Model> void write(Proto.Type<Model> type, Model model, Appendable out) throws IOException {
+                type.write(model, out);
+            }
+
+            @Override
+            protected JSONReader newReader(JSONStream stream) {
+                return new JSONReader(stream);
+            }
+
+            @Override
+            protected Object parse(Proto.Type<?> from, BrwsrCtx c, JSONReader r) throws IOException {
+                return from.parse(c, r);
+            }
+
             @Override
             protected <M> PropertyBinding newBinding(
                 Proto.Type<M> access, Bindings<?> bindings, String name, int index, M model, byte propertyType) {
@@ -106,6 +128,21 @@ public abstract class PropertyBinding {
      */
     public abstract Object getValue();
 
+    /** Obtains current value of the property, unless it is a
+     * {@link net.java.html.json.Model model} or a {@link java.util.List list}.
+     * Converting such values requires creation of technology representation
+     * of all the models they reference. Technologies may use this method
+     * to postpone that until the value is really needed and then
+     * obtain it via {@link #getValue()}.
+     * Can be called only on dedicated
+     * thread. See {@link Technology#runSafe(java.lang.Runnable)}.
+     *
+     * @param deferred object to return instead of model or list value
+     * @return the value, <code>null</code> or <code>deferred</code>
+     * @since 1.8
+     */
+    public abstract Object getValueLazily(Object deferred);
+
     /** Is this property read only?. Or can one call {@link #setValue(java.lang.Object)}?
      * The property can still change, but only as a result of other
      * properties being changed, just like {@link ComputedProperty} can.
@@ -167,6 +204,20 @@ public abstract class PropertyBinding {
             return r == null ? v : r;
         }
 
+        @Override
+        public Object getValueLazily(Object deferred) {
+            M model = model();
+            if (model == null) {
+                return null;
+            }
+            Object v = access.getValue(model, index);
+            if (JSON.isModelOrList(v)) {
+                return deferred;
+            }
+            Object r = JSON.find(v, bindings);
+            return r == null ? v : r;
+        }
+
         @Override
         public boolean isReadOnly() {
             return (propertyType & 1) != 0;
@@ -18,8 +18,14 @@
  */
 package org.netbeans.html.json.spi;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import net.java.html.BrwsrCtx;
 import net.java.html.json.ComputedProperty;
 import net.java.html.json.Model;
@@ -46,12 +52,19 @@ import org.netbeans.html.json.impl.SimpleList;
  * @since 0.7
  */
 public final class Proto {
+    private static final ThreadLocal<Batch> BATCH = new ThreadLocal<Batch>();
+    /** number of threads running a batch */
+    private static volatile int batching;
+
     private final Object obj;
     private final Type type;
     private final net.java.html.BrwsrCtx context;
     private org.netbeans.html.json.impl.Bindings ko;
-    private Observers observers;
-    private Observers.Usages usages;
+    private volatile Observers observers;
+    /** bits of memoized properties, guarded by this */
+    private long[] memoized;
+    /** bits of properties being computed, guarded by this */
+    private long[] computing;
 
     Proto(Object obj, Type type, BrwsrCtx context) {
         this.obj = obj;
@@ -68,7 +81,7 @@ public final class Proto {
         return context;
     }
 
-    /** Acquires global lock to compute a {@link ComputedProperty derived property}
+    /** Acquires lock to compute a {@link ComputedProperty derived property}
      * on this proto object. This proto object must not be locked yet. No
      * dependency tracking is performed.
      *
@@ -78,7 +91,7 @@ public final class Proto {
         acquireLock(null);
     }
 
-    /** Acquires global lock to compute a {@link ComputedProperty derived property}
+    /** Acquires lock to compute a {@link ComputedProperty derived property}
      * on this proto object. This proto object must not be locked yet. The
      * name of the property is used to track dependencies on own
      * properties of other proto objects - when they are changed, this
@@ -90,7 +103,7 @@ public final class Proto {
      * @since 0.9
      */
     public void acquireLock(String propName) throws IllegalStateException {
-        usages = Observers.beginComputing(this, propName, usages);
+        Observers.beginComputing(this, propName);
     }
 
     /** A property on this proto object is about to be accessed. Verifies
@@ -131,6 +144,10 @@ public final class Proto {
      * @param propName name of the changed property
      */
     public void valueHasMutated(final String propName) {
+        invalidate(propName);
+        if (deferChange(propName, null, null)) {
+            return;
+        }
         context.execute(new Runnable() {
             @Override
             public void run() {
@@ -159,6 +176,10 @@ public final class Proto {
     public void valueHasMutated(
         final String propName, final Object oldValue, final Object newValue
     ) {
+        invalidate(propName);
+        if (deferChange(propName, oldValue, newValue)) {
+            return;
+        }
         context.execute(new Runnable() {
             @Override
             public void run() {
@@ -170,6 +191,151 @@ public final class Proto {
         });
     }
 
+    /** Runs the code and delays notifications about
+     * {@link #valueHasMutated(java.lang.String) changes} of properties
+     * until it finishes. Then each changed property is reported just once
+     * and the technology is informed about all of them at once (via
+     * {@link Technology.BatchMutated} if it supports it). Useful when many
+     * properties of a model are set in a row, for example when the model is
+     * being filled with data received from a server. Nested calls join the
+     * outer batch.
+     * <p>
+     * The batch belongs to the current thread. It collects changes of
+     * all models made by the thread while the code runs - not just changes
+     * of this model. Changes made by other threads are reported
+     * as usual.
+     *
+     * @param code the code to run
+     * @since 1.8
+     * @see Models#batch(java.lang.Object, java.lang.Runnable)
+     */
+    public void batch(Runnable code) {
+        Batch b = BATCH.get();
+        if (b == null) {
+            b = new Batch();
+            BATCH.set(b);
+            synchronized (Batch.class) {
+                batching++;
+            }
+        }
+        b.depth++;
+        try {
+            code.run();
+        } finally {
+            if (--b.depth == 0) {
+                BATCH.remove();
+                synchronized (Batch.class) {
+                    batching--;
+                }
+                for (Map.Entry<Proto, Map<String, Object[]>> e : b.changes.entrySet()) {
+                    e.getKey().flush(e.getValue());
+                }
+            }
+        }
+    }
+
+    private boolean deferChange(String propName, Object oldValue, Object newValue) {
+        if (batching == 0) {
+            return false;
+        }
+        Batch b = BATCH.get();
+        if (b == null) {
+            return false;
+        }
+        b.add(this, propName, oldValue, newValue);
+        return true;
+    }
+
+    private void flush(Map<String, Object[]> changes) {
+        final int size = changes.size();
+        final String[] names = new String[size];
+        final Object[] oldValues = new Object[size];
+        final Object[] newValues = new Object[size];
+        int i = 0;
+        for (Map.Entry<String, Object[]> e : changes.entrySet()) {
+            names[i] = e.getKey();
+            oldValues[i] = e.getValue()[0];
+            newValues[i] = e.getValue()[1];
+            i++;
+        }
+        context.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (ko != null) {
+                    ko.valueHasMutated(names, oldValues, newValues);
+                }
+                for (String n : names) {
+                    Observers.valueHasMutated(Proto.this, n);
+                }
+            }
+        });
+    }
+
+    /** Checks whether the last computed value of a
+     * {@link ComputedProperty#memoize() memoized}
+     * {@link ComputedProperty computed property} is still valid. The value
+     * is valid since a call to {@link #memoize(int)} until
+     * {@link #valueHasMutated(java.lang.String) a change} of the property
+     * or of any property its computation depends on is reported. When
+     * {@code false} is returned, the caller is expected to compute the
+     * value and then call {@link #memoize(int)}.
+     *
+     * @param index index of the property as
+     *   {@link Type#registerProperty(java.lang.String, int, boolean) registered}
+     * @return {@code true} if the memoized value can be used
+     * @since 1.8
+     */
+    public boolean isMemoized(int index) {
+        final int slot = index >> 6;
+        final long bit = 1L << index;
+        synchronized (this) {
+            if (memoized != null && slot < memoized.length && (memoized[slot] & bit) != 0) {
+                return true;
+            }
+            computing = grow(computing, slot);
+            computing[slot] |= bit;
+            return false;
+        }
+    }
+
+    /** Marks the value of a {@link ComputedProperty computed property}
+     * as computed. Until the value or its dependencies change,
+     * {@link #isMemoized(int)} returns {@code true} for the property.
+     * If a change is reported while the value is being computed
+     * (e.g. since {@link #isMemoized(int)} returned {@code false}),
+     * the value isn't memoized and it is going to be computed again.
+     *
+     * @param index index of the property as
+     *   {@link Type#registerProperty(java.lang.String, int, boolean) registered}
+     * @since 1.8
+     */
+    public void memoize(int index) {
+        final int slot = index >> 6;
+        final long bit = 1L << index;
+        synchronized (this) {
+            memoized = grow(memoized, slot);
+            if (computing != null && slot < computing.length && (computing[slot] & bit) != 0) {
+                computing[slot] &= ~bit;
+                memoized[slot] |= bit;
+            } else {
+                // invalidated meanwhile, the value may be stale
+                memoized[slot] &= ~bit;
+            }
+        }
+        Observers.memoizing();
+    }
+
+    private static long[] grow(long[] bits, int slot) {
+        if (bits == null || slot >= bits.length) {
+            long[] n = new long[slot + 1];
+            if (bits != null) {
+                System.arraycopy(bits, 0, n, 0, bits.length);
+            }
+            return n;
+        }
+        return bits;
+    }
+
     /** Initializes the associated model in the current {@link #getContext() context}.
      * In case of <em>knockout.js</em> technology, applies given bindings
      * of the current model to the <em>body</em> element of the page.
@@ -273,6 +439,21 @@ public final class Proto {
         return JSON.read(context, modelClass, data);
     }
 
+    /** Converts raw JSON array into a list of Java {@link Model} classes.
+     * The model type is resolved just once and the values of all the
+     * elements are {@link Type#readArray(net.java.html.BrwsrCtx, java.lang.Object) read in bulk}.
+     *
+     * @param <T> type of the model class
+     * @param modelClass the type of the class to create
+     * @param data the raw JSON array (a single object is treated as an array
+     *   of one element, <code>null</code> as an empty array)
+     * @return list of newly created instances of the model class
+     * @since 1.8
+     */
+    public <T> List<T> readArray(Class<T> modelClass, Object data) {
+        return JSON.readArray(context, modelClass, data);
+    }
+
     /** Initializes asynchronous JSON connection to specified URL. Delegates
      * to {@link #loadJSON(int, java.lang.String, java.lang.String, java.lang.String, java.lang.Object, java.lang.Object...) }
      * with no extra parameters.
@@ -350,8 +531,19 @@ public final class Proto {
         JSONCall call = PropertyBindingAccessor.createCall(
             context, new Rcvr(), headers, urlBefore, urlAfter, method, data
         );
+        if (call.serveFromCache()) {
+            return;
+        }
         Transfer t = JSON.findTransfer(context);
-        t.loadJSON(call);
+        if (call.joinInFlight(t)) {
+            return;
+        }
+        try {
+            t.loadJSON(call);
+        } catch (RuntimeException ex) {
+            call.abandon(ex);
+            throw ex;
+        }
     }
 
     /** Opens new WebSocket connection to the specified URL.
@@ -507,19 +699,101 @@ public final class Proto {
         return ko;
     }
 
+    /** Changes collected by a thread during {@link #batch(java.lang.Runnable)}.
+     * For each model and property the first old and the last new value
+     * is kept, unless one of the changes didn't know its values.
+     */
+    private static final class Batch {
+        final Map<Proto, Map<String, Object[]>> changes = new LinkedHashMap<Proto, Map<String, Object[]>>();
+        int depth;
+
+        void add(Proto proto, String propName, Object oldValue, Object newValue) {
+            Map<String, Object[]> props = changes.get(proto);
+            if (props == null) {
+                props = new LinkedHashMap<String, Object[]>();
+                changes.put(proto, props);
+            }
+            Object[] prev = props.get(propName);
+            if (prev == null) {
+                props.put(propName, new Object[] { oldValue, newValue });
+            } else if (isKnown(prev[0], prev[1]) && isKnown(oldValue, newValue)) {
+                prev[1] = newValue;
+            } else {
+                prev[0] = null;
+                prev[1] = null;
+            }
+        }
+
+        private static boolean isKnown(Object oldValue, Object newValue) {
+            return oldValue != null || newValue != null;
+        }
+    }
+
     final Bindings getBindings() {
         return ko;
     }
 
+    /** Notifies properties depending on given property without informing
+     * the technology. Used when the technology has already been told about
+     * the change in a more specific way.
+     */
+    final void dependantsHaveMutated(String propName) {
+        invalidate(propName);
+        Observers.valueHasMutated(this, propName);
+    }
+
+    /** Drops memoized value of given property and of all the memoized
+     * properties depending on it.
+     */
+    final void invalidate(String propName) {
+        clearMemoized(propName);
+        Observers.invalidateMemoized(this, propName);
+    }
+
+    final boolean clearMemoized(String propName) {
+        if (propName == null) {
+            return false;
+        }
+        synchronized (this) {
+            if (memoized == null && computing == null) {
+                return false;
+            }
+        }
+        final Integer index = (Integer) type.indexes.get(propName);
+        if (index == null) {
+            return false;
+        }
+        final int slot = index >> 6;
+        final long bit = 1L << index;
+        synchronized (this) {
+            boolean cleared = false;
+            if (memoized != null && slot < memoized.length && (memoized[slot] & bit) != 0) {
+                memoized[slot] &= ~bit;
+                cleared = true;
+            }
+            if (computing != null && slot < computing.length && (computing[slot] & bit) != 0) {
+                computing[slot] &= ~bit;
+                cleared = true;
+            }
+            return cleared;
+        }
+    }
+
     final void onChange(int index) {
         type.onChange(obj, index);
     }
 
     final Observers observers(boolean create) {
-        if (create && observers == null) {
-            observers = new Observers();
+        Observers o = observers;
+        if (o == null && create) {
+            synchronized (this) {
+                o = observers;
+                if (o == null) {
+                    observers = o = new Observers();
+                }
+            }
         }
-        return observers;
+        return o;
     }
 
     private static class PropertyInfo {
@@ -542,6 +816,8 @@ public final class Proto {
         final Class<? extends Model> clazz;
         final java.util.List<PropertyInfo> properties;
         final java.util.List<String> functions;
+        /** indexes of properties by their names */
+        final Map<String, Integer> indexes = new HashMap<String, Integer>();
 
         /** Constructor for subclasses generated by the annotation processor
          * associated with {@link net.java.html.json.Model} annotation.
@@ -595,6 +871,7 @@ public final class Proto {
             assert properties.get(index) == null;
             byte t = (byte) ((readOnly ? 1 : 0) | (constant ? 2 : 0));
             properties.set(index, new PropertyInfo(name, t));
+            indexes.put(name, index);
         }
 
         /** Registers function of given name at given index.
@@ -670,6 +947,98 @@ public final class Proto {
          */
         protected abstract Model read(BrwsrCtx c, Object json);
 
+        /** Creates an instance of our model class from values already
+         * extracted from raw JSON data. The values correspond to properties
+         * named by {@link #extractedProperties()}. The default implementation
+         * ignores the values and calls {@link #read(net.java.html.BrwsrCtx, java.lang.Object)}.
+         *
+         * @param c the browser context to work in
+         * @param json raw JSON data the values were extracted from
+         * @param values values of the {@link #extractedProperties() extracted properties}
+         * @return new instance of model class filled by the data
+         * @since 1.8
+         */
+        protected Model read(BrwsrCtx c, Object json, Object[] values) {
+            return read(c, json);
+        }
+
+        /** Reads an instance of our model class directly from JSON text.
+         * Called when JSON is parsed in plain Java, without any browser
+         * {@link Transfer technology}. The reader is positioned at the
+         * beginning of a JSON object. The default implementation reads the
+         * object in its raw form and passes it to
+         * {@link #read(net.java.html.BrwsrCtx, java.lang.Object)}. Generated
+         * classes override it and assign their properties while reading
+         * the object.
+         *
+         * @param c the browser context to work in
+         * @param r the reader to read the object from
+         * @return new instance of model class filled by the data
+         * @throws IOException if the input isn't valid JSON
+         * @since 1.8
+         */
+        protected Model parse(BrwsrCtx c, JSONReader r) throws IOException {
+            return read(c, r.nextValue());
+        }
+
+        /** Writes JSON representation of an instance of our model class.
+         * The default implementation appends the {@link Object#toString()}
+         * of the model. Generated classes override it and write the values
+         * of their properties directly.
+         *
+         * @param model the instance of {@link Model model class}
+         * @param out where to write the JSON text
+         * @throws IOException if the writing fails
+         * @since 1.8
+         */
+        protected void write(Model model, Appendable out) throws IOException {
+            out.append(model.toString());
+        }
+
+        /** Names of properties to extract from raw JSON data when
+         * {@link #readArray(net.java.html.BrwsrCtx, java.lang.Object) reading many instances}
+         * at once. Types that return non-<code>null</code> value have to
+         * override {@link #read(net.java.html.BrwsrCtx, java.lang.Object, java.lang.Object[])}
+         * as well.
+         *
+         * @return names of the properties or <code>null</code> (the default)
+         *   if the values cannot be extracted in advance
+         * @since 1.8
+         */
+        protected String[] extractedProperties() {
+            return null;
+        }
+
+        /** Reads raw JSON array and converts its elements to our model class.
+         * Values of all the elements are extracted by a single
+         * {@link Transfer.BatchExtract batch call} when the technology supports
+         * it and then the instances are created one by one.
+         *
+         * @param c the browser context to work in
+         * @param json raw JSON array (a single object is treated as an array
+         *   of one element, <code>null</code> as an empty array)
+         * @return list of new instances of model class filled by the data,
+         *   <code>null</code> elements remain <code>null</code>
+         * @since 1.8
+         */
+        public final List<Model> readArray(BrwsrCtx c, Object json) {
+            Object[] arr = JSON.asArray(json);
+            List<Model> res = new ArrayList<Model>(arr.length);
+            String[] names = extractedProperties();
+            if (names == null) {
+                for (Object e : arr) {
+                    res.add(e == null ? null : read(c, e));
+                }
+                return res;
+            }
+            Object[][] values = new Object[arr.length][];
+            JSON.extract(c, arr, names, values);
+            for (int i = 0; i < arr.length; i++) {
+                res.add(arr[i] == null ? null : read(c, arr[i], values[i]));
+            }
+            return res;
+        }
+
         /** Called when a {@link #registerProperty(java.lang.String, int, boolean) registered property}
          * changes its value.
          *
@@ -734,8 +1103,12 @@ public final class Proto {
          * @param dest array to be filled with read type instances
          */
         public <T> void copyJSON(BrwsrCtx context, Object[] src, Class<T> destType, T[] dest) {
-            for (int i = 0; i < src.length && i < dest.length; i++) {
-                dest[i] = org.netbeans.html.json.impl.JSON.read(context, destType, src[i]);
+            if (src.length > dest.length) {
+                src = Arrays.copyOf(src, dest.length);
+            }
+            List<T> read = JSON.readArray(context, destType, src);
+            for (int i = 0; i < read.size(); i++) {
+                dest[i] = read.get(i);
             }
         }
 
@@ -793,6 +1166,19 @@ public final class Proto {
             return JSON.toJSON(obj);
         }
 
+        /** Writes JSON value of an object. The same text as
+         * {@link #toJSON(java.lang.Object)} would return is written
+         * without creating intermediate strings.
+         *
+         * @param obj the object to convert
+         * @param out where to write the JSON text
+         * @throws IOException if the writing fails
+         * @since 1.8
+         */
+        public final void writeJSON(Object obj, Appendable out) throws IOException {
+            JSON.write(obj, out);
+        }
+
         /** Converts the value to string.
          *
          * @param val the value
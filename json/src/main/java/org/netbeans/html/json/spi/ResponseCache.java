@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.spi;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import net.java.html.json.OnReceive;
+import org.netbeans.html.context.spi.Contexts;
+
+/** Size-bounded cache of responses to {@link OnReceive} <code>GET</code>
+ * requests. Register an instance into a {@link Contexts.Builder context}
+ * to avoid repeated network round trips for the same data:
+ * <pre>
+ * {@link ResponseCache} cache = new {@link #ResponseCache(int) ResponseCache}(128);
+ * BrwsrCtx ctx = {@link Contexts#newBuilder()}.{@link Contexts.Builder#register(java.lang.Class, java.lang.Object, int) register}(ResponseCache.class, cache, 1)...build();
+ * </pre>
+ * Responses are keyed by the URL and request headers and kept in the
+ * least recently used order. A response is stored only when the server
+ * allows it - e.g. there is no <code>Cache-Control: no-store</code> and it
+ * either has a positive <code>max-age</code> or one of the
+ * <code>ETag</code> and <code>Last-Modified</code> validators. Fresh
+ * responses are delivered without contacting the server, stale ones
+ * are revalidated by a conditional request with
+ * <code>If-None-Match</code> and <code>If-Modified-Since</code> headers.
+ * <p>
+ * The cache relies on the {@link Transfer} to
+ * {@link JSONCall#setResponseHeader(java.lang.String, java.lang.String) report response headers}
+ * and {@link JSONCall#notifyNotModified() not modified} replies. Transfers
+ * that don't do so just aren't cached.
+ *
+ * @since 1.8
+ */
+public final class ResponseCache {
+    private final int maxEntries;
+    private final Map<String, Entry> entries;
+    private long hits;
+    private long misses;
+    private long revalidated;
+    private long evicted;
+
+    /** Creates new cache.
+     *
+     * @param maxEntries maximal number of responses to keep
+     * @throws IllegalArgumentException if <code>maxEntries</code> isn't positive
+     */
+    public ResponseCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Positive size expected: " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ResponseCache.Entry> eldest) {
+                if (size() > ResponseCache.this.maxEntries) {
+                    evicted++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /** Number of responses currently in the cache.
+     * @return number of cached responses
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Removes all cached responses. The statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /** Number of requests served from the cache without contacting
+     * the server.
+     * @return number of hits
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** Number of requests that had to be sent to the server and
+     * received new content.
+     * @return number of misses
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /** Number of requests served from the cache after the server
+     * confirmed the cached response is still valid.
+     * @return number of successful revalidations
+     */
+    public synchronized long getRevalidatedCount() {
+        return revalidated;
+    }
+
+    /** Number of responses removed to keep the cache size bounded.
+     * @return number of evicted responses
+     */
+    public synchronized long getEvictionCount() {
+        return evicted;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ResponseCache[size=" + entries.size() + ", max=" + maxEntries
+            + ", hits=" + hits + ", misses=" + misses
+            + ", revalidated=" + revalidated + ", evicted=" + evicted + "]";
+    }
+
+    static String key(String method, String urlBefore, String urlAfter, String headers) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(method == null ? "GET" : method.toUpperCase(Locale.ENGLISH)).append(' ');
+        sb.append(urlBefore);
+        if (urlAfter != null) {
+            sb.append("{jsonp}").append(urlAfter);
+        }
+        if (headers != null) {
+            sb.append('\n').append(headers);
+        }
+        return sb.toString();
+    }
+
+    /** Finds an entry for given request.
+     *
+     * @param key the key of the request
+     * @return fresh or stale entry or <code>null</code>
+     */
+    synchronized Entry find(String key) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses++;
+        } else if (e.isFresh(System.currentTimeMillis())) {
+            hits++;
+        }
+        return e;
+    }
+
+    synchronized void store(String key, Entry stale, Object result, Map<String, String> headers) {
+        if (stale != null) {
+            misses++;
+        }
+        Entry e = new Entry(result);
+        if (e.update(headers, System.currentTimeMillis())) {
+            entries.put(key, e);
+        } else {
+            entries.remove(key);
+        }
+    }
+
+    synchronized void notModified(String key, Entry stale, Map<String, String> headers) {
+        revalidated++;
+        if (stale.update(headers, System.currentTimeMillis())) {
+            entries.put(key, stale);
+        } else {
+            entries.remove(key);
+        }
+    }
+
+    static final class Entry {
+        private final Object result;
+        private String etag;
+        private String lastModified;
+        private long expires;
+
+        Entry(Object result) {
+            this.result = result;
+        }
+
+        Object result() {
+            return result instanceof Object[] ? ((Object[]) result).clone() : result;
+        }
+
+        boolean isFresh(long now) {
+            return now < expires;
+        }
+
+        /** Appends conditional headers to the request headers.
+         */
+        String conditionalHeaders(String headers) {
+            StringBuilder sb = new StringBuilder();
+            if (headers != null) {
+                sb.append(headers);
+            }
+            if (etag != null) {
+                sb.append(sb.length() > 0 ? "\n" : "").append("If-None-Match: ").append(etag);
+            }
+            if (lastModified != null) {
+                sb.append(sb.length() > 0 ? "\n" : "").append("If-Modified-Since: ").append(lastModified);
+            }
+            return sb.length() == 0 ? null : sb.toString();
+        }
+
+        /** Updates freshness and validators from response headers.
+         *
+         * @return <code>true</code> if the response may be stored
+         */
+        boolean update(Map<String, String> headers, long now) {
+            String cc = headers.get("cache-control");
+            long maxAge = 0;
+            if (cc != null) {
+                for (String directive : cc.toLowerCase(Locale.ENGLISH).split(",")) {
+                    directive = directive.trim();
+                    if (directive.equals("no-store")) {
+                        return false;
+                    }
+                    if (directive.equals("no-cache")) {
+                        maxAge = 0;
+                        break;
+                    }
+                    if (directive.startsWith("max-age=")) {
+                        try {
+                            maxAge = Long.parseLong(directive.substring(8).trim());
+                        } catch (NumberFormatException ex) {
+                            maxAge = 0;
+                        }
+                    }
+                }
+            }
+            String newEtag = headers.get("etag");
+            if (newEtag != null) {
+                etag = newEtag;
+            }
+            String newModified = headers.get("last-modified");
+            if (newModified != null) {
+                lastModified = newModified;
+            }
+            expires = maxAge > 0 ? now + maxAge * 1000 : 0;
+            return expires > 0 || etag != null || lastModified != null;
+        }
+    }
+}
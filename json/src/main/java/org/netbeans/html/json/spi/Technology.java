@@ -18,6 +18,7 @@
  */
 package org.netbeans.html.json.spi;
 
+import java.util.List;
 import net.java.html.BrwsrCtx;
 import net.java.html.json.Model;
 import net.java.html.json.Models;
@@ -153,6 +154,28 @@ public interface Technology<Data> {
         public void valueHasMutated(D data, String propertyName, Object oldValue, Object newValue);
     }
     
+    /** Technologies that prefer to be notified about changes of many
+     * properties at once implement this extension of {@link ValueMutated}.
+     * Changes made during {@link Proto#batch(java.lang.Runnable)} are
+     * collected and delivered by a single call.
+     *
+     * @param <D> internal type of the technology
+     * @since 1.8
+     */
+    public static interface BatchMutated<D> extends ValueMutated<D> {
+        /** Values of several properties of given model have changed. The
+         * arrays have the same length, each property is listed just once.
+         * Old and new value of a property are both <code>null</code>
+         * when the real value is not known.
+         *
+         * @param data technology's own representation of the model
+         * @param propertyNames names of the changed properties
+         * @param oldValues previous values of the properties
+         * @param newValues new values of the properties
+         */
+        public void valueHasMutated(D data, String[] propertyNames, Object[] oldValues, Object[] newValues);
+    }
+
     /** Apply technology bindings at selected subtree of the HTML page.
      * Can be accessed via {@link Proto#applyBindings(java.lang.String)} or
      * via method <code>applyBindings(String)</code> generated when one
@@ -213,4 +236,53 @@ public interface Technology<Data> {
          */
         public Object toJavaScript(D data);
     }
+
+    /** Extension of {@link ToJavaScript} able to convert many objects at
+     * once. Used when an array of models is sent to the technology, so
+     * their JavaScript representations can be created in a single step
+     * rather than one by one.
+     *
+     * @param <D> the internal data type
+     * @since 1.8
+     */
+    public static interface BatchToJavaScript<D> extends ToJavaScript<D> {
+        /** Extracts JavaScript ready representations of all the data.
+         *
+         * @param data technology's internal data structures
+         * @return array of the same length as <code>data</code> with
+         *    object ready to represent each of the data in JavaScript
+         */
+        public Object[] toJavaScript(List<D> data);
+    }
+
+    /** Technologies that can update just a part of an array property
+     * implement this additional interface. When an element of a
+     * {@link java.util.List list} property is added, removed or replaced,
+     * the technology receives only the changed range instead of being asked
+     * to re-read the whole array via
+     * {@link ValueMutated#valueHasMutated(java.lang.Object, java.lang.String, java.lang.Object, java.lang.Object)}.
+     * Moves of elements are reported as a removal followed by an insertion.
+     *
+     * @param <D> the internal data type
+     * @since 1.8
+     */
+    public static interface ArrayChange<D> extends Technology<D> {
+        /** Elements of an array property have changed. The change is
+         * described the same way as JavaScript's {@code Array.splice}:
+         * <code>removeCount</code> elements at <code>index</code> are
+         * replaced by the <code>inserted</code> ones. Should the technology
+         * representation of the array have a different length than
+         * <code>size</code>, it is out of sync and the technology is
+         * supposed to re-read the whole array.
+         *
+         * @param data technology's own representation of the model
+         * @param propertyName name of the array property that changed
+         * @param size expected length of the array before the change
+         * @param index index of the first changed element
+         * @param removeCount number of elements removed at <code>index</code>
+         * @param inserted elements to insert at <code>index</code>, already
+         *    converted to the technology's representation
+         */
+        public void splice(D data, String propertyName, int size, int index, int removeCount, Object[] inserted);
+    }
 }
@@ -68,5 +68,54 @@ public interface Transfer {
      * @param call description of the call to make
      */
     public void loadJSON(JSONCall call);
-    
+
+    /** Extension of {@link Transfer} that can inspect many objects at once.
+     * When a JSON array is converted to models, each of its elements needs
+     * the same properties. Technologies that have to cross a bridge
+     * (like the one to a JavaScript engine) for each inspection should
+     * implement this interface and read all the values in a single call.
+     *
+     * @since 1.8
+     */
+    public static interface BatchExtract extends Transfer {
+        /** Inspects properties of many objects at once. The same
+         * as calling {@link #extract(java.lang.Object, java.lang.String[], java.lang.Object[])}
+         * for each of the objects.
+         *
+         * @param objs the objects to inspect
+         * @param props the names of properties to check on each of the objects
+         * @param values array of the same length as <code>objs</code> filled
+         *   with arrays of the same length as <code>props</code>. The array
+         *   at index <code>i</code> should be filled by values of properties
+         *   on <code>objs[i]</code>. If a property is
+         *   not defined, a <code>null</code> value should be stored
+         */
+        public void extract(Object[] objs, String[] props, Object[][] values);
+
+        /** JavaScript defining <code>function extractAll(object, props)</code>
+         * which returns an array with values of <code>props</code> on the
+         * <code>object</code> (<code>null</code> property name yields the
+         * object itself, Knockout observables are unwrapped). Browser based
+         * implementations can prefix their
+         * <code>@JavaScriptBody</code> bodies with it to
+         * implement {@link BatchExtract} in a single call.
+         *
+         * @since 1.8
+         */
+        public static final String EXTRACT_ALL =
+            "var unwrap = typeof ko !== 'undefined' && ko['utils'] && ko['utils']['unwrapObservable'];\n" + // NOI18N
+            "function extractAll(object, props) {\n" + // NOI18N
+            "  var ret = new Array(props.length);\n" + // NOI18N
+            "  for (var i = 0; i < props.length; i++) {\n" + // NOI18N
+            "    var v;\n" + // NOI18N
+            "    if (props[i] === null) v = object;\n" + // NOI18N
+            "    else if (object === null) v = null;\n" + // NOI18N
+            "    else v = object[props[i]];\n" + // NOI18N
+            "    if (typeof v === 'undefined' || v === null) v = null;\n" + // NOI18N
+            "    else if (unwrap) v = ko['utils']['unwrapObservable'](v);\n" + // NOI18N
+            "    ret[i] = v;\n" + // NOI18N
+            "  }\n" + // NOI18N
+            "  return ret;\n" + // NOI18N
+            "}\n"; // NOI18N
+    }
 }
@@ -0,0 +1,230 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package net.java.html.json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import net.java.html.BrwsrCtx;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.FunctionBinding;
+import org.netbeans.html.json.spi.PropertyBinding;
+import org.netbeans.html.json.spi.Technology;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class BatchTest implements Technology.BatchMutated<Object> {
+    private final List<String> single = new ArrayList<String>();
+    private final List<List<String>> batches = new ArrayList<List<String>>();
+    private BrwsrCtx ctx;
+
+    @BeforeMethod
+    public void initTechnology() {
+        single.clear();
+        batches.clear();
+        ctx = Contexts.newBuilder().register(Technology.class, this, 1).build();
+    }
+
+    @Test
+    public void changesAreReportedAtOnce() {
+        final Person p = Models.bind(new Person(), ctx);
+        Models.applyBindings(p);
+
+        batchUpdate(p);
+
+        assertTrue(single.isEmpty(), "No separate notifications: " + single);
+        assertEquals(batches.size(), 1, "One batch");
+        final List<String> names = batches.get(0);
+        assertEquals(names.size(), 7, "Each property just once: " + names);
+        assertTrue(names.containsAll(Arrays.asList("firstName", "lastName", "fullName", "sex", "sexType")), "All changes: " + names);
+        assertEquals(p.getFullName(), "Jaroslav Tulach");
+    }
+
+// BEGIN: net.java.html.json.BatchTest#batchUpdate
+    static void batchUpdate(final Person p) {
+        Models.batch(p, new Runnable() {
+            @Override
+            public void run() {
+                p.setFirstName("Jarda");
+                p.setFirstName("Jaroslav");
+                p.setLastName("Tulach");
+                p.setSex(Sex.MALE);
+            }
+        });
+    }
+// END: net.java.html.json.BatchTest#batchUpdate
+
+    @Test
+    public void nestedBatchIsFlushedByTheOuterOne() {
+        final Person p = Models.bind(new Person(), ctx);
+        Models.applyBindings(p);
+
+        Models.batch(p, new Runnable() {
+            @Override
+            public void run() {
+                batchUpdate(p);
+                assertTrue(batches.isEmpty(), "Nothing reported yet");
+                p.setLastName("Novak");
+            }
+        });
+
+        assertEquals(batches.size(), 1, "One batch");
+        assertEquals(p.getFullName(), "Jaroslav Novak");
+    }
+
+    @Test
+    public void changesAreReportedEvenOnException() {
+        final Person p = Models.bind(new Person(), ctx);
+        Models.applyBindings(p);
+
+        try {
+            Models.batch(p, new Runnable() {
+                @Override
+                public void run() {
+                    p.setFirstName("Jarda");
+                    throw new IllegalStateException();
+                }
+            });
+            fail("Exception expected");
+        } catch (IllegalStateException ex) {
+            // OK
+        }
+        assertEquals(batches.size(), 1, "Change reported");
+        p.setFirstName("Jaroslav");
+        assertEquals(batches.size(), 1, "No longer in batch");
+        assertTrue(single.contains("firstName"), "Reported directly: " + single);
+    }
+
+    @Test
+    public void batchCoversAllModelsChangedByTheThread() {
+        final Person p = Models.bind(new Person(), ctx);
+        final Person q = Models.bind(new Person(), ctx);
+        Models.applyBindings(p);
+        Models.applyBindings(q);
+
+        Models.batch(p, new Runnable() {
+            @Override
+            public void run() {
+                p.setFirstName("Jarda");
+                q.setFirstName("Zdenek");
+                q.setFirstName("Zdenda");
+                p.setLastName("Tulach");
+            }
+        });
+
+        assertTrue(single.isEmpty(), "No separate notifications: " + single);
+        assertEquals(batches.size(), 2, "One batch per model: " + batches);
+        assertTrue(batches.get(0).contains("lastName"), "First model first: " + batches);
+        final List<String> second = batches.get(1);
+        assertEquals(new HashSet<String>(second).size(), second.size(), "Each property just once: " + second);
+        assertTrue(second.containsAll(Arrays.asList("firstName", "fullName")), "Changes: " + second);
+        assertEquals(q.getFirstName(), "Zdenda");
+    }
+
+    @Test
+    public void changesOfOtherThreadsAreNotCaptured() throws Exception {
+        final Person p = Models.bind(new Person(), ctx);
+        Models.applyBindings(p);
+
+        Models.batch(p, new Runnable() {
+            @Override
+            public void run() {
+                p.setFirstName("Jarda");
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        p.setLastName("Tulach");
+                    }
+                };
+                t.start();
+                try {
+                    t.join();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+                assertTrue(single.contains("lastName"), "Reported directly: " + single);
+                assertTrue(batches.isEmpty(), "Batch not flushed yet");
+            }
+        });
+
+        assertEquals(batches.size(), 1, "One batch");
+        assertTrue(batches.get(0).contains("firstName"), "Own change: " + batches);
+        assertTrue(!batches.get(0).contains("lastName"), "Other thread's change isn't in the batch: " + batches);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void batchNeedsModel() {
+        Models.batch(new Object(), new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String[] propertyNames, Object[] oldValues, Object[] newValues) {
+        batches.add(Arrays.asList(propertyNames));
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String propertyName, Object oldValue, Object newValue) {
+        single.add(propertyName);
+    }
+
+    @Override
+    public Object wrapModel(Object model) {
+        return this;
+    }
+
+    @Override
+    public <M> M toModel(Class<M> modelClass, Object data) {
+        return modelClass.cast(data);
+    }
+
+    @Override
+    public void bind(PropertyBinding b, Object model, Object data) {
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String propertyName) {
+        single.add(propertyName);
+    }
+
+    @Override
+    public void expose(FunctionBinding fb, Object model, Object d) {
+    }
+
+    @Override
+    public void applyBindings(Object data) {
+    }
+
+    @Override
+    public Object wrapArray(Object[] arr) {
+        return arr;
+    }
+
+    @Override
+    public void runSafe(Runnable r) {
+        r.run();
+    }
+}
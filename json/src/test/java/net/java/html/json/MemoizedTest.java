@@ -0,0 +1,165 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package net.java.html.json;
+
+import static org.testng.Assert.assertEquals;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Model(className = "Rect", properties = {
+    @Property(name = "width", type = int.class),
+    @Property(name = "height", type = int.class),
+    @Property(name = "inner", type = Rect.class),
+})
+public class MemoizedTest {
+    static int areaCount;
+    static int totalCount;
+    static int doubleCount;
+
+// BEGIN: net.java.html.json.MemoizedTest#memoizedProperty
+    @ComputedProperty(memoize = true)
+    static int area(int width, int height) {
+        areaCount++;
+        return width * height;
+    }
+// END: net.java.html.json.MemoizedTest#memoizedProperty
+
+    @ComputedProperty(memoize = true)
+    static int total(Rect self) {
+        totalCount++;
+        return self.getArea() + (self.getInner() == null ? 0 : self.getInner().getTotal());
+    }
+
+    @ComputedProperty(memoize = true)
+    static int doubleArea(int width, int height) {
+        doubleCount++;
+        return 2 * width * height;
+    }
+
+    static int slowCount;
+    static Runnable duringCompute;
+
+    @ComputedProperty(memoize = true)
+    static int slowArea(int width, int height) {
+        slowCount++;
+        Runnable r = duringCompute;
+        duringCompute = null;
+        if (r != null) {
+            r.run();
+        }
+        return width * height;
+    }
+
+    @BeforeMethod
+    public void resetCounters() {
+        areaCount = 0;
+        totalCount = 0;
+        doubleCount = 0;
+        slowCount = 0;
+        duringCompute = null;
+    }
+
+    @Test
+    public void computedOnlyOnce() {
+        Rect r = new Rect(3, 4, null);
+        assertEquals(r.getArea(), 12);
+        assertEquals(r.getArea(), 12);
+        assertEquals(r.getArea(), 12);
+        assertEquals(areaCount, 1, "Computed just once");
+    }
+
+    @Test
+    public void recomputedAfterChange() {
+        Rect r = new Rect(3, 4, null);
+        assertEquals(r.getArea(), 12);
+        r.setWidth(5);
+        assertEquals(r.getArea(), 20);
+        assertEquals(r.getArea(), 20);
+        assertEquals(areaCount, 2, "Computed again after change");
+        r.setWidth(5);
+        assertEquals(r.getArea(), 20);
+        assertEquals(areaCount, 2, "No change, no computation");
+    }
+
+    @Test
+    public void modelParameterTracksDependencies() {
+        Rect r = new Rect(2, 3, null);
+        assertEquals(r.getTotal(), 6);
+        assertEquals(r.getTotal(), 6);
+        assertEquals(totalCount, 1);
+
+        r.setHeight(5);
+        assertEquals(r.getTotal(), 10);
+        assertEquals(totalCount, 2, "Change of height invalidates area and total");
+    }
+
+    @Test
+    public void nestedModelInvalidates() {
+        Rect inner = new Rect(1, 1, null);
+        Rect outer = new Rect(2, 2, inner);
+        assertEquals(outer.getTotal(), 5);
+        assertEquals(outer.getTotal(), 5);
+        assertEquals(totalCount, 2, "Outer and inner total computed once");
+
+        inner.setWidth(3);
+        assertEquals(outer.getTotal(), 7);
+        assertEquals(totalCount, 4, "Both recomputed");
+
+        assertEquals(outer.getTotal(), 7);
+        assertEquals(totalCount, 4, "Nothing changed");
+    }
+
+    @Test
+    public void invalidatedDuringComputation() throws Exception {
+        final Rect r = new Rect(3, 4, null);
+        duringCompute = new Runnable() {
+            @Override
+            public void run() {
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        r.setWidth(5);
+                    }
+                };
+                t.start();
+                try {
+                    t.join();
+                } catch (InterruptedException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        };
+        assertEquals(r.getSlowArea(), 12, "Computed from values read before the change");
+        assertEquals(r.getSlowArea(), 20, "The change isn't lost");
+        assertEquals(r.getSlowArea(), 20);
+        assertEquals(slowCount, 2, "Recomputed once after the change");
+    }
+
+    @Test
+    public void independentPropertiesStayMemoized() {
+        Rect r = new Rect(2, 3, null);
+        assertEquals(r.getDoubleArea(), 12);
+        assertEquals(r.getArea(), 6);
+        r.setInner(new Rect());
+        assertEquals(r.getDoubleArea(), 12);
+        assertEquals(r.getArea(), 6);
+        assertEquals(doubleCount, 1);
+        assertEquals(areaCount, 1);
+    }
+}
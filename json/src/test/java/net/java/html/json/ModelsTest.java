@@ -18,6 +18,8 @@
  */
 package net.java.html.json;
 
+import java.io.StringWriter;
+import java.util.Arrays;
 import static org.testng.Assert.*;
 import org.testng.annotations.Test;
 
@@ -45,4 +47,33 @@ public class ModelsTest {
     @Test public void randomClassIsNotModel() {
         assertFalse(Models.isModel(StringBuilder.class), "JDK classes are not model");
     }
+
+    @Test public void writeProducesSameTextAsToString() throws Exception {
+        People p = new People();
+        p.getInfo().add(new Person("J\"arda", "T\\ulach", Sex.MALE));
+        p.getInfo().add(new Person("Zde\nek", null, Sex.FEMALE));
+        p.getNicknames().add("yarda");
+        p.getAge().add(42);
+        p.getSex().add(Sex.MALE);
+
+        StringWriter w = new StringWriter();
+        Models.write(p, w);
+        assertEquals(w.toString(), p.toString());
+        assertTrue(w.toString().startsWith("{\"info\":[{\"firstName\":\"J\\\"arda\","), w.toString());
+
+        StringBuilder sb = new StringBuilder();
+        Models.write(p.getInfo(), sb);
+        assertEquals(sb.toString(), p.getInfo().toString());
+    }
+
+    @Test public void collectionsAreWrittenAsJSONArrays() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        Models.write(Arrays.asList(1, 2.5, true, "a\"b", null, Sex.MALE, 'c'), sb);
+        assertEquals(sb.toString(), "[1,2.5,true,\"a\\\"b\",null,\"MALE\",\"c\"]");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void writeRejectsNonModels() throws Exception {
+        Models.write(new Object(), new StringBuilder());
+    }
 }
\ No newline at end of file
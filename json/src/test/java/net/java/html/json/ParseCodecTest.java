@@ -0,0 +1,114 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package net.java.html.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import net.java.html.BrwsrCtx;
+import org.netbeans.html.context.spi.Contexts;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.fail;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ParseCodecTest {
+    private BrwsrCtx ctx;
+
+    @BeforeMethod
+    public void initContext() {
+        ctx = Contexts.newBuilder().build();
+    }
+
+    @Test
+    public void parsePrimitivesWithoutTechnology() throws IOException {
+        Types t = Models.parse(ctx, Types.class, stream("{ \"intX\" : 42, \"byteX\" : 300,"
+            + " \"shortX\" : -7, \"longX\" : 12345678901234, \"floatX\" : 1.5,"
+            + " \"doubleX\" : -2.5e3, \"charX\" : \"xyz\", \"StringX\" : \"a\\\"b\\u010d\","
+            + " \"boolX\" : true, \"unknown\" : { \"nested\" : [ 1, \"}\", { } ] } }"));
+        assertEquals(t.getIntX(), 42);
+        assertEquals(t.getByteX(), (byte) 300);
+        assertEquals(t.getShortX(), -7);
+        assertEquals(t.getLongX(), 12345678901234L);
+        assertEquals(t.getFloatX(), 1.5f);
+        assertEquals(t.getDoubleX(), -2500.0);
+        assertEquals(t.getCharX(), 'x');
+        assertEquals(t.getStringX(), "a\"b\u010d");
+        assertEquals(t.isBoolX(), true);
+    }
+
+    @Test
+    public void valuesAreConvertedLikeRawOnes() throws IOException {
+        Types t = Models.parse(ctx, Types.class, stream("{ \"intX\" : \"12\", \"longX\" : 7.9,"
+            + " \"doubleX\" : null, \"boolX\" : 1, \"charX\" : 65, \"StringX\" : 3 }"));
+        assertEquals(t.getIntX(), 12);
+        assertEquals(t.getLongX(), 7);
+        assertEquals(t.getDoubleX(), 0.0);
+        assertEquals(t.isBoolX(), true);
+        assertEquals(t.getCharX(), 'A');
+        assertEquals(t.getStringX(), "3");
+    }
+
+    @Test
+    public void parseNestedModelsAndArrays() throws IOException {
+        String json = "[ { \"info\" : [ { \"firstName\" : \"Jarda\", \"sex\" : \"MALE\" }, null ],"
+            + " \"nicknames\" : \"jst\", \"age\" : [ 42, 7 ], \"sex\" : [ \"FEMALE\" ] },"
+            + " { \"info\" : null, \"nicknames\" : [] } ]";
+        List<People> all = new ArrayList<People>();
+        Models.parse(ctx, People.class, stream(json), all);
+        assertEquals(all.size(), 2);
+        People first = all.get(0);
+        assertEquals(first.getInfo().size(), 2);
+        assertEquals(first.getInfo().get(0).getFirstName(), "Jarda");
+        assertEquals(first.getInfo().get(0).getSex(), Sex.MALE);
+        assertNull(first.getInfo().get(1));
+        assertEquals(first.getNicknames(), Models.asList("jst"), "Single value is an array of one element");
+        assertEquals(first.getAge(), Models.asList(42, 7));
+        assertEquals(first.getSex(), Models.asList(Sex.FEMALE));
+        assertEquals(all.get(1).getInfo().size(), 0);
+
+        People single = Models.parse(ctx, People.class, stream(json));
+        assertEquals(single.getNicknames().get(0), "jst", "First element of the array");
+        assertEquals(single.toString(), first.toString());
+    }
+
+    @Test
+    public void emptyArrayAndInvalidInput() throws IOException {
+        try {
+            Models.parse(ctx, Person.class, stream("[]"));
+            fail("Nothing to read");
+        } catch (EOFException ex) {
+            // OK
+        }
+        try {
+            Models.parse(ctx, Person.class, stream("{ \"firstName\" : \"A\" \"lastName\" : \"B\" }"));
+            fail("Missing comma");
+        } catch (IOException ex) {
+            assertEquals(ex.getClass(), IOException.class, ex.getMessage());
+        }
+    }
+
+    private static InputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package net.java.html.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import net.java.html.BrwsrCtx;
+import org.netbeans.html.context.spi.Contexts;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ParseEachTest {
+    private BrwsrCtx ctx;
+
+    @BeforeMethod
+    public void initContext() {
+        ctx = Contexts.newBuilder().build();
+    }
+
+    @Test
+    public void parseArrayOfPeople() throws IOException {
+        String json = "[ { \"info\" : [ { \"firstName\" : \"Jarda\", \"sex\" : \"MALE\" } ],"
+            + " \"nicknames\" : [ \"jst\", \"yarda\" ], \"age\" : [ 42, 7 ] },"
+            + " { \"info\" : [], \"nicknames\" : [ \"none\" ] } ]";
+        final List<People> all = new ArrayList<People>();
+        long cnt = Models.parseEach(ctx, People.class, stream(json), new Consumer<People>() {
+            @Override
+            public void accept(People p) {
+                all.add(p);
+            }
+        });
+        assertEquals(cnt, 2);
+        assertEquals(all.size(), 2);
+        People first = all.get(0);
+        assertEquals(first.getInfo().size(), 1);
+        assertEquals(first.getInfo().get(0).getFirstName(), "Jarda");
+        assertEquals(first.getInfo().get(0).getSex(), Sex.MALE);
+        assertEquals(first.getNicknames().toString(), "[\"jst\",\"yarda\"]");
+        assertEquals(first.getAge().toString(), "[42,7]");
+        assertEquals(all.get(1).getNicknames().toString(), "[\"none\"]");
+        assertTrue(all.get(1).getInfo().isEmpty());
+    }
+
+    @Test
+    public void parseSingleObject() throws IOException {
+        final List<Person> all = new ArrayList<Person>();
+        long cnt = Models.parseEach(ctx, Person.class, stream(
+            "{\"firstName\":\"Ji\\u0159\\u00ed\",\"lastName\":\"Doe\"}"
+        ), new Consumer<Person>() {
+            @Override
+            public void accept(Person p) {
+                all.add(p);
+            }
+        });
+        assertEquals(cnt, 1);
+        assertEquals(all.get(0).getFullName(), "Jiří Doe");
+    }
+
+    @Test
+    public void elementsAreReportedBeforeTheStreamIsRead() throws IOException {
+        final int size = 100000;
+        final GenerateStream is = new GenerateStream(size);
+        final int[] seen = { 0 };
+        long cnt = Models.parseEach(ctx, Person.class, is, new Consumer<Person>() {
+            @Override
+            public void accept(Person p) {
+                assertEquals(p.getFirstName(), "P" + seen[0]);
+                if (++seen[0] == size / 2) {
+                    is.generatedInMiddle = is.generated;
+                }
+            }
+        });
+        assertEquals(cnt, size);
+        assertEquals(seen[0], size);
+        assertTrue(is.generatedInMiddle < size / 2 + 1000, "Reading postponed until consumed: " + is.generatedInMiddle);
+    }
+
+    @Test
+    public void nullConsumerJustCounts() throws IOException {
+        long cnt = Models.parseEach(ctx, Person.class, new GenerateStream(1000), null);
+        assertEquals(cnt, 1000);
+    }
+
+    @Test
+    public void brokenJSON() throws IOException {
+        try {
+            Models.parseEach(ctx, Person.class, stream("[ {\"firstName\":\"a\"} {} ]"), null);
+            fail("Should fail");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("Expecting ','"), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void truncatedJSON() throws IOException {
+        for (String json : new String[] { "[", "[ {\"firstName\":\"a\"}", "[ {\"firstName\":\"a\"}, " }) {
+            try {
+                Models.parseEach(ctx, Person.class, stream(json), null);
+                fail("Should fail: " + json);
+            } catch (EOFException ex) {
+                // OK
+            }
+        }
+    }
+
+    private static InputStream stream(String json) throws IOException {
+        return new ByteArrayInputStream(json.getBytes("UTF-8"));
+    }
+
+    private static final class GenerateStream extends InputStream {
+        private final int size;
+        private byte[] current = { '[' };
+        private int at;
+        int generated;
+        int generatedInMiddle = -1;
+
+        GenerateStream(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (at == current.length) {
+                if (generated > size) {
+                    return -1;
+                }
+                String next;
+                if (generated == size) {
+                    next = "]";
+                } else {
+                    next = (generated == 0 ? "" : ",") + "{\"firstName\":\"P" + generated + "\"}";
+                }
+                generated++;
+                current = next.getBytes("UTF-8");
+                at = 0;
+            }
+            return current[at++];
+        }
+    }
+}
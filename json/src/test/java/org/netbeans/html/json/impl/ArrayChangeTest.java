@@ -0,0 +1,153 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.ComputedProperty;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import net.java.html.json.Property;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.FunctionBinding;
+import org.netbeans.html.json.spi.PropertyBinding;
+import org.netbeans.html.json.spi.Technology;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Model(className = "Queue", properties = {
+    @Property(name = "items", type = String.class, array = true)
+})
+public class ArrayChangeTest implements Technology.ArrayChange<Object> {
+    private final List<String> changed = new ArrayList<String>();
+    private final List<String> spliced = new ArrayList<String>();
+    private BrwsrCtx ctx;
+
+    @ComputedProperty
+    static int length(List<String> items) {
+        return items.size();
+    }
+
+    @BeforeMethod
+    public void initTechnology() {
+        changed.clear();
+        spliced.clear();
+        ctx = Contexts.newBuilder().register(Technology.class, this, 1).build();
+    }
+
+    @Test
+    public void singleElementChangesAreSpliced() {
+        Queue q = Models.bind(new Queue(), ctx);
+        Models.applyBindings(q);
+
+        q.getItems().add("a");
+        q.getItems().add("c");
+        q.getItems().add(1, "b");
+        q.getItems().set(2, "C");
+        q.getItems().remove(0);
+        q.getItems().remove("C");
+
+        assertEquals(spliced, Arrays.asList(
+            "items:0:0:0:[a]",
+            "items:1:1:0:[c]",
+            "items:2:1:0:[b]",
+            "items:3:2:1:[C]",
+            "items:3:0:1:[]",
+            "items:2:1:1:[]"
+        ));
+        assertEquals(changed, Collections.nCopies(6, "length"), "Only the dependent property is fully refreshed");
+        assertEquals(q.getLength(), 1);
+    }
+
+    @Test
+    public void rangeChangesAreSpliced() {
+        Queue q = Models.bind(new Queue("a", "b"), ctx);
+        Models.applyBindings(q);
+
+        q.getItems().addAll(Arrays.asList("c", "d", "e"));
+        q.getItems().addAll(1, Arrays.asList("x", "y"));
+        q.getItems().subList(0, 3).clear();
+
+        assertEquals(spliced, Arrays.asList(
+            "items:2:2:0:[c, d, e]",
+            "items:5:1:0:[x, y]",
+            "items:7:0:3:[]"
+        ));
+        assertEquals(q.getItems(), Arrays.asList("b", "c", "d", "e"));
+    }
+
+    @Test
+    public void reorderingRefreshesWholeArray() {
+        Queue q = Models.bind(new Queue("b", "a"), ctx);
+        Models.applyBindings(q);
+
+        Collections.sort(q.getItems());
+        q.getItems().clear();
+
+        assertTrue(spliced.isEmpty(), "No splices: " + spliced);
+        assertEquals(changed, Arrays.asList("items", "length", "items", "length"));
+    }
+
+    @Override
+    public void splice(Object data, String propertyName, int size, int index, int removeCount, Object[] inserted) {
+        spliced.add(propertyName + ":" + size + ":" + index + ":" + removeCount + ":" + Arrays.toString(inserted));
+    }
+
+    @Override
+    public Object wrapModel(Object model) {
+        return this;
+    }
+
+    @Override
+    public <M> M toModel(Class<M> modelClass, Object data) {
+        return modelClass.cast(data);
+    }
+
+    @Override
+    public void bind(PropertyBinding b, Object model, Object data) {
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String propertyName) {
+        changed.add(propertyName);
+    }
+
+    @Override
+    public void expose(FunctionBinding fb, Object model, Object d) {
+    }
+
+    @Override
+    public void applyBindings(Object data) {
+    }
+
+    @Override
+    public Object wrapArray(Object[] arr) {
+        return arr;
+    }
+
+    @Override
+    public void runSafe(Runnable r) {
+        r.run();
+    }
+}
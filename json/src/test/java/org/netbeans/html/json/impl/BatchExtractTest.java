@@ -0,0 +1,138 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import net.java.html.json.Person;
+import net.java.html.json.Property;
+import net.java.html.json.Sex;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.Transfer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import org.testng.annotations.Test;
+
+@Model(className = "Crowd", properties = {
+    @Property(name = "name", type = String.class),
+    @Property(name = "people", type = Person.class, array = true)
+})
+public class BatchExtractTest {
+    @Test
+    public void arrayOfModelsExtractedAtOnce() {
+        BatchTrans trans = new BatchTrans();
+        Crowd crowd = Models.fromRaw(context(trans), Crowd.class, crowd(1000));
+
+        assertEquals(crowd.getName(), "Crowd");
+        assertEquals(crowd.getPeople().size(), 1000);
+        assertEquals(crowd.getPeople().get(999).getFirstName(), "First999");
+        assertEquals(crowd.getPeople().get(999).getSex(), Sex.FEMALE);
+        assertNull(crowd.getPeople().get(500), "null element stays null");
+        assertEquals(trans.batchCalls, 1, "One batch call for all the people");
+        assertEquals(trans.singleCalls, 1, "One call for the crowd itself");
+    }
+
+    @Test
+    public void plainTransferReadsElementByElement() {
+        CountingTrans trans = new CountingTrans();
+        Crowd crowd = Models.fromRaw(context(trans), Crowd.class, crowd(10));
+        assertEquals(crowd.getPeople().size(), 10);
+        assertEquals(crowd.getPeople().get(3).getLastName(), "Last3");
+        assertEquals(trans.singleCalls, 1 + 9, "The crowd and each non-null person");
+    }
+
+    @Test
+    public void readArrayOfSingleObject() {
+        BatchTrans trans = new BatchTrans();
+        BrwsrCtx ctx = context(trans);
+        List<Person> people = JSON.readArray(ctx, Person.class, person(7));
+        assertEquals(people.size(), 1);
+        assertEquals(people.get(0).getFirstName(), "First7");
+        assertEquals(JSON.readArray(ctx, Person.class, null).size(), 0);
+    }
+
+    private static BrwsrCtx context(Transfer trans) {
+        return Contexts.newBuilder().register(Transfer.class, trans, 1).build();
+    }
+
+    private static Map<String, Object> crowd(int size) {
+        Object[] people = new Object[size];
+        for (int i = 0; i < size; i++) {
+            people[i] = i == size / 2 ? null : person(i);
+        }
+        Map<String, Object> crowd = new HashMap<String, Object>();
+        crowd.put("name", "Crowd");
+        crowd.put("people", people);
+        return crowd;
+    }
+
+    private static Map<String, Object> person(int i) {
+        Map<String, Object> person = new HashMap<String, Object>();
+        person.put("firstName", "First" + i);
+        person.put("lastName", "Last" + i);
+        person.put("sex", i % 2 == 0 ? "MALE" : "FEMALE");
+        return person;
+    }
+
+    private static class CountingTrans implements Transfer {
+        int singleCalls;
+
+        @Override
+        public void extract(Object obj, String[] props, Object[] values) {
+            singleCalls++;
+            Map<?, ?> map = (Map<?, ?>) obj;
+            for (int i = 0; i < props.length; i++) {
+                values[i] = map.get(props[i]);
+            }
+        }
+
+        @Override
+        public Object toJSON(InputStream is) throws IOException {
+            throw new IOException();
+        }
+
+        @Override
+        public void loadJSON(JSONCall call) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static final class BatchTrans extends CountingTrans
+    implements Transfer.BatchExtract {
+        int batchCalls;
+
+        @Override
+        public void extract(Object[] objs, String[] props, Object[][] values) {
+            batchCalls++;
+            for (int i = 0; i < objs.length; i++) {
+                Map<?, ?> map = (Map<?, ?>) objs[i];
+                for (int j = 0; j < props.length; j++) {
+                    values[i][j] = map.get(props[j]);
+                }
+            }
+        }
+    }
+}
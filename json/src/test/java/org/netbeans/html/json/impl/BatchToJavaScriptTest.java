@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Models;
+import net.java.html.json.People;
+import net.java.html.json.Person;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.FunctionBinding;
+import org.netbeans.html.json.spi.PropertyBinding;
+import org.netbeans.html.json.spi.Technology;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+public class BatchToJavaScriptTest implements Technology.BatchToJavaScript<Object[]> {
+    private final List<Integer> batches = new ArrayList<Integer>();
+    private int single;
+
+    @Test
+    public void arrayOfModelsIsConvertedAtOnce() {
+        BrwsrCtx c = Contexts.newBuilder().register(Technology.class, this, 1).build();
+        Person first = Models.bind(new Person("1", "A", null), c);
+        Person second = Models.bind(new Person("2", "B", null), c);
+        People people = Models.bind(new People(), c);
+        people.getInfo().add(first);
+        people.getInfo().add(second);
+        people.getInfo().add(first);
+
+        Object real = JSON.find(people.getInfo());
+
+        assertTrue(real instanceof Object[], "Array: " + real);
+        Object[] arr = (Object[]) real;
+        assertEquals(arr.length, 3);
+        assertEquals(batches.size(), 1, "One conversion");
+        assertEquals(batches.get(0).intValue(), 3, "All three elements");
+        assertEquals(single, 0, "No separate conversions");
+        assertSame(arr[0], arr[2], "Same model, same representation");
+        assertEquals(((Person) ((Object[]) arr[1])[0]).getFirstName(), "2");
+    }
+
+    @Override
+    public Object[] toJavaScript(List<Object[]> data) {
+        batches.add(data.size());
+        return data.toArray();
+    }
+
+    @Override
+    public Object toJavaScript(Object[] data) {
+        single++;
+        return data;
+    }
+
+    @Override
+    public Object[] wrapModel(Object model) {
+        return new Object[] { model };
+    }
+
+    @Override
+    public <M> M toModel(Class<M> modelClass, Object data) {
+        return modelClass.cast(((Object[]) data)[0]);
+    }
+
+    @Override
+    public void bind(PropertyBinding b, Object model, Object[] data) {
+    }
+
+    @Override
+    public void valueHasMutated(Object[] data, String propertyName) {
+    }
+
+    @Override
+    public void expose(FunctionBinding fb, Object model, Object[] data) {
+    }
+
+    @Override
+    public void applyBindings(Object[] data) {
+    }
+
+    @Override
+    public Object wrapArray(Object[] arr) {
+        return arr;
+    }
+
+    @Override
+    public void runSafe(Runnable r) {
+        r.run();
+    }
+}
@@ -137,6 +137,19 @@ public class JSONListTest implements Technology<Object> {
         assertEquals(pb.getValue(), this, "I am the model of the array");
     }
     
+    @Test public void lazyValueOfArray() {
+        BrwsrCtx c = Contexts.newBuilder().register(Technology.class, this, 1).build();
+
+        Person p = Models.bind(new Person(), c);
+        p.setFirstName("1");
+        People people = Models.bind(new People(p), c).applyBindings();
+
+        Object marker = new Object();
+        assertSame(bindings.get("info").getValueLazily(marker), marker, "Array of models isn't converted");
+        assertSame(bindings.get("nicknames").getValueLazily(marker), marker, "Array isn't converted");
+        assertTrue(bindings.get("info").getValue() instanceof Object[], "Converted on request");
+    }
+
     @Test public void toStringOnArrayOfStrings() {
         JSNLst l = new JSNLst("Jarda", "Jirka", "Parda");
         assertEquals(l.toString(), "{\"names\":[\"Jarda\",\"Jirka\",\"Parda\"]}", "Properly quoted");
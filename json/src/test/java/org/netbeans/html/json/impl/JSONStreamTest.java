@@ -0,0 +1,199 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+import org.testng.annotations.Test;
+
+public class JSONStreamTest {
+    @Test
+    public void parseObject() throws Exception {
+        Object obj = parse("{ \"name\" : \"J\u00e1ra\", \"age\": 42, \"big\": 12345678901,"
+            + " \"ratio\": -1.5e2, \"ok\": true, \"no\": false, \"nothing\": null,"
+            + " \"inner\": { \"list\": [1, \"two\", []] } }");
+        assertTrue(obj instanceof Map, "Object is a map: " + obj);
+        Map<?, ?> map = (Map<?, ?>) obj;
+        assertEquals(map.get("name"), "J\u00e1ra");
+        assertEquals(map.get("age"), 42);
+        assertEquals(map.get("big"), 12345678901L);
+        assertEquals(map.get("ratio"), -150.0);
+        assertEquals(map.get("ok"), Boolean.TRUE);
+        assertEquals(map.get("no"), Boolean.FALSE);
+        assertTrue(map.containsKey("nothing"));
+        assertNull(map.get("nothing"));
+        Map<?, ?> inner = (Map<?, ?>) map.get("inner");
+        Object[] list = (Object[]) inner.get("list");
+        assertEquals(list.length, 3);
+        assertEquals(list[0], 1);
+        assertEquals(list[1], "two");
+        assertEquals(((Object[]) list[2]).length, 0);
+    }
+
+    @Test
+    public void parseArrayOfObjects() throws Exception {
+        Object[] arr = (Object[]) parse("[{\"x\":1},{\"x\":2},{}]");
+        assertEquals(arr.length, 3);
+        assertEquals(((Map<?, ?>) arr[1]).get("x"), 2);
+        assertTrue(((Map<?, ?>) arr[2]).isEmpty());
+    }
+
+    @Test
+    public void escapes() throws Exception {
+        assertEquals(parse("\"a\\\"b\\\\c\\/d\\n\\t\\u0041\\u010d\""), "a\"b\\c/d\n\tA\u010d");
+    }
+
+    @Test
+    public void toStringIsJSON() throws Exception {
+        final String json = "{\"a\":[1,\"x\\\"y\",null],\"b\":{\"c\":true}}";
+        assertEquals(parse(json).toString(), json);
+    }
+
+    @Test
+    public void trailingJSONPCharactersIgnored() throws Exception {
+        Map<?, ?> map = (Map<?, ?>) parse("{\"x\":\"y\"});");
+        assertEquals(map.get("x"), "y");
+    }
+
+    @Test
+    public void longStringsAcrossBuffers() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        Object[] arr = (Object[]) parse("[\"" + sb + "\", 12345]");
+        assertEquals(arr[0], sb.toString());
+        assertEquals(arr[1], 12345);
+    }
+
+    @Test
+    public void invalidInput() throws Exception {
+        try {
+            parse("{\"x\" 1}");
+            fail("Missing colon");
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("':'"), ex.getMessage());
+        }
+        try {
+            parse("[1, 2");
+            fail("Unterminated array");
+        } catch (EOFException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void truncatedArrayElements() throws Exception {
+        for (String json : new String[] { "[", "[ ", "[1", "[1,", "[{}" }) {
+            JSONStream stream = new JSONStream(new StringReader(json));
+            assertTrue(stream.startArray(), "Starts with an array: " + json);
+            try {
+                while (stream.hasNext()) {
+                    stream.value();
+                }
+                fail("Truncated array should fail: " + json);
+            } catch (EOFException ex) {
+                // OK
+            }
+        }
+    }
+
+    @Test
+    public void malformedArrayElements() throws Exception {
+        JSONStream stream = new JSONStream(new StringReader("[1 2]"));
+        assertTrue(stream.startArray());
+        assertTrue(stream.hasNext());
+        assertEquals(stream.value(), 1);
+        try {
+            stream.hasNext();
+            fail("Missing comma");
+        } catch (EOFException ex) {
+            fail("Not an end of input", ex);
+        } catch (IOException ex) {
+            assertTrue(ex.getMessage().contains("Expecting ','"), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void tokensOfTruncatedInput() throws Exception {
+        JSONStream stream = new JSONStream(new StringReader("{\"x\":[1,"));
+        stream.beginObject();
+        assertEquals(stream.nextName(), "x");
+        assertTrue(stream.beginArray());
+        assertTrue(stream.hasNextElement());
+        assertEquals(stream.nextInt(), 1);
+        assertTrue(stream.hasNextElement());
+        try {
+            stream.nextInt();
+            fail("Truncated number");
+        } catch (EOFException ex) {
+            // OK
+        }
+    }
+
+    @Test
+    public void truncatedInput() throws Exception {
+        for (String json : new String[] { "[", "[ ", "{", "{\"x\":", "\"abc", "tru", "[1,", "-" }) {
+            try {
+                parse(json);
+                fail("Truncated input should fail: " + json);
+            } catch (EOFException ex) {
+                // OK
+            }
+        }
+    }
+
+    @Test
+    public void numbersFollowGrammar() throws Exception {
+        assertEquals(parse("0"), 0);
+        assertEquals(parse("-0.5e+1"), -5.0);
+        assertEquals(parse("[10,2E3]").getClass(), Object[].class);
+        for (String json : new String[] { "[012]", "[1-2]", "[-01]", "[1.]", "[.5]", "[1e]", "[+1]", "[--1]", "[1e2e3]" }) {
+            try {
+                parse(json);
+                fail("Invalid number should fail: " + json);
+            } catch (EOFException ex) {
+                fail("Not an end of input: " + json, ex);
+            } catch (IOException ex) {
+                // OK
+            }
+            JSONStream stream = new JSONStream(new StringReader(json));
+            assertTrue(stream.beginArray());
+            assertTrue(stream.hasNextElement());
+            try {
+                stream.nextDouble();
+                fail("Invalid number should fail: " + json);
+            } catch (EOFException ex) {
+                fail("Not an end of input: " + json, ex);
+            } catch (IOException ex) {
+                // OK
+            }
+        }
+    }
+
+    private static Object parse(String json) throws IOException {
+        return new JSONStream(new StringReader(json)).value();
+    }
+}
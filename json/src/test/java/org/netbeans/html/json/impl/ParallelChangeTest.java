@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import net.java.html.BrwsrCtx;
 import net.java.html.json.ComputedProperty;
@@ -56,6 +57,37 @@ public class ParallelChangeTest {
         doTest(false);
     }
 
+    @Test
+    public void accessFromOtherThreadIsNotTracked() throws Exception {
+        BlockingValue blocking = BlockingValueCntrl.create(c);
+        Depending dep = DependingCntrl.create(c, blocking, 10);
+        BlockingValue other = BlockingValueCntrl.create(c);
+        other.setValue(3);
+
+        CountDownLatch inCall = new CountDownLatch(2);
+        BlockingValueCntrl.initialize(inCall);
+        ExecutorService exec = Executors.newSingleThreadExecutor();
+        Future<Integer> result = exec.submit(dep::getValuePlusAdd);
+        while (inCall.getCount() == 2) {
+            Thread.sleep(10);
+        }
+        assertEquals(other.getValue(), 3, "Read while other thread computes");
+        inCall.countDown();
+        assertEquals(result.get().intValue(), 11);
+        BlockingValueCntrl.initialize(null);
+        exec.shutdown();
+
+        Map raw = (Map) Models.toRaw(dep);
+        One value = (One) raw.get("valuePlusAdd");
+        value.changes = 0;
+
+        other.setValue(5);
+        value.assertNoChange("Unrelated model read by other thread");
+
+        blocking.setValue(7);
+        value.assertChange("Dependency changed");
+    }
+
     private void doTest(boolean multipleValues) throws InterruptedException {
         class Test implements Runnable {
             final int offset;
@@ -0,0 +1,160 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Models;
+import net.java.html.json.Person;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.ResponseCache;
+import org.netbeans.html.json.spi.Transfer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ResponseCacheTest {
+    private CachingTrans trans;
+    private ResponseCache cache;
+    private Employee e;
+
+    @BeforeMethod
+    public void initContext() {
+        trans = new CachingTrans();
+        cache = new ResponseCache(1);
+        BrwsrCtx ctx = Contexts.newBuilder()
+            .register(Transfer.class, trans, 1)
+            .register(ResponseCache.class, cache, 1)
+            .build();
+        e = Models.bind(new Employee(), ctx);
+    }
+
+    @Test
+    public void freshResponseServedFromCache() {
+        trans.headers.put("Cache-Control", "public, max-age=60");
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 1);
+        assertEquals(e.getPerson().getFirstName(), "Jarda");
+
+        e.setPerson(null);
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 1, "No new request");
+        assertNotNull(e.getPerson(), "Person delivered from the cache");
+        assertEquals(e.getPerson().getFirstName(), "Jarda");
+        assertEquals(cache.getHitCount(), 1);
+        assertEquals(cache.getMissCount(), 1);
+    }
+
+    @Test
+    public void staleResponseRevalidated() {
+        trans.headers.put("ETag", "\"v1\"");
+        trans.headers.put("Last-Modified", "Thu, 1 Jan 1970 00:00:00 GMT");
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 1);
+        assertNull(trans.calls.get(0).getHeaders(), "No conditional headers yet");
+
+        e.setPerson(null);
+        trans.notModified = true;
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 2, "Revalidation request sent");
+        String headers = trans.calls.get(1).getHeaders();
+        assertTrue(headers.contains("If-None-Match: \"v1\""), headers);
+        assertTrue(headers.contains("If-Modified-Since: Thu, 1 Jan 1970"), headers);
+        assertNotNull(e.getPerson(), "Cached person delivered");
+        assertEquals(e.getPerson().getLastName(), "Tulach");
+        assertEquals(cache.getRevalidatedCount(), 1);
+        assertEquals(cache.getHitCount(), 0);
+    }
+
+    @Test
+    public void noStoreIsNotCached() {
+        trans.headers.put("Cache-Control", "no-store");
+        trans.headers.put("ETag", "\"v1\"");
+        e.changePersonality();
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 2);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getMissCount(), 2);
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() {
+        trans.headers.put("Cache-Control", "max-age=60");
+        e.changePersonality();
+        e.changePersonalities(1, 2.0, "3", null);
+        assertEquals(cache.size(), 1);
+        assertEquals(cache.getEvictionCount(), 1);
+        e.changePersonality();
+        assertEquals(trans.calls.size(), 3, "Evicted entry requested again");
+    }
+
+    @Test
+    public void modifyingRequestsNotCached() {
+        trans.headers.put("Cache-Control", "max-age=60");
+        e.updatePersonalities("some/url", new Person(), 1, 2.0, "3", null);
+        e.updatePersonalities("some/url", new Person(), 1, 2.0, "3", null);
+        assertEquals(trans.calls.size(), 2);
+        assertEquals(cache.size(), 0);
+        assertEquals(cache.getMissCount(), 0, "Cache not consulted");
+    }
+
+    private static final class CachingTrans implements Transfer {
+        final List<JSONCall> calls = new ArrayList<JSONCall>();
+        final Map<String, String> headers = new HashMap<String, String>();
+        boolean notModified;
+
+        @Override
+        public void extract(Object obj, String[] props, Object[] values) {
+            Map<?, ?> map = (Map<?, ?>) obj;
+            for (int i = 0; i < props.length; i++) {
+                values[i] = map.get(props[i]);
+            }
+        }
+
+        @Override
+        public Object toJSON(InputStream is) throws IOException {
+            throw new IOException();
+        }
+
+        @Override
+        public void loadJSON(JSONCall call) {
+            calls.add(call);
+            for (Map.Entry<String, String> entry : headers.entrySet()) {
+                call.setResponseHeader(entry.getKey(), entry.getValue());
+            }
+            if (notModified) {
+                call.notifyNotModified();
+                return;
+            }
+            Map<String, String> result = new HashMap<String, String>();
+            result.put("firstName", "Jarda");
+            result.put("lastName", "Tulach");
+            call.notifySuccess(result);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Models;
+import net.java.html.json.Person;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.Transfer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import org.testng.annotations.Test;
+
+public class SingleFlightTest {
+    @Test
+    public void identicalRequestsShareOneFetch() {
+        PendingTrans trans = new PendingTrans();
+        Employee first = newEmployee(trans);
+        Employee second = newEmployee(trans);
+
+        first.changePersonality();
+        second.changePersonality();
+        assertEquals(trans.calls.size(), 1, "Only one request sent");
+        assertNull(first.getPerson().getFirstName(), "No reply yet");
+
+        trans.reply(0, "Jarda");
+        assertEquals(first.getPerson().getFirstName(), "Jarda");
+        assertEquals(second.getPerson().getFirstName(), "Jarda", "Shared result delivered to second model too");
+
+        first.changePersonality();
+        assertEquals(trans.calls.size(), 2, "Finished request isn't shared anymore");
+    }
+
+    @Test
+    public void differentRequestsAreNotShared() {
+        PendingTrans trans = new PendingTrans();
+        Employee e = newEmployee(trans);
+        e.changePersonality();
+        e.changePersonalities(1, 2.0, "3", null);
+        e.updatePersonalities("some/url", new Person("A", "B", null), 1, 2.0, "3", null);
+        e.updatePersonalities("some/url", new Person("C", "D", null), 1, 2.0, "3", null);
+        assertEquals(trans.calls.size(), 4, "Different URL or data means different request");
+
+        PendingTrans other = new PendingTrans();
+        newEmployee(other).changePersonality();
+        assertEquals(other.calls.size(), 1, "Other transfer makes its own request");
+    }
+
+    @Test
+    public void writesAreNotShared() {
+        PendingTrans trans = new PendingTrans();
+        Person data = new Person("A", "B", null);
+        newEmployee(trans).updatePersonalities("some/url", data, 1, 2.0, "3", null);
+        newEmployee(trans).updatePersonalities("some/url", data, 1, 2.0, "3", null);
+        assertEquals(trans.calls.size(), 2, "Each PUT is sent on its own");
+    }
+
+    @Test
+    public void errorIsShared() {
+        PendingTrans trans = new PendingTrans();
+        Employee first = newEmployee(trans);
+        Employee second = newEmployee(trans);
+        first.changePersonalitiesWithEx(1, 2.0, "3", null);
+        second.changePersonalitiesWithEx(1, 2.0, "3", null);
+        assertEquals(trans.calls.size(), 1);
+
+        trans.calls.get(0).notifyError(new IOException("Failure"));
+        assertNotNull(first.getCall(), "Error handler called");
+        assertNotNull(second.getCall(), "Error handler called for second model");
+        assertEquals(second.getCall().getI(), -1);
+    }
+
+    private static Employee newEmployee(Transfer trans) {
+        BrwsrCtx ctx = Contexts.newBuilder().register(Transfer.class, trans, 1).build();
+        return Models.bind(new Employee(), ctx);
+    }
+
+    private static final class PendingTrans implements Transfer {
+        final List<JSONCall> calls = new ArrayList<JSONCall>();
+
+        void reply(int index, String name) {
+            Map<String, String> result = new HashMap<String, String>();
+            result.put("firstName", name);
+            calls.get(index).notifySuccess(result);
+        }
+
+        @Override
+        public void extract(Object obj, String[] props, Object[] values) {
+            Map<?, ?> map = (Map<?, ?>) obj;
+            for (int i = 0; i < props.length; i++) {
+                values[i] = map.get(props[i]);
+            }
+        }
+
+        @Override
+        public Object toJSON(InputStream is) throws IOException {
+            throw new IOException();
+        }
+
+        @Override
+        public void loadJSON(JSONCall call) {
+            calls.add(call);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.spi;
+
+import java.util.concurrent.TimeUnit;
+import net.java.html.json.ComputedProperty;
+import net.java.html.json.Model;
+import net.java.html.json.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Measures throughput of computed property evaluation with dependency
+ * tracking. Each thread works with its own chain of models. Run as:
+ * <pre>
+ * java -cp target/test-classes:... org.openjdk.jmh.Main ComputedPropertyBenchmark
+ * </pre>
+ */
+@Model(className = "Link", properties = {
+    @Property(name = "value", type = int.class),
+    @Property(name = "next", type = Link.class)
+})
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class ComputedPropertyBenchmark {
+    private Link root;
+
+    @ComputedProperty
+    static int total(int value, Link next) {
+        return next == null ? value : value + next.getTotal();
+    }
+
+    @Setup
+    public void createChain() {
+        Link last = new Link(1, null);
+        Link middle = new Link(2, last);
+        root = new Link(3, middle);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int singleThread() {
+        return changeAndCompute();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int sixteenThreads() {
+        return changeAndCompute();
+    }
+
+    private int changeAndCompute() {
+        Link next = root.getNext();
+        next.setValue(next.getValue() + 1);
+        return root.getTotal();
+    }
+}
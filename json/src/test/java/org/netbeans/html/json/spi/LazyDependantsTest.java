@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.json.spi;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.ComputedProperty;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import net.java.html.json.Property;
+import org.netbeans.html.context.spi.Contexts;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Model(className = "OrderLine", properties = {
+    @Property(name = "price", type = int.class),
+    @Property(name = "count", type = int.class),
+})
+public class LazyDependantsTest implements Technology.ValueMutated<Object> {
+    private static int computed;
+    private final List<String> names = new ArrayList<String>();
+    private final List<Object> values = new ArrayList<Object>();
+    private BrwsrCtx ctx;
+
+    @ComputedProperty
+    static int total(int price, int count) {
+        computed++;
+        return price * count;
+    }
+
+    @ComputedProperty(lazy = true)
+    static int totalWithTax(int price, int count) {
+        computed++;
+        return price * count * 121 / 100;
+    }
+
+    @BeforeMethod
+    public void initTechnology() {
+        computed = 0;
+        names.clear();
+        values.clear();
+        ctx = Contexts.newBuilder().register(Technology.class, this, 1).build();
+    }
+
+    @Test
+    public void eagerDependantComputedBySetter() {
+        OrderLine line = Models.bind(new OrderLine(), ctx);
+        Models.applyBindings(line);
+        computed = 0;
+
+        line.setCount(2);
+        assertEquals(computed, 1, "Only the eager dependant computed by the setter");
+        assertEquals(names.toString(), "[count, total, totalWithTax]");
+        assertEquals(values.get(1), 0, "Value of total is sent");
+
+        line.setPrice(100);
+        assertEquals(values.get(4), 200, "New value of total is sent");
+    }
+
+    @Test
+    public void lazyDependantJustReportsChange() {
+        OrderLine line = Models.bind(new OrderLine(), ctx);
+        Models.applyBindings(line);
+        computed = 0;
+
+        line.setPrice(100);
+        line.setCount(3);
+        assertEquals(names.toString(), "[price, total, totalWithTax, count, total, totalWithTax]");
+        assertNull(values.get(2), "No value for totalWithTax");
+        assertNull(values.get(5), "No value for totalWithTax");
+        assertEquals(computed, 2, "Just total computed, twice");
+
+        assertEquals(line.getTotalWithTax(), 363);
+        assertEquals(computed, 3, "Computed on demand");
+        assertTrue(values.contains(100), "Value of the changed property itself is known: " + values);
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String propertyName, Object oldValue, Object newValue) {
+        names.add(propertyName);
+        values.add(newValue);
+    }
+
+    @Override
+    public Object wrapModel(Object model) {
+        return this;
+    }
+
+    @Override
+    public <M> M toModel(Class<M> modelClass, Object data) {
+        return modelClass.cast(data);
+    }
+
+    @Override
+    public void bind(PropertyBinding b, Object model, Object data) {
+    }
+
+    @Override
+    public void valueHasMutated(Object data, String propertyName) {
+        names.add(propertyName);
+        values.add(null);
+    }
+
+    @Override
+    public void expose(FunctionBinding fb, Object model, Object d) {
+    }
+
+    @Override
+    public void applyBindings(Object data) {
+    }
+
+    @Override
+    public Object wrapArray(Object[] arr) {
+        return arr;
+    }
+
+    @Override
+    public void runSafe(Runnable r) {
+        r.run();
+    }
+}
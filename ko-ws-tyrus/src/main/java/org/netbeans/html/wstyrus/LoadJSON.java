@@ -30,6 +30,7 @@ import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -77,6 +78,7 @@ final class LoadJSON implements Runnable {
         final String url;
         Throwable error = null;
         Object json = null;
+        boolean notModified = false;
 
         if (call.isJSONP()) {
             url = call.composeURL("dummy");
@@ -119,6 +121,20 @@ final class LoadJSON implements Runnable {
                 call.writeData(os);
                 os.flush();
             }
+            for (Map.Entry<String, List<String>> e : conn.getHeaderFields().entrySet()) {
+                if (e.getKey() != null) {
+                    for (String v : e.getValue()) {
+                        call.setResponseHeader(e.getKey(), v);
+                    }
+                }
+            }
+            if (conn instanceof HttpURLConnection
+                && ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED
+            ) {
+                conn.getInputStream().close();
+                notModified = true;
+                return;
+            }
             final PushbackInputStream is = new PushbackInputStream(
                 conn.getInputStream(), 1
             );
@@ -149,6 +165,8 @@ final class LoadJSON implements Runnable {
         } finally {
             if (error != null) {
                 call.notifyError(error);
+            } else if (notModified) {
+                call.notifyNotModified();
             } else {
                 call.notifySuccess(json);
             }
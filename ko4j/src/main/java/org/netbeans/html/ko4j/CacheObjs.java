@@ -16,53 +16,179 @@
  * specific language governing permissions and limitations
  * under the License.
  */
-
 package org.netbeans.html.ko4j;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.netbeans.html.boot.spi.Fn;
 
-final class CacheObjs {
-    /* both @GuardedBy CacheObjs.class */
-    private static final CacheObjs[] list = new CacheObjs[16];
-    private static int listAt = 0;
-    private final Fn.Ref<?> ref;
+/** Pool of empty JavaScript objects to wrap models into. One pool is kept
+ * for each presenter. The pool is refilled by allocating a batch of objects
+ * at once - starting with the low watermark and doubling up to the high one.
+ * Objects {@link #recycle(java.lang.Object) returned} to the pool are reused,
+ * unless the pool exceeds its high watermark - then it is trimmed down to
+ * the low one. The watermarks can be set by
+ * <code>org.netbeans.html.ko4j.pool.low</code> and
+ * <code>org.netbeans.html.ko4j.pool.high</code> system properties.
+ * The counters are available via {@link KO4J#objectPoolStatistics(org.netbeans.html.boot.spi.Fn.Presenter)}.
+ */
+class CacheObjs {
+    private static final Logger LOG = Logger.getLogger(CacheObjs.class.getName());
+    static final int LOW = Integer.getInteger("org.netbeans.html.ko4j.pool.low", 64); // NOI18N
+    static final int HIGH = Integer.getInteger("org.netbeans.html.ko4j.pool.high", 4096); // NOI18N
 
-    /* both @GuardedBy presenter single threaded access */
-    private Object[] jsObjects;
-    private int jsIndex;
+    /* @GuardedBy CacheObjs.class */
+    private static final Map<Fn.Presenter, CacheObjs> pools = new WeakHashMap<Fn.Presenter, CacheObjs>();
 
-    private CacheObjs(Fn.Presenter p) {
-        this.ref = Fn.ref(p);
-    }
+    private final int low;
+    private final int high;
+
+    /* all @GuardedBy presenter single threaded access */
+    private Object[] jsObjects;
+    private int size;
+    private int batch;
+    private long hits;
+    private long misses;
+    private long recycled;
+    private long dropped;
 
-    Fn.Presenter get() {
-        return ref == null ? null : ref.presenter();
+    CacheObjs(int low, int high) {
+        this.low = Math.max(1, low);
+        this.high = Math.max(this.low, high);
+        this.batch = this.low;
     }
 
     static synchronized CacheObjs find(Fn.Presenter key) {
-        for (int i = 0; i < list.length; i++) {
-            if (list[i] != null && list[i].get() == key) {
-                return list[i];
-            }
+        CacheObjs co = pools.get(key);
+        if (co == null) {
+            co = new CacheObjs(LOW, HIGH);
+            pools.put(key, co);
         }
-        CacheObjs co = new CacheObjs(key);
-        list[listAt] = co;
-        listAt = (listAt + 1) % list.length;
         return co;
     }
 
     Object getJSObject() {
-        int len = 64;
-        if (jsObjects != null && jsIndex < (len = jsObjects.length)) {
-            Object ret = jsObjects[jsIndex];
-            jsObjects[jsIndex] = null;
-            jsIndex++;
-            return ret;
+        if (size == 0) {
+            misses++;
+            refill(1);
+        } else {
+            hits++;
+        }
+        Object ret = jsObjects[--size];
+        jsObjects[size] = null;
+        return ret;
+    }
+
+    /** Obtains many objects at once. Makes at most one allocation.
+     *
+     * @param cnt number of objects
+     * @return array with <code>cnt</code> objects
+     */
+    Object[] getJSObjects(int cnt) {
+        if (size < cnt) {
+            hits += size;
+            misses += cnt - size;
+            refill(cnt - size);
+        } else {
+            hits += cnt;
+        }
+        Object[] ret = new Object[cnt];
+        size -= cnt;
+        System.arraycopy(jsObjects, size, ret, 0, cnt);
+        for (int i = size; i < size + cnt; i++) {
+            jsObjects[i] = null;
         }
-        jsObjects = Knockout.allocJS(len * 2);
-        jsIndex = 1;
-        Object ret = jsObjects[0];
-        jsObjects[0] = null;
         return ret;
     }
+
+    /** Returns no longer used, already cleaned object to the pool.
+     *
+     * @param js the object
+     */
+    void recycle(Object js) {
+        if (js == null) {
+            return;
+        }
+        if (size >= high) {
+            dropped += size - low + 1;
+            for (int i = low; i < size; i++) {
+                jsObjects[i] = null;
+            }
+            size = low;
+            return;
+        }
+        ensureCapacity(size + 1);
+        jsObjects[size++] = js;
+        recycled++;
+    }
+
+    private void refill(int atLeast) {
+        int cnt = Math.max(batch, atLeast);
+        batch = Math.min(batch * 2, high);
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.log(Level.FINE, "Allocating {0} objects", cnt);
+        }
+        Object[] fresh = allocate(cnt);
+        ensureCapacity(size + fresh.length);
+        System.arraycopy(fresh, 0, jsObjects, size, fresh.length);
+        size += fresh.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (jsObjects == null) {
+            jsObjects = new Object[Math.max(capacity, low)];
+        } else if (jsObjects.length < capacity) {
+            Object[] arr = new Object[Math.max(capacity, jsObjects.length * 2)];
+            System.arraycopy(jsObjects, 0, arr, 0, size);
+            jsObjects = arr;
+        }
+    }
+
+    Object[] allocate(int cnt) {
+        return Knockout.allocJS(cnt);
+    }
+
+    int size() {
+        return size;
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    long recycled() {
+        return recycled;
+    }
+
+    long dropped() {
+        return dropped;
+    }
+
+    /** Snapshot of the counters.
+     *
+     * @return map with <code>size</code>, <code>hits</code>,
+     *   <code>misses</code>, <code>recycled</code> and <code>dropped</code>
+     */
+    Map<String, Long> statistics() {
+        Map<String, Long> stats = new LinkedHashMap<String, Long>();
+        stats.put("size", (long) size); // NOI18N
+        stats.put("hits", hits); // NOI18N
+        stats.put("misses", misses); // NOI18N
+        stats.put("recycled", recycled); // NOI18N
+        stats.put("dropped", dropped); // NOI18N
+        return stats;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheObjs[size=" + size + ", hits=" + hits + ", misses=" + misses
+            + ", recycled=" + recycled + ", dropped=" + dropped + "]";
+    }
 }
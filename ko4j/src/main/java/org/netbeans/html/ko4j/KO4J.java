@@ -18,6 +18,7 @@
  */
 package org.netbeans.html.ko4j;
 
+import java.util.Map;
 import net.java.html.json.Model;
 import net.java.html.json.OnReceive;
 import org.netbeans.html.boot.spi.Fn;
@@ -47,6 +48,11 @@ import org.openide.util.lookup.ServiceProvider;
  *   subprotocol.
  * </li>
  * </ul>
+ * <p>
+ * By default values of all properties are sent to the page when a model
+ * is bound. Run with <code>-Dorg.netbeans.html.ko4j.lazy=true</code> to
+ * send nested models and lists only when the page reads them - useful for
+ * big models only partially rendered (since 1.8).
  *
  * @author Jaroslav Tulach
  * @since 0.7
@@ -104,6 +110,44 @@ public final class KO4J implements Provider {
         return socks;
     }
 
+    /** Statistics of the pool of JavaScript objects the models are
+     * wrapped into. Each presenter has its own pool. Useful when tuning
+     * the <code>org.netbeans.html.ko4j.pool.low</code> and
+     * <code>org.netbeans.html.ko4j.pool.high</code> watermarks.
+     * The map contains:
+     * <ul>
+     *   <li><code>size</code> - objects ready in the pool</li>
+     *   <li><code>hits</code> - objects served from the pool</li>
+     *   <li><code>misses</code> - objects that had to be allocated</li>
+     *   <li><code>recycled</code> - released objects returned to the pool</li>
+     *   <li><code>dropped</code> - objects dropped when trimming the pool</li>
+     * </ul>
+     * The values are a snapshot taken when the method is called.
+     *
+     * @param presenter the presenter to get the statistics for
+     * @return map from the names above to their counts
+     * @since 1.8
+     */
+    public static Map<String, Long> objectPoolStatistics(Fn.Presenter presenter) {
+        return CacheObjs.find(presenter).statistics();
+    }
+
+    /** Disposes the JavaScript object of a model in the active presenter.
+     * The object is cleaned and returned to the {@link #objectPoolStatistics(org.netbeans.html.boot.spi.Fn.Presenter) pool},
+     * so it can later represent another model. Call only when
+     * no JavaScript code references the object anymore - the model is no
+     * longer bound to any element, it is not part of another model and
+     * its {@link net.java.html.json.Models#toRaw(java.lang.Object) raw}
+     * object was not handed to any script. Should the model be used again,
+     * it gets a new JavaScript object.
+     *
+     * @param model instance of a class generated by {@link Model} annotation
+     * @since 1.8
+     */
+    public static void dispose(Object model) {
+        KOTech.dispose(model);
+    }
+
     /** Registers technologies at position 100:
      * <ul>
      *   <li>{@link #knockout()}</li>
@@ -34,8 +34,9 @@ import org.netbeans.html.json.spi.Technology;
  */
 @Contexts.Id("ko4j")
 final class KOTech
-implements Technology.BatchCopy<Knockout>, Technology.ValueMutated<Knockout>,
-Technology.ApplyId<Knockout>, Technology.ToJavaScript<Knockout> {
+implements Technology.BatchCopy<Knockout>, Technology.BatchMutated<Knockout>,
+Technology.ApplyId<Knockout>, Technology.BatchToJavaScript<Knockout>,
+Technology.ArrayChange<Knockout> {
     public KOTech() {
     }
     
@@ -69,7 +70,6 @@ Technology.ApplyId<Knockout>, Technology.ToJavaScript<Knockout> {
     
     @Override
     public void valueHasMutated(Knockout data, String propertyName, Object oldValue, Object newValue) {
-        Knockout.cleanUp();
         if (data != null) {
             if (newValue instanceof Enum) {
                 newValue = newValue.toString();
@@ -78,6 +78,25 @@ Technology.ApplyId<Knockout>, Technology.ToJavaScript<Knockout> {
         }
     }
 
+    @Override
+    public void valueHasMutated(Knockout data, String[] propertyNames, Object[] oldValues, Object[] newValues) {
+        if (data != null) {
+            for (int i = 0; i < newValues.length; i++) {
+                if (newValues[i] instanceof Enum) {
+                    newValues[i] = newValues[i].toString();
+                }
+            }
+            data.valueHasMutated(propertyNames, oldValues, newValues);
+        }
+    }
+
+    @Override
+    public void splice(Knockout data, String propertyName, int size, int index, int removeCount, Object[] inserted) {
+        if (data != null) {
+            data.splice(propertyName, size, index, removeCount, inserted);
+        }
+    }
+
     @Override
     public void expose(FunctionBinding fb, Object model, Knockout data) {
         throw new UnsupportedOperationException();
@@ -98,6 +117,14 @@ Technology.ApplyId<Knockout>, Technology.ToJavaScript<Knockout> {
 
     private static final List<Knockout> applied = Models.asList();
 
+    static void dispose(Object model) {
+        Knockout ko = Knockout.find(Models.toRaw(model));
+        if (ko != null) {
+            applied.remove(ko);
+            ko.release();
+        }
+    }
+
     @Override
     public Object wrapArray(Object[] arr) {
         return arr;
@@ -117,4 +144,9 @@ Technology.ApplyId<Knockout>, Technology.ToJavaScript<Knockout> {
     public Object toJavaScript(Knockout data) {
         return data.js();
     }
+
+    @Override
+    public Object[] toJavaScript(List<Knockout> data) {
+        return Knockout.js(data);
+    }
 }
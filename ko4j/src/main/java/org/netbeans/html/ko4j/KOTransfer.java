@@ -37,7 +37,7 @@ import org.netbeans.html.json.spi.Transfer;
  */
 @Contexts.Id("xhr")
 final class KOTransfer
-implements Transfer {
+implements Transfer.BatchExtract {
     KOTransfer() {
     }
 
@@ -49,6 +49,19 @@ implements Transfer {
         LoadJSON.extractJSON(obj, props, values);
     }
 
+    @Override
+    public void extract(Object[] objs, String[] props, Object[][] values) {
+        Object[] unwrapped = new Object[objs.length];
+        for (int i = 0; i < objs.length; i++) {
+            Object obj = objs[i];
+            if (obj instanceof JSObjToStr) {
+                obj = ((JSObjToStr)obj).obj;
+            }
+            unwrapped[i] = obj;
+        }
+        LoadJSON.extractJSON(unwrapped, props, values);
+    }
+
     @Override
     public void loadJSON(final JSONCall call) {
         if (call.isJSONP()) {
@@ -95,12 +108,13 @@ implements Transfer {
     public Object toJSON(InputStream is) throws IOException {
         StringBuilder sb = new StringBuilder();
         InputStreamReader r = new InputStreamReader(is, "UTF-8");
+        char[] arr = new char[4096];
         for (;;) {
-            int ch = r.read();
-            if (ch == -1) {
+            int len = r.read(arr);
+            if (len == -1) {
                 break;
             }
-            sb.append((char)ch);
+            sb.append(arr, 0, len);
         }
         return LoadJSON.parse(sb.toString());
     }
@@ -119,6 +133,22 @@ implements Transfer {
         ((JSONCall)done).notifySuccess(notifyObj);
     }
 
+    static void responseHeaders(Object done, Object headers) {
+        if (headers == null) {
+            return;
+        }
+        for (String line : headers.toString().split("\r?\n")) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                ((JSONCall)done).setResponseHeader(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    static void notifyNotModified(Object done) {
+        ((JSONCall)done).notifyNotModified();
+    }
+
     static void notifyError(Object done, Object msg) {
         ((JSONCall)done).notifyError(new Exception(msg.toString()));
     }
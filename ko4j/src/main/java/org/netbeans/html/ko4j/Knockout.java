@@ -20,6 +20,11 @@ package org.netbeans.html.ko4j;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.Executor;
 import net.java.html.js.JavaScriptBody;
 import net.java.html.js.JavaScriptResource;
@@ -39,23 +44,8 @@ import org.netbeans.html.json.spi.PropertyBinding;
  */
 @JavaScriptResource("knockout-3.5.0.js")
 final class Knockout  {
-
-    @JavaScriptBody(args = {"object", "property"}, body =
-        "var ret;\n" +
-        "if (property === null) ret = object;\n" +
-        "else if (object === null) ret = null;\n" +
-        "else ret = object[property];\n" +
-        "if (typeof ret !== 'undefined' && ret !== null) {\n" +
-        "  if (typeof ko !== 'undefined' && ko['utils'] && ko['utils']['unwrapObservable']) {\n" +
-        "    return ko['utils']['unwrapObservable'](ret);\n" +
-        "  }\n" +
-        "  return ret;\n" +
-        "}\n" +
-        "return null;\n"
-    )
-    static Object getProperty(Object object, String property) {
-        return null;
-    }
+    private static final boolean LAZY = Boolean.getBoolean("org.netbeans.html.ko4j.lazy"); // NOI18N
+    private static final Object DEFERRED = new Object();
 
     private PropertyBinding[] props;
     private FunctionBinding[] funcs;
@@ -87,42 +77,148 @@ final class Knockout  {
     }
 
     private Object initObjs(Fn.Presenter p, Object copyFrom) {
-        String[] propNames = new String[props.length];
-        Number[] propInfo = new Number[props.length];
+        Object template = Template.find(strong.getClass(), props, funcs).js(p);
+        Object ret = CacheObjs.find(p).getJSObject();
+        Object[] values = propValues();
+        Number[] deferred = deferred(values);
+        wrapModel(template, this, ret, copyFrom, values, deferred);
+        return ret;
+    }
+
+    private Object[] propValues() {
         Object[] propValues = new Object[props.length];
-        for (int i = 0; i < propNames.length; i++) {
-            propNames[i] = props[i].getPropertyName();
-            int info
-                    = (props[i].isReadOnly() ? 1 : 0)
-                    + (props[i].isConstant() ? 2 : 0);
-            propInfo[i] = info;
-            Object value = props[i].getValue();
+        for (int i = 0; i < propValues.length; i++) {
+            Object value;
+            if (LAZY && !props[i].isConstant()) {
+                value = props[i].getValueLazily(DEFERRED);
+            } else {
+                value = props[i].getValue();
+            }
             if (value instanceof Enum) {
                 value = value.toString();
             }
             propValues[i] = value;
         }
-        String[] funcNames = new String[funcs.length];
-        for (int i = 0; i < funcNames.length; i++) {
-            funcNames[i] = funcs[i].getFunctionName();
+        return propValues;
+    }
+
+    /** Indexes of properties whose values are read only when
+     * the page needs them.
+     *
+     * @param values the values, deferred ones are replaced by <code>null</code>
+     * @return the indexes or <code>null</code>
+     */
+    private static Number[] deferred(Object[] values) {
+        int cnt = 0;
+        for (Object v : values) {
+            if (v == DEFERRED) {
+                cnt++;
+            }
+        }
+        if (cnt == 0) {
+            return null;
         }
-        Object ret = CacheObjs.find(p).getJSObject();
-        wrapModel(this,ret, copyFrom, propNames, propInfo, propValues, funcNames);
-        return ret;
+        Number[] at = new Number[cnt];
+        cnt = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == DEFERRED) {
+                values[i] = null;
+                at[cnt++] = i;
+            }
+        }
+        return at;
     }
 
-    static void cleanUp() {
-        for (;;) {
-            Knockout ko = null;
+    /** JavaScript representations of all the models in the active presenter.
+     * Models without a representation yet are wrapped by a single call
+     * for each model class.
+     *
+     * @param all the models
+     * @return array with JavaScript objects for each model
+     */
+    static Object[] js(List<Knockout> all) {
+        final Fn.Presenter p = Fn.activePresenter();
+        final Object[] ret = new Object[all.size()];
+        Map<Template, List<Knockout>> missing = null;
+        for (int i = 0; i < ret.length; i++) {
+            final Knockout ko = all.get(i);
             if (ko == null) {
-                return;
+                continue;
+            }
+            ret[i] = MapObjs.get(ko.objs, p);
+            if (ret[i] == null) {
+                if (missing == null) {
+                    missing = new LinkedHashMap<Template, List<Knockout>>();
+                }
+                Template t = Template.find(ko.strong.getClass(), ko.props, ko.funcs);
+                List<Knockout> same = missing.get(t);
+                if (same == null) {
+                    same = new ArrayList<Knockout>();
+                    missing.put(t, same);
+                }
+                if (!same.contains(ko)) {
+                    same.add(ko);
+                }
+            }
+        }
+        if (missing == null) {
+            return ret;
+        }
+        final CacheObjs cache = CacheObjs.find(p);
+        for (Map.Entry<Template, List<Knockout>> entry : missing.entrySet()) {
+            final List<Knockout> kos = entry.getValue();
+            final Object[] computed = new Object[kos.size()];
+            for (int i = 0; i < computed.length; i++) {
+                computed[i] = kos.get(i).propValues();
+            }
+            final List<Object> values = new ArrayList<Object>(computed.length);
+            final List<Object> deferred = new ArrayList<Object>(computed.length);
+            for (int i = 0, j = 0; i < computed.length; i++) {
+                if (MapObjs.get(kos.get(j).objs, p) == null) {
+                    values.add(computed[i]);
+                    deferred.add(deferred((Object[]) computed[i]));
+                    j++;
+                } else {
+                    // wrapped meanwhile while computing values of the others
+                    kos.remove(j);
+                }
+            }
+            final int size = kos.size();
+            if (size == 0) {
+                continue;
+            }
+            final Knockout[] thiz = kos.toArray(new Knockout[size]);
+            final Object[] rets = cache.getJSObjects(size);
+            final Object[] copyFroms = new Object[size];
+            for (int i = 0; i < size; i++) {
+                copyFroms[i] = thiz[i].copyFrom;
+            }
+            wrapModels(entry.getKey().js(p), thiz, rets, copyFroms, values.toArray(), deferred.toArray());
+            for (int i = 0; i < size; i++) {
+                thiz[i].objs = MapObjs.put(thiz[i].objs, p, rets[i]);
+            }
+        }
+        for (int i = 0; i < ret.length; i++) {
+            final Knockout ko = all.get(i);
+            if (ret[i] == null && ko != null) {
+                ret[i] = MapObjs.get(ko.objs, p);
             }
-            Object[] both = MapObjs.remove(ko.objs, Fn.activePresenter());
-            Object js = both[0];
-            ko.objs = both[1];
+        }
+        return ret;
+    }
+
+    /** Releases the JavaScript object of this model in the active presenter.
+     * The object is cleaned and returned to the pool of the presenter. Should
+     * the model be needed in the presenter again, it gets a new object.
+     */
+    final void release() {
+        final Fn.Presenter p = Fn.activePresenter();
+        Object[] both = MapObjs.remove(objs, p);
+        objs = both[1];
+        final Object js = both[0];
+        if (js != null) {
             clean(js);
-            ko.props = null;
-            ko.funcs = null;
+            CacheObjs.find(p).recycle(js);
         }
     }
 
@@ -161,6 +257,11 @@ final class Knockout  {
     }
 
     final void valueHasMutated(final String propertyName, Object oldValue, Object newValue) {
+        refreshOtherPresenters(propertyName);
+        valueHasMutated(js(), propertyName, oldValue, newValue);
+    }
+
+    private void refreshOtherPresenters(final String propertyName) {
         Object[] all = MapObjs.toArray(objs);
         for (int i = 0; i < all.length; i += 2) {
             Fn.Presenter p = getPresenter(all[i]);
@@ -186,7 +287,6 @@ final class Knockout  {
                 }
             }
         }
-        valueHasMutated(js(), propertyName, oldValue, newValue);
     }
 
     @JavaScriptBody(args = { "model", "prop", "oldValue", "newValue" },
@@ -210,6 +310,58 @@ final class Knockout  {
         Object model, String prop, Object oldValue, Object newValue
     );
 
+    final void valueHasMutated(String[] propertyNames, Object[] oldValues, Object[] newValues) {
+        for (String propertyName : propertyNames) {
+            refreshOtherPresenters(propertyName);
+        }
+        valueHasMutated(js(), propertyNames, oldValues, newValues);
+    }
+
+    @JavaScriptBody(args = { "model", "props", "oldValues", "newValues" },
+        wait4js = false,
+        body =
+          "if (model) {\n"
+        + "  for (var i = 0; i < props.length; i++) {\n"
+        + "    var koProp = model[props[i]];\n"
+        + "    var koFire = koProp ? koProp['valueHasMutated'] : null;\n"
+        + "    if (koFire) {\n"
+        + "      if (oldValues[i] !== null || newValues[i] !== null) {\n"
+        + "        koFire(newValues[i]);\n"
+        + "      } else {\n"
+        + "        koFire();\n"
+        + "      }\n"
+        + "    }\n"
+        + "  }\n"
+        + "}\n"
+    )
+    private native static void valueHasMutated(
+        Object model, String[] props, Object[] oldValues, Object[] newValues
+    );
+
+    final void splice(String propertyName, int size, int index, int removeCount, Object[] inserted) {
+        refreshOtherPresenters(propertyName);
+        splice(js(), propertyName, size, index, removeCount, inserted);
+    }
+
+    @JavaScriptBody(args = { "model", "prop", "size", "index", "removeCount", "inserted" },
+        wait4js = false,
+        body =
+          "if (model) {\n"
+        + "  var koProp = model[prop];\n"
+        + "  if (koProp) {\n"
+        + "    var koSplice = koProp['splice'];\n"
+        + "    if (koSplice) {\n"
+        + "      koSplice(size, index, removeCount, inserted);\n"
+        + "    } else if (koProp['valueHasMutated']) {\n"
+        + "      koProp['valueHasMutated']();\n"
+        + "    }\n"
+        + "  }\n"
+        + "}\n"
+    )
+    private native static void splice(
+        Object model, String prop, int size, int index, int removeCount, Object[] inserted
+    );
+
     final Object applyBindings(String id) {
         return applyBindings(id, js());
     }
@@ -232,93 +384,181 @@ final class Knockout  {
 
     @JavaScriptBody(
         javacall = true,
-        keepAlive = false,
-        wait4js = false,
-        args = { "thiz", "ret", "copyFrom", "propNames", "propInfo", "propValues", "funcNames" },
+        args = { "propNames", "propInfo", "funcNames" },
         body =
-          "Object.defineProperty(ret, 'ko4j', { value : thiz });\n"
-        + "function normalValue(r) {\n"
+          "function normalValue(r) {\n"
         + "  if (r) try { var br = r.valueOf(); } catch (err) {}\n"
         + "  return br === undefined ? r: br;\n"
         + "}\n"
-        + "function koComputed(index, name, readOnly, value) {\n"
-        + "  var orig = copyFrom ? copyFrom[name] : null;\n"
-        + "  if (!ko['isObservable'](orig)) {\n"
-        + "    orig = null;\n"
-        + "    var trigger = ko['observable']()['extend']({'notify':'always'});\n"
-        + "  } else {\n"
-        + "    var trigger = orig;\n"
-        + "  }\n"
-        + "  function realGetter() {\n"
-        + "    var self = ret['ko4j'];\n"
-        + "    try {\n"
-        + "      var v = self ? self.@org.netbeans.html.ko4j.Knockout::getValue(I)(index) : null;\n"
-        + "      return v;\n"
-        + "    } catch (e) {\n"
-        + "      alert(\"Cannot call getValue on \" + self + \" prop: \" + name + \" error: \" + e);\n"
+        + "function wrap(thiz, ret, copyFrom, propValues, deferred) {\n"
+        + "  Object.defineProperty(ret, 'ko4j', { value : thiz, configurable : true });\n"
+        + "  var lazy = {};\n"
+        + "  if (deferred) for (var i = 0; i < deferred.length; i++) lazy[deferred[i]] = true;\n"
+        + "  function koComputed(index, name, readOnly, value) {\n"
+        + "    var orig = copyFrom ? copyFrom[name] : null;\n"
+        + "    if (!ko['isObservable'](orig)) {\n"
+        + "      orig = null;\n"
+        + "      var trigger = ko['observable']()['extend']({'notify':'always'});\n"
+        + "    } else {\n"
+        + "      var trigger = orig;\n"
         + "    }\n"
-        + "  }\n"
-        + "  var activeGetter = orig ? orig : function() { return value; };\n"
-        + "  var bnd = {\n"
-        + "    'read': function() {\n"
-        + "      trigger();\n"
+        + "    function realGetter() {\n"
+        + "      var self = ret['ko4j'];\n"
+        + "      try {\n"
+        + "        var v = self ? self.@org.netbeans.html.ko4j.Knockout::getValue(I)(index) : null;\n"
+        + "        return v;\n"
+        + "      } catch (e) {\n"
+        + "        alert(\"Cannot call getValue on \" + self + \" prop: \" + name + \" error: \" + e);\n"
+        + "      }\n"
+        + "    }\n"
+        + "    var activeGetter = orig ? orig : lazy[index] ? realGetter : function() { return value; };\n"
+        + "    var bnd = {\n"
+        + "      'read': function() {\n"
+        + "        trigger();\n"
+        + "        if (orig) {\n"
+        + "          var r = orig();\n"
+        + "        } else {\n"
+        + "          var r = activeGetter();\n"
+        + "          activeGetter = realGetter;\n"
+        + "        }\n"
+        + "        return normalValue(r);;\n"
+        + "      },\n"
+        + "      'owner': ret\n"
+        + "    };\n"
+        + "    if (lazy[index] && !orig) bnd['deferEvaluation'] = true;\n"
+        + "    if (!readOnly) {\n"
+        + "      function write(val) {\n"
+        + "        if (orig) orig(val);\n"
+        + "        var self = ret['ko4j'];\n"
+        + "        if (!self) return;\n"
+        + "        var model = val ? val['ko4j'] : null;\n"
+        + "        self.@org.netbeans.html.ko4j.Knockout::setValue(ILjava/lang/Object;)(index, model ? model : val);\n"
+        + "      };\n"
+        + "      bnd['write'] = write;\n"
         + "      if (orig) {\n"
-        + "        var r = orig();\n"
-        + "      } else {\n"
-        + "        var r = activeGetter();\n"
+        + "        write(orig());\n"
+        + "        orig.subscribe(write);\n"
+        + "      }\n"
+        + "    };\n"
+        + "    var cmpt = ko['computed'](bnd);\n"
+        + "    cmpt['valueHasMutated'] = function(val) {\n"
+        + "      if (arguments.length === 1) activeGetter = function() { return val; };\n"
+        + "      trigger(val);\n"
+        + "    };\n"
+        + "    cmpt['splice'] = function(size, index, count, items) {\n"
+        + "      var arr = orig ? null : cmpt['peek']();\n"
+        + "      if (!Array.isArray(arr) || arr.length !== size) {\n"
         + "        activeGetter = realGetter;\n"
+        + "        trigger();\n"
+        + "        return;\n"
         + "      }\n"
-        + "      return normalValue(r);;\n"
-        + "    },\n"
-        + "    'owner': ret\n"
-        + "  };\n"
-        + "  if (!readOnly) {\n"
-        + "    function write(val) {\n"
-        + "      if (orig) orig(val);\n"
+        + "      var args = [index, count];\n"
+        + "      for (var i = 0; i < items.length; i++) args.push(items[i]);\n"
+        + "      arr.splice.apply(arr, args);\n"
+        + "      activeGetter = function() { return arr; };\n"
+        + "      trigger(arr);\n"
+        + "    };\n"
+        + "    ret[name] = cmpt;\n"
+        + "  }\n"
+        + "  for (var i = 0; i < propNames.length; i++) {\n"
+        + "    if ((propInfo[i] & 2) !== 0) {\n"
+        + "      ret[propNames[i]] = normalValue(propValues[i]);\n"
+        + "    } else {\n"
+        + "      koComputed(i, propNames[i], (propInfo[i] & 1) !== 0, propValues[i]);\n"
+        + "    }\n"
+        + "  }\n"
+        + "  function koExpose(index, name) {\n"
+        + "    ret[name] = function(data, ev) {\n"
         + "      var self = ret['ko4j'];\n"
         + "      if (!self) return;\n"
-        + "      var model = val ? val['ko4j'] : null;\n"
-        + "      self.@org.netbeans.html.ko4j.Knockout::setValue(ILjava/lang/Object;)(index, model ? model : val);\n"
+        + "      self.@org.netbeans.html.ko4j.Knockout::call(ILjava/lang/Object;Ljava/lang/Object;)(index, data, ev);\n"
         + "    };\n"
-        + "    bnd['write'] = write;\n"
-        + "    if (orig) {\n"
-        + "      write(orig());\n"
-        + "      orig.subscribe(write);\n"
-        + "    }\n"
-        + "  };\n"
-        + "  var cmpt = ko['computed'](bnd);\n"
-        + "  cmpt['valueHasMutated'] = function(val) {\n"
-        + "    if (arguments.length === 1) activeGetter = function() { return val; };\n"
-        + "    trigger(val);\n"
-        + "  };\n"
-        + "  ret[name] = cmpt;\n"
-        + "}\n"
-        + "for (var i = 0; i < propNames.length; i++) {\n"
-        + "  if ((propInfo[i] & 2) !== 0) {\n"
-        + "    ret[propNames[i]] = normalValue(propValues[i]);\n"
-        + "  } else {\n"
-        + "    koComputed(i, propNames[i], (propInfo[i] & 1) !== 0, propValues[i]);\n"
+        + "  }\n"
+        + "  for (var i = 0; i < funcNames.length; i++) {\n"
+        + "    koExpose(i, funcNames[i]);\n"
         + "  }\n"
         + "}\n"
-        + "function koExpose(index, name) {\n"
-        + "  ret[name] = function(data, ev) {\n"
-        + "    var self = ret['ko4j'];\n"
-        + "    if (!self) return;\n"
-        + "    self.@org.netbeans.html.ko4j.Knockout::call(ILjava/lang/Object;Ljava/lang/Object;)(index, data, ev);\n"
-        + "  };\n"
-        + "}\n"
-        + "for (var i = 0; i < funcNames.length; i++) {\n"
-        + "  koExpose(i, funcNames[i]);\n"
-        + "}\n"
+        + "return wrap;\n"
         )
+    private static native Object registerTemplate(
+        String[] propNames, Number[] propInfo, String[] funcNames
+    );
+
+    @JavaScriptBody(
+        javacall = true,
+        keepAlive = false,
+        wait4js = false,
+        args = { "wrap", "thiz", "ret", "copyFrom", "propValues", "deferred" },
+        body = "wrap(thiz, ret, copyFrom, propValues, deferred);\n"
+    )
     private static native void wrapModel(
-        Knockout thiz,
-        Object ret, Object copyFrom,
-        String[] propNames, Number[] propInfo,
-        Object propValues,
-        String[] funcNames
+        Object wrap, Knockout thiz, Object ret, Object copyFrom, Object propValues, Number[] deferred
+    );
+
+    @JavaScriptBody(
+        javacall = true,
+        keepAlive = false,
+        wait4js = false,
+        args = { "wrap", "thiz", "ret", "copyFrom", "propValues", "deferred" },
+        body =
+          "for (var i = 0; i < thiz.length; i++) {\n"
+        + "  wrap(thiz[i], ret[i], copyFrom[i], propValues[i], deferred[i]);\n"
+        + "}\n"
+    )
+    private static native void wrapModels(
+        Object wrap, Knockout[] thiz, Object[] ret, Object[] copyFrom, Object[] propValues, Object[] deferred
     );
 
+    /** Names and flags of properties and functions shared by all instances
+     * of a model class. Registered once per presenter as a JavaScript
+     * function wrapping the instances, forgotten once the presenter is gone.
+     */
+    private static final class Template {
+        private static final Map<Class<?>, Template> TEMPLATES = new WeakHashMap<Class<?>, Template>();
+
+        private final String[] propNames;
+        private final Number[] propInfo;
+        private final String[] funcNames;
+        /* @GuardedBy this */
+        private final Map<Fn.Presenter, Object> jsObjs = new WeakHashMap<Fn.Presenter, Object>();
+
+        private Template(PropertyBinding[] props, FunctionBinding[] funcs) {
+            this.propNames = new String[props.length];
+            this.propInfo = new Number[props.length];
+            for (int i = 0; i < props.length; i++) {
+                propNames[i] = props[i].getPropertyName();
+                int info
+                        = (props[i].isReadOnly() ? 1 : 0)
+                        + (props[i].isConstant() ? 2 : 0);
+                propInfo[i] = info;
+            }
+            this.funcNames = new String[funcs.length];
+            for (int i = 0; i < funcNames.length; i++) {
+                funcNames[i] = funcs[i].getFunctionName();
+            }
+        }
+
+        static Template find(Class<?> modelClass, PropertyBinding[] props, FunctionBinding[] funcs) {
+            synchronized (TEMPLATES) {
+                Template t = TEMPLATES.get(modelClass);
+                if (t == null) {
+                    t = new Template(props, funcs);
+                    TEMPLATES.put(modelClass, t);
+                }
+                return t;
+            }
+        }
+
+        synchronized Object js(Fn.Presenter p) {
+            Object js = jsObjs.get(p);
+            if (js == null) {
+                js = registerTemplate(propNames, propInfo, funcNames);
+                jsObjs.put(p, js);
+            }
+            return js;
+        }
+    }
+
     @JavaScriptBody(args = { "js" }, wait4js = false, body =
         "delete js['ko4j'];\n" +
         "for (var p in js) {\n" +
@@ -330,6 +570,11 @@ final class Knockout  {
 
     @JavaScriptBody(args = { "o" }, body = "return o['ko4j'] ? o['ko4j'] : o;")
     private static native Object toModelImpl(Object wrapper);
+    static Knockout find(Object wrapper) {
+        Object o = toModelImpl(wrapper);
+        return o instanceof Knockout ? (Knockout) o : null;
+    }
+
     static Object toModel(Object wrapper) {
         Object o = toModelImpl(wrapper);
         if (o instanceof Knockout) {
@@ -20,6 +20,7 @@ package org.netbeans.html.ko4j;
 
 import net.java.html.js.JavaScriptBody;
 import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.Transfer;
 
 /**
  *
@@ -74,6 +75,11 @@ final class LoadJSON {
         + "  var r = request.response || request.responseText;\n"
         + "  try {\n"
         + "    var str = r;\n"
+        + "    @org.netbeans.html.ko4j.KOTransfer::responseHeaders(Ljava/lang/Object;Ljava/lang/Object;)(done, request.getAllResponseHeaders());\n"
+        + "    if (request.status === 304) {\n"
+        + "      @org.netbeans.html.ko4j.KOTransfer::notifyNotModified(Ljava/lang/Object;)(done);\n"
+        + "      return;\n"
+        + "    }\n"
         + "    if (request.status !== 0)\n"
         + "      if (request.status < 100 || request.status >= 400) throw request.status + ': ' + request.statusText;"
         + "    try { r = eval('(' + r + ')'); } catch (ignore) { }"
@@ -106,9 +112,33 @@ final class LoadJSON {
     }
 
     static void extractJSON(Object jsonObject, String[] props, Object[] values) {
-        for (int i = 0; i < props.length; i++) {
-            values[i] = Knockout.getProperty(jsonObject, props[i]);
+        Object[] all = extractAll(jsonObject, props);
+        System.arraycopy(all, 0, values, 0, props.length);
+    }
+
+    static void extractJSON(Object[] jsonObjects, String[] props, Object[][] values) {
+        Object[] all = extractArray(jsonObjects, props);
+        for (int i = 0; i < values.length; i++) {
+            System.arraycopy((Object[]) all[i], 0, values[i], 0, props.length);
         }
     }
 
+    @JavaScriptBody(args = {"object", "props"}, body = Transfer.BatchExtract.EXTRACT_ALL
+        + "return extractAll(object, props);\n"
+    )
+    private static Object[] extractAll(Object object, String[] props) {
+        return new Object[props.length];
+    }
+
+    @JavaScriptBody(args = {"objects", "props"}, body = Transfer.BatchExtract.EXTRACT_ALL
+        + "var ret = new Array(objects.length);\n"
+        + "for (var j = 0; j < objects.length; j++) {\n"
+        + "  ret[j] = extractAll(objects[j], props);\n"
+        + "}\n"
+        + "return ret;\n"
+    )
+    private static Object[] extractArray(Object[] objects, String[] props) {
+        return new Object[objects.length];
+    }
+
 }
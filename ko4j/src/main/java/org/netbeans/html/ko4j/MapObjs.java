@@ -80,7 +80,10 @@ final class MapObjs {
         if (now instanceof MapObjs) {
             return ((MapObjs)now).remove(key);
         }
-        return new Object[] { now, null };
+        if (key == getOnlyPresenter()) {
+            return new Object[] { now, null };
+        }
+        return new Object[] { null, now };
     }
 
     synchronized static Object[] toArray(Object now) {
@@ -126,7 +129,7 @@ final class MapObjs {
     private Object[] remove(Fn.Presenter key) {
         for (int i = 0; i < all.size(); i += 2) {
             if (isSameKey(i, key)) {
-                return new Object[] { all.get(i + 1), this };
+                return new Object[] { all.set(i + 1, null), this };
             }
         }
         return new Object[] { null, this };
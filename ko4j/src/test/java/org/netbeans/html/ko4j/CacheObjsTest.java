@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.ko4j;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import org.testng.annotations.Test;
+
+public class CacheObjsTest {
+    @Test
+    public void allocatesInGrowingBatches() {
+        Pool pool = new Pool(4, 16);
+        for (int i = 0; i < 12; i++) {
+            pool.getJSObject();
+        }
+        assertEquals(pool.allocations, Arrays.asList(4, 8), "Batch doubled");
+        assertEquals(pool.misses(), 2);
+        assertEquals(pool.hits(), 10);
+        for (int i = 0; i < 48; i++) {
+            pool.getJSObject();
+        }
+        assertEquals(pool.allocations, Arrays.asList(4, 8, 16, 16, 16), "Batch limited by high watermark");
+    }
+
+    @Test
+    public void recycledObjectsAreReused() {
+        Pool pool = new Pool(4, 16);
+        Object first = pool.getJSObject();
+        pool.recycle(first);
+        assertSame(pool.getJSObject(), first, "Recycled object returned");
+        assertEquals(pool.recycled(), 1);
+        assertEquals(pool.allocations.size(), 1, "No new allocation");
+    }
+
+    @Test
+    public void poolIsTrimmedToLowWatermark() {
+        Pool pool = new Pool(4, 8);
+        for (int i = 0; i < 8; i++) {
+            pool.recycle(new Object());
+        }
+        assertEquals(pool.size(), 8);
+        pool.recycle(new Object());
+        assertEquals(pool.size(), 4, "Trimmed to low watermark");
+        assertEquals(pool.dropped(), 5);
+    }
+
+    @Test
+    public void manyObjectsByOneAllocation() {
+        Pool pool = new Pool(4, 16);
+        Object[] arr = pool.getJSObjects(100);
+        assertEquals(arr.length, 100);
+        assertEquals(pool.allocations, Arrays.asList(100), "One allocation");
+        for (Object o : arr) {
+            assertEquals(o.getClass(), Object.class);
+        }
+        assertEquals(pool.misses(), 100, "Each allocated object is a miss");
+    }
+
+    @Test
+    public void bulkRequestCountsEachObject() {
+        Pool pool = new Pool(4, 16);
+        pool.getJSObject();
+        assertEquals(pool.size(), 3);
+        pool.getJSObjects(2);
+        assertEquals(pool.hits(), 2, "Two objects from the pool");
+        pool.getJSObjects(5);
+        assertEquals(pool.hits(), 3, "One more object from the pool");
+        assertEquals(pool.misses(), 5, "One initial miss and four allocated objects");
+        assertEquals(pool.statistics().get("misses"), Long.valueOf(5));
+        assertEquals(KO4J.objectPoolStatistics(null).keySet().toString(), "[size, hits, misses, recycled, dropped]");
+    }
+
+    private static final class Pool extends CacheObjs {
+        final List<Integer> allocations = new ArrayList<Integer>();
+
+        Pool(int low, int high) {
+            super(low, high);
+        }
+
+        @Override
+        Object[] allocate(int cnt) {
+            allocations.add(cnt);
+            Object[] arr = new Object[cnt];
+            for (int i = 0; i < cnt; i++) {
+                arr[i] = new Object();
+            }
+            return arr;
+        }
+    }
+}
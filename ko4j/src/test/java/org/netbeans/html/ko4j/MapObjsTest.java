@@ -62,6 +62,25 @@ public class MapObjsTest {
         assertEquals(v2.get(p2), null);
     }
 
+    @Test
+    public void removeValues() {
+        Value v1 = new Value();
+        v1.put(p1, "p1");
+        assertNull(v1.remove(p2), "Nothing for p2");
+        assertEquals(v1.get(p1), "p1", "Still there");
+        assertEquals(v1.remove(p1), "p1");
+        assertNull(v1.get(p1), "Removed");
+
+        Value v2 = new Value();
+        v2.put(p1, "p1");
+        v2.put(p2, "p2");
+        assertEquals(v2.remove(p2), "p2");
+        assertNull(v2.get(p2), "Removed for p2");
+        assertEquals(v2.get(p1), "p1", "Kept for p1");
+        v2.put(p2, "again");
+        assertEquals(v2.get(p2), "again", "Can be put again");
+    }
+
     @Test
     public void cacheForNull() {
         CacheObjs c1 = CacheObjs.find(null);
@@ -79,6 +98,12 @@ public class MapObjsTest {
         Object get(Fn.Presenter p) {
             return MapObjs.get(now, p);
         }
+
+        Object remove(Fn.Presenter p) {
+            Object[] both = MapObjs.remove(now, p);
+            now = both[1];
+            return both[0];
+        }
     }
 
     private static final class Pres implements Fn.Presenter {
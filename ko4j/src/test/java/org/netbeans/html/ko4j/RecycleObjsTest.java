@@ -0,0 +1,104 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.ko4j;
+
+import java.util.concurrent.CountDownLatch;
+import net.java.html.BrwsrCtx;
+import net.java.html.boot.fx.FXBrowsers;
+import net.java.html.js.JavaScriptBody;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import net.java.html.json.Property;
+import org.netbeans.html.boot.spi.Fn;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Model(className = "Recycled", properties = {
+    @Property(name = "name", type = String.class)
+})
+public class RecycleObjsTest {
+    @BeforeClass
+    public void initFX() throws Throwable {
+        new InitializeKnockoutTest().initFX();
+    }
+
+    @JavaScriptBody(args = { "a", "b" }, body = "return a === b;")
+    static native boolean same(Object a, Object b);
+
+    @JavaScriptBody(args = { "js" }, body = "return js['name']();")
+    static native String name(Object js);
+
+    @Test
+    public void reappliedRootIsKeptAndDisposedOneRecycled() throws Throwable {
+        final CountDownLatch done = new CountDownLatch(1);
+        final Throwable[] error = { null };
+        FXBrowsers.runInBrowser(InitializeKnockoutTest.App.webView(), new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    BrwsrCtx ctx = BrwsrCtx.findDefault(RecycleObjsTest.class);
+                    CacheObjs pool = CacheObjs.find(Fn.activePresenter());
+
+                    Recycled first = Models.bind(new Recycled("first"), ctx);
+                    first.applyBindings();
+                    final Object firstJS = Models.toRaw(first);
+                    assertEquals(name(firstJS), "first");
+                    final long recycled = pool.recycled();
+
+                    Recycled second = Models.bind(new Recycled("second"), ctx);
+                    second.applyBindings();
+                    assertEquals(pool.recycled(), recycled, "Replaced root isn't recycled");
+
+                    final Object secondJS = Models.toRaw(second);
+                    assertFalse(same(firstJS, secondJS), "Each root has its own object");
+                    assertEquals(name(firstJS), "first", "Replaced root still usable");
+                    assertSame(Knockout.toModel(firstJS), first);
+                    assertEquals(name(secondJS), "second");
+                    assertSame(Knockout.toModel(secondJS), second);
+
+                    first.applyBindings();
+                    assertEquals(pool.recycled(), recycled, "Nothing recycled on re-apply");
+                    assertTrue(same(Models.toRaw(first), firstJS), "Same object applied again");
+
+                    KO4J.dispose(second);
+                    assertEquals(pool.recycled(), recycled + 1, "Disposed root recycled");
+
+                    Recycled third = Models.bind(new Recycled("third"), ctx);
+                    final long hits = pool.hits();
+                    final Object thirdJS = Models.toRaw(third);
+                    assertEquals(pool.hits(), hits + 1, "Object taken from the pool");
+                    assertEquals(name(thirdJS), "third");
+                    assertSame(Knockout.toModel(thirdJS), third);
+                } catch (Throwable t) {
+                    error[0] = t;
+                } finally {
+                    done.countDown();
+                }
+            }
+        });
+        done.await();
+        if (error[0] != null) {
+            throw error[0];
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.xhr4j;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/** Non-blocking requests via {@code java.net.http.HttpClient} of JDK 11+.
+ * The module is compiled for older JDKs, so the client is accessed
+ * reflectively.
+ */
+final class AsyncClient {
+    private static final Logger LOG = Logger.getLogger(AsyncClient.class.getName());
+
+    private final Object client;
+    private final Method requestBuilder;
+    private final Method header;
+    private final Method method;
+    private final Method build;
+    private final Method ofByteArray;
+    private final Method noBody;
+    private final Object bodyHandler;
+    private final Method sendAsync;
+    private final Method statusCode;
+    private final Method body;
+    private final Method responseHeaders;
+    private final Method headersMap;
+
+    private AsyncClient(Object client, ClassLoader l) throws Exception {
+        this.client = client;
+        Class<?> requestClass = Class.forName("java.net.http.HttpRequest", true, l); // NOI18N
+        Class<?> requestBuilderClass = Class.forName("java.net.http.HttpRequest$Builder", true, l); // NOI18N
+        Class<?> publisherClass = Class.forName("java.net.http.HttpRequest$BodyPublisher", true, l); // NOI18N
+        Class<?> publishersClass = Class.forName("java.net.http.HttpRequest$BodyPublishers", true, l); // NOI18N
+        Class<?> handlerClass = Class.forName("java.net.http.HttpResponse$BodyHandler", true, l); // NOI18N
+        Class<?> handlersClass = Class.forName("java.net.http.HttpResponse$BodyHandlers", true, l); // NOI18N
+        Class<?> responseClass = Class.forName("java.net.http.HttpResponse", true, l); // NOI18N
+        Class<?> clientClass = Class.forName("java.net.http.HttpClient", true, l); // NOI18N
+        this.requestBuilder = requestClass.getMethod("newBuilder", URI.class); // NOI18N
+        this.header = requestBuilderClass.getMethod("header", String.class, String.class); // NOI18N
+        this.method = requestBuilderClass.getMethod("method", String.class, publisherClass); // NOI18N
+        this.build = requestBuilderClass.getMethod("build"); // NOI18N
+        this.ofByteArray = publishersClass.getMethod("ofByteArray", byte[].class); // NOI18N
+        this.noBody = publishersClass.getMethod("noBody"); // NOI18N
+        this.bodyHandler = handlersClass.getMethod("ofByteArray").invoke(null); // NOI18N
+        this.sendAsync = clientClass.getMethod("sendAsync", requestClass, handlerClass); // NOI18N
+        this.statusCode = responseClass.getMethod("statusCode"); // NOI18N
+        this.body = responseClass.getMethod("body"); // NOI18N
+        this.responseHeaders = responseClass.getMethod("headers"); // NOI18N
+        this.headersMap = Class.forName("java.net.http.HttpHeaders", true, l).getMethod("map"); // NOI18N
+    }
+
+    /** Creates the client, if the JDK provides it.
+     *
+     * @param executor executor to use for handling responses
+     * @return the client or {@code null}
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static AsyncClient create(Executor executor) {
+        try {
+            ClassLoader l = ClassLoader.getSystemClassLoader();
+            Class<?> clientClass = Class.forName("java.net.http.HttpClient", true, l); // NOI18N
+            Class<?> builderClass = Class.forName("java.net.http.HttpClient$Builder", true, l); // NOI18N
+            Class redirectClass = Class.forName("java.net.http.HttpClient$Redirect", true, l); // NOI18N
+            Object builder = clientClass.getMethod("newBuilder").invoke(null); // NOI18N
+            builderClass.getMethod("executor", Executor.class).invoke(builder, executor); // NOI18N
+            builderClass.getMethod("followRedirects", redirectClass).invoke(builder, Enum.valueOf(redirectClass, "NORMAL")); // NOI18N
+            Object client = builderClass.getMethod("build").invoke(builder); // NOI18N
+            return new AsyncClient(client, l);
+        } catch (Exception ex) {
+            LOG.log(Level.FINE, "Cannot initialize HttpClient", ex);
+            return null;
+        } catch (LinkageError ex) {
+            LOG.log(Level.FINE, "Cannot initialize HttpClient", ex);
+            return null;
+        }
+    }
+
+    /** Sends the request. The callback is notified with the response
+     * code, headers and body or with an error once the response arrives.
+     * Exactly one of the callback methods is called.
+     *
+     * @param uri the URI to connect to
+     * @param httpMethod the HTTP method
+     * @param headers pairs of header names and values
+     * @param data the body to send or {@code null}
+     * @param callback callback to receive the response status, headers and
+     *   body or an error
+     * @throws IOException if the request cannot be sent
+     */
+    void send(
+        final URI uri, String httpMethod, List<String> headers, byte[] data,
+        final Callback callback
+    ) throws IOException {
+        final CompletableFuture<?> future;
+        try {
+            Object rb = requestBuilder.invoke(null, uri);
+            for (int i = 0; i < headers.size(); i += 2) {
+                try {
+                    header.invoke(rb, headers.get(i), headers.get(i + 1));
+                } catch (InvocationTargetException ex) {
+                    if (!(ex.getCause() instanceof IllegalArgumentException)) {
+                        throw ex;
+                    }
+                    LOG.log(Level.FINE, "Ignoring restricted header {0}", headers.get(i));
+                }
+            }
+            Object publisher = data == null ? noBody.invoke(null) : ofByteArray.invoke(null, (Object) data);
+            method.invoke(rb, httpMethod, publisher);
+            Object request = build.invoke(rb);
+            future = (CompletableFuture<?>) sendAsync.invoke(client, request, bodyHandler);
+        } catch (InvocationTargetException ex) {
+            throw new IOException(ex.getCause());
+        } catch (IllegalAccessException ex) {
+            throw new IOException(ex);
+        }
+        future.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void accept(Object response, Throwable error) {
+                if (error instanceof CompletionException && error.getCause() != null) {
+                    error = error.getCause();
+                }
+                int code = 0;
+                byte[] arr = null;
+                Map<String, List<String>> map = null;
+                if (error == null) {
+                    try {
+                        code = (Integer) statusCode.invoke(response);
+                        arr = (byte[]) body.invoke(response);
+                        map = (Map<String, List<String>>) headersMap.invoke(responseHeaders.invoke(response));
+                    } catch (Exception ex) {
+                        error = ex;
+                    }
+                }
+                try {
+                    if (error == null) {
+                        callback.response(code, map, arr);
+                    } else {
+                        callback.error(error);
+                    }
+                } catch (RuntimeException ex) {
+                    // don't report it via error, the request is already finished
+                    LOG.log(Level.WARNING, "Cannot process response of " + uri, ex);
+                }
+            }
+        });
+    }
+
+    interface Callback {
+        void response(int code, Map<String, List<String>> headers, byte[] body);
+        void error(Throwable error);
+    }
+}
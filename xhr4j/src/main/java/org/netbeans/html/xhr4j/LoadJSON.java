@@ -18,6 +18,8 @@
  */
 package org.netbeans.html.xhr4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -26,15 +28,19 @@ import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
-import java.util.concurrent.Callable;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import net.java.html.js.JavaScriptBody;
 import org.netbeans.html.json.spi.JSONCall;
+import org.netbeans.html.json.spi.JSONReader;
+import org.netbeans.html.json.spi.Transfer;
 
 /** This is an implementation package - just
  * include its JAR on classpath and use official {@link Context} API
@@ -42,70 +48,62 @@ import org.netbeans.html.json.spi.JSONCall;
  *
  * @author Jaroslav Tulach
  */
-final class LoadJSON implements Runnable {
+final class LoadJSON implements Runnable, AsyncClient.Callback {
     private static final Logger LOG = Logger.getLogger(LoadJSON.class.getName());
-    private static final Executor REQ = Executors.newCachedThreadPool(new ThreadFactory() {
-        @Override
-        public Thread newThread(Runnable runnable) {
-            Thread thread = Executors.defaultThreadFactory().newThread(runnable);
-            thread.setDaemon(true);
-            thread.setName("xhr4j daemon");
-            return thread;
-        }
-    });
 
+    private final Requests requests;
     private final JSONCall call;
-    private final URL base;
-
-
-    private LoadJSON(JSONCall call) {
-        this.call = call;
-        this.base = null;
-    }
+    private final String url;
+    final String host;
 
-    public static void loadJSON(JSONCall call) {
+    LoadJSON(Requests requests, JSONCall call) {
         assert !"WebSocket".equals(call.getMethod());
-        REQ.execute(new LoadJSON((call)));
+        this.requests = requests;
+        this.call = call;
+        final String u;
+        if (call.isJSONP()) {
+            u = call.composeURL("dummy");
+        } else {
+            u = call.composeURL(null);
+        }
+        this.url = u.replace(" ", "%20");
+        this.host = Requests.hostOf(url);
     }
 
     @Override
     public void run() {
-        final String url;
+        AsyncClient client = requests.client();
+        if (client != null && host.startsWith("http")) {
+            try {
+                sendAsync(client);
+                return;
+            } catch (Exception ex) {
+                error(ex);
+                return;
+            }
+        }
+        try {
+            load();
+        } finally {
+            requests.finished(this);
+        }
+    }
+
+    private void load() {
         Throwable error = null;
         Object json = null;
-
-        if (call.isJSONP()) {
-            url = call.composeURL("dummy");
-        } else {
-            url = call.composeURL(null);
-        }
+        boolean notModified = false;
+        URLConnection conn = null;
         try {
-            final URL u = new URL(base, url.replace(" ", "%20"));
-            URLConnection conn = u.openConnection();
+            final URL u = new URL(url);
+            conn = u.openConnection();
             if (call.isDoOutput()) {
                 conn.setDoOutput(true);
             }
-            String h = call.getHeaders();
-            if (h != null) {
-                int pos = 0;
-                while (pos < h.length()) {
-                    int tagEnd = h.indexOf(':', pos);
-                    if (tagEnd == -1) {
-                        break;
-                    }
-                    int r = h.indexOf('\r', tagEnd);
-                    int n = h.indexOf('\n', tagEnd);
-                    if (r == -1) {
-                        r = h.length();
-                    }
-                    if (n == -1) {
-                        n = h.length();
-                    }
-                    String key = h.substring(pos, tagEnd).trim();
-                    String val = h.substring(tagEnd + 1, Math.min(r, n)).trim();
-                    conn.setRequestProperty(key, val);;
-                    pos = Math.max(r, n);
-                }
+            List<String> headers = new ArrayList<String>();
+            parseHeaders(call.getHeaders(), headers);
+            for (int i = 0; i < headers.size(); i += 2) {
+                conn.setRequestProperty(headers.get(i), headers.get(i + 1));
             }
             if (call.getMethod() != null && conn instanceof HttpURLConnection) {
                 ((HttpURLConnection) conn).setRequestMethod(call.getMethod());
@@ -115,68 +113,167 @@ final class LoadJSON implements Runnable {
                 call.writeData(os);
                 os.flush();
             }
-            final PushbackInputStream is = new PushbackInputStream(
-                conn.getInputStream(), 1
-            );
-            boolean[] arrayOrString = { false, false };
-            detectJSONType(call.isJSONP(), is, arrayOrString);
-            String response = readStream(is);
-            if (call.isJSONP()) {
-                response = '(' + response;
+            for (Map.Entry<String, List<String>> e : conn.getHeaderFields().entrySet()) {
+                if (e.getKey() != null) {
+                    for (String v : e.getValue()) {
+                        call.setResponseHeader(e.getKey(), v);
+                    }
+                }
             }
-            json = new Result(response, arrayOrString[0], arrayOrString[1]);
-        } catch (IOException ex) {
+            if (conn instanceof HttpURLConnection
+                && ((HttpURLConnection) conn).getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED
+            ) {
+                conn.getInputStream().close();
+                notModified = true;
+            } else {
+                InputStream is = conn.getInputStream();
+                try {
+                    json = readJSON(is);
+                } finally {
+                    is.close();
+                }
+            }
+        } catch (Throwable ex) {
             error = ex;
-        } finally {
+            discardErrorStream(conn);
+        }
+        if (error != null) {
+            call.notifyError(error);
+        } else if (notModified) {
+            call.notifyNotModified();
+        } else {
+            call.notifySuccess(json);
+        }
+    }
+
+    private void sendAsync(AsyncClient client) throws IOException {
+        List<String> headers = new ArrayList<String>();
+        parseHeaders(call.getHeaders(), headers);
+        byte[] data = null;
+        if (call.isDoOutput()) {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            call.writeData(os);
+            data = os.toByteArray();
+        }
+        String method = call.getMethod();
+        if (method == null) {
+            method = data == null ? "GET" : "POST"; // NOI18N
+        }
+        final URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException ex) {
+            throw new IOException(ex);
+        }
+        client.send(uri, method, headers, data, this);
+    }
+
+    @Override
+    public void response(int code, Map<String, List<String>> headers, byte[] body) {
+        Throwable error = null;
+        Object json = null;
+        boolean notModified = false;
+        try {
+            for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+                for (String v : e.getValue()) {
+                    call.setResponseHeader(e.getKey(), v);
+                }
+            }
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                notModified = true;
+            } else if (code >= 400) {
+                error = new IOException("Server returned HTTP response code: " + code + " for URL: " + url);
+            } else {
+                json = readJSON(new ByteArrayInputStream(body));
+            }
+        } catch (Throwable ex) {
+            error = ex;
+        }
+        try {
             if (error != null) {
                 call.notifyError(error);
+            } else if (notModified) {
+                call.notifyNotModified();
             } else {
                 call.notifySuccess(json);
             }
+        } finally {
+            requests.finished(this);
         }
     }
 
-    private static final class Result implements Callable<Object> {
-        private final String response;
-        private final boolean array;
-        private final boolean plain;
+    @Override
+    public void error(Throwable error) {
+        try {
+            call.notifyError(error);
+        } finally {
+            requests.finished(this);
+        }
+    }
 
-        Result(String response, boolean array, boolean plain) {
-            this.response = response;
-            this.array = array;
-            this.plain = plain;
+    private Object readJSON(InputStream raw) throws IOException {
+        final PushbackInputStream is = new PushbackInputStream(raw, 1);
+        boolean[] arrayOrString = { false, false };
+        detectJSONType(call.isJSONP(), is, arrayOrString);
+        if (arrayOrString[1]) {
+            return readStream(is);
+        } else {
+            return parse(new InputStreamReader(is, "UTF-8"));
         }
+    }
 
-        @Override
-        public Object call() throws Exception {
-            if (plain) {
-                return response;
-            } else {
-                if (array) {
-                    Object r = parse(response);
-                    Object[] arr = r instanceof Object[] ? (Object[])r : new Object[] { r };
-                    for (int i = 0; i < arr.length; i++) {
-                        arr[i] = new JSObjToStr(response, arr[i]);
-                    }
-                    return arr;
-                } else {
-                    return new JSObjToStr(response, parse(response));
-                }
+    /** Parses single JSON value in Java. Objects become {@link Map maps}
+     * and arrays {@code Object[]}. Anything after the value is ignored.
+     */
+    static Object parse(Reader r) throws IOException {
+        return JSONReader.create(r).nextValue();
+    }
+
+    /** Reads the rest of an error response, so the connection can be
+     * kept alive and reused for subsequent requests.
+     */
+    private static void discardErrorStream(URLConnection conn) {
+        if (!(conn instanceof HttpURLConnection)) {
+            return;
+        }
+        InputStream err = ((HttpURLConnection) conn).getErrorStream();
+        if (err == null) {
+            return;
+        }
+        try {
+            byte[] arr = new byte[4096];
+            while (err.read(arr) != -1) {
+                // drain
             }
+            err.close();
+        } catch (IOException ex) {
+            LOG.log(Level.FINE, null, ex);
         }
     }
-    private static final class JSObjToStr {
-        final String str;
-        final Object obj;
 
-        public JSObjToStr(Object str, Object obj) {
-            this.str = str == null ? "" : str.toString();
-            this.obj = obj;
+    static void parseHeaders(String h, List<String> pairs) {
+        if (h == null) {
+            return;
         }
-
-        @Override
-        public String toString() {
-            return str;
+        int pos = 0;
+        while (pos < h.length()) {
+            int tagEnd = h.indexOf(':', pos);
+            if (tagEnd == -1) {
+                break;
+            }
+            int r = h.indexOf('\r', tagEnd);
+            int n = h.indexOf('\n', tagEnd);
+            if (r == -1) {
+                r = h.length();
+            }
+            if (n == -1) {
+                n = h.length();
+            }
+            String key = h.substring(pos, tagEnd).trim();
+            String val = h.substring(tagEnd + 1, Math.min(r, n)).trim();
+            pairs.add(key);
+            pairs.add(val);
+            pos = Math.max(r, n);
         }
     }
 
@@ -222,34 +319,56 @@ final class LoadJSON implements Runnable {
         }
     }
 
-    @JavaScriptBody(args = {"object", "property"}, body =
-        "var ret;\n" + 
-        "if (property === null) ret = object;\n" + 
-        "else if (object === null) ret = null;\n" + 
-        "else ret = object[property];\n" +
-        "if (typeof ret !== 'undefined' && ret !== null) {\n" +
-        "  if (typeof ko !== 'undefined' && ko['utils'] && ko['utils']['unwrapObservable']) {\n" +
-        "    return ko['utils']['unwrapObservable'](ret);\n" +
-        "  }\n" +
-        "  return ret;\n" +
-        "}\n" +
-        "return null;\n"
+    @JavaScriptBody(args = {"object", "props"}, body = Transfer.BatchExtract.EXTRACT_ALL
+        + "return extractAll(object, props);\n"
     )
-    private static Object getProperty(Object object, String property) {
-        return null;
+    private static Object[] extractAll(Object object, String[] props) {
+        return new Object[props.length];
     }
 
-    @JavaScriptBody(args = {"s"}, body = "return eval('(' + s + ')');")
-    static Object parse(String s) {
-        throw new IllegalStateException("No parser context for " + s);
+    @JavaScriptBody(args = {"objects", "props"}, body = Transfer.BatchExtract.EXTRACT_ALL
+        + "var ret = new Array(objects.length);\n"
+        + "for (var j = 0; j < objects.length; j++) {\n"
+        + "  ret[j] = extractAll(objects[j], props);\n"
+        + "}\n"
+        + "return ret;\n"
+    )
+    private static Object[] extractArray(Object[] objects, String[] props) {
+        return new Object[objects.length];
     }
 
     static void extractJSON(Object js, String[] props, Object[] values) {
-        if (js instanceof JSObjToStr) {
-            js = ((JSObjToStr)js).obj;
+        if (js instanceof Map) {
+            extractMap((Map<?, ?>) js, props, values);
+            return;
         }
+        Object[] all = extractAll(js, props);
+        System.arraycopy(all, 0, values, 0, props.length);
+    }
+
+    static void extractJSON(Object[] js, String[] props, Object[][] values) {
+        boolean maps = true;
+        for (Object obj : js) {
+            if (!(obj instanceof Map)) {
+                maps = false;
+                break;
+            }
+        }
+        if (maps) {
+            for (int i = 0; i < js.length; i++) {
+                extractMap((Map<?, ?>) js[i], props, values[i]);
+            }
+            return;
+        }
+        Object[] all = extractArray(js, props);
+        for (int i = 0; i < values.length; i++) {
+            System.arraycopy((Object[]) all[i], 0, values[i], 0, props.length);
+        }
+    }
+
+    private static void extractMap(Map<?, ?> map, String[] props, Object[] values) {
         for (int i = 0; i < props.length; i++) {
-            values[i] = getProperty(js, props[i]);
+            values[i] = props[i] == null ? map : map.get(props[i]);
         }
     }
 
@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.xhr4j;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.netbeans.html.json.spi.JSONCall;
+
+/** Schedules requests of a {@link XmlHttpResourceContext}. At most
+ * {@code maxRequests} threads are used to process them, requests above
+ * the limit wait in a queue. At most {@code maxPerHost} requests to the
+ * same host are in progress at once, so the connections kept alive by
+ * the JDK can be reused rather than new ones opened for each request.
+ */
+final class Requests {
+    private static final Logger LOG = Logger.getLogger(Requests.class.getName());
+    static final int MAX_REQUESTS = Integer.getInteger("org.netbeans.html.xhr4j.maxRequests", 16); // NOI18N
+    static final int MAX_PER_HOST = Integer.getInteger("org.netbeans.html.xhr4j.maxPerHost", 6); // NOI18N
+    static final boolean ASYNC = Boolean.getBoolean("org.netbeans.html.xhr4j.async"); // NOI18N
+    private static Requests DEFAULT;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxPerHost;
+    private final AsyncClient client;
+    private final Map<String, Host> hosts = new HashMap<String, Host>();
+
+    Requests(int maxRequests, int maxPerHost, boolean async) {
+        if (maxRequests < 1 || maxPerHost < 1) {
+            throw new IllegalArgumentException("Limits must be positive: " + maxRequests + ", " + maxPerHost);
+        }
+        this.executor = new ThreadPoolExecutor(
+            maxRequests, maxRequests, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setDaemon(true);
+                thread.setName("xhr4j daemon");
+                return thread;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.maxPerHost = maxPerHost;
+        this.client = async ? AsyncClient.create(executor) : null;
+        if (async && client == null) {
+            LOG.log(Level.INFO, "HttpClient isn't available, using blocking connections");
+        }
+    }
+
+    static synchronized Requests getDefault() {
+        if (DEFAULT == null) {
+            DEFAULT = new Requests(MAX_REQUESTS, MAX_PER_HOST, ASYNC);
+        }
+        return DEFAULT;
+    }
+
+    AsyncClient client() {
+        return client;
+    }
+
+    void execute(JSONCall call) {
+        LoadJSON load = new LoadJSON(this, call);
+        Host host;
+        synchronized (hosts) {
+            host = hosts.get(load.host);
+            if (host == null) {
+                host = new Host();
+                hosts.put(load.host, host);
+            }
+            if (host.running >= maxPerHost) {
+                host.waiting.add(load);
+                return;
+            }
+            host.running++;
+        }
+        executor.execute(load);
+    }
+
+    /** Called when a request is finished. Starts the next request
+     * waiting for the same host, if any.
+     *
+     * @param load the finished request
+     */
+    void finished(LoadJSON load) {
+        LoadJSON next;
+        synchronized (hosts) {
+            Host host = hosts.get(load.host);
+            next = host.waiting.poll();
+            if (next == null && --host.running == 0) {
+                hosts.remove(load.host);
+            }
+        }
+        if (next != null) {
+            executor.execute(next);
+        }
+    }
+
+    static String hostOf(String url) {
+        try {
+            URL u = new URL(url);
+            return u.getProtocol() + "://" + u.getHost() + ":" + u.getPort(); // NOI18N
+        } catch (MalformedURLException ex) {
+            return "";
+        }
+    }
+
+    private static final class Host {
+        int running;
+        final ArrayDeque<LoadJSON> waiting = new ArrayDeque<LoadJSON>();
+    }
+}
@@ -20,6 +20,7 @@ package org.netbeans.html.xhr4j;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import net.java.html.json.OnReceive;
 import org.netbeans.html.context.spi.Contexts;
 import org.netbeans.html.json.spi.JSONCall;
@@ -28,12 +29,32 @@ import org.openide.util.lookup.ServiceProvider;
 
 /** Implementation module with support for XHR via Java.
  * Handles {@link OnReceive} requests by using Java to connect to given
- * URL and then parsing it via JavaScript. Use this module if you have
- * problems with CORS - as the Java connection isn't restricted by CORS
- * rules.
+ * URL and then parsing the received JSON in Java - in the same background
+ * thread that downloaded it. Use this module if you have problems with
+ * CORS - as the Java connection isn't restricted by CORS rules.
  * 
  * Registers {@link Transfer} technology at position <code>50</code>.
  * The {@link Contexts.Id} of the technology is <b>xhr4j</b>.
+ * <p>
+ * Requests are processed by a bounded pool of threads. Requests to
+ * the same host are limited, the rest waits in a queue, so connections kept
+ * alive by the JDK get reused instead of opening new ones. The limits of
+ * the default instance can be tuned by following system properties:
+ * <ul>
+ *   <li><code>org.netbeans.html.xhr4j.maxRequests</code> - number of threads
+ *     processing requests, defaults to <code>16</code></li>
+ *   <li><code>org.netbeans.html.xhr4j.maxPerHost</code> - number of requests
+ *     to a single host in progress at once, defaults to <code>6</code></li>
+ *   <li><code>org.netbeans.html.xhr4j.async</code> - when <code>true</code>
+ *     and running on JDK 11 or newer, requests are sent by non-blocking
+ *     <code>java.net.http.HttpClient</code></li>
+ * </ul>
+ * Different configuration can be {@link #create(int, int, boolean) created}
+ * and registered explicitly:
+ * <pre>
+ * {@link Contexts.Builder} builder = {@link Contexts#newBuilder()};
+ * XmlHttpResourceContext.create(4, 2, true).{@link #fillContext(org.netbeans.html.context.spi.Contexts.Builder, java.lang.Class) fillContext}(builder, getClass());
+ * </pre>
  * 
  * @author Jaroslav Tulach
  * @since 1.3
@@ -41,7 +62,35 @@ import org.openide.util.lookup.ServiceProvider;
 @Contexts.Id("xhr4j")
 @ServiceProvider(service = Contexts.Provider.class)
 public final class XmlHttpResourceContext
-implements Contexts.Provider, Transfer {
+implements Contexts.Provider, Transfer.BatchExtract {
+    private final Requests requests;
+
+    /** Default instance, configured by system properties.
+     */
+    public XmlHttpResourceContext() {
+        this(null);
+    }
+
+    private XmlHttpResourceContext(Requests requests) {
+        this.requests = requests;
+    }
+
+    /** Creates new instance with its own pool of requests.
+     *
+     * @param maxRequests number of threads processing the requests
+     * @param maxPerHost number of requests to a single host in progress at
+     *   once, additional requests wait in a queue
+     * @param async use non-blocking <code>java.net.http.HttpClient</code>
+     *   if available (e.g. on JDK 11 and newer)
+     * @return new transfer to {@link #fillContext(org.netbeans.html.context.spi.Contexts.Builder, java.lang.Class) register}
+     *   into a context
+     * @throws IllegalArgumentException if any of the limits isn't positive
+     * @since 1.8
+     */
+    public static XmlHttpResourceContext create(int maxRequests, int maxPerHost, boolean async) {
+        return new XmlHttpResourceContext(new Requests(maxRequests, maxPerHost, async));
+    }
+
     @Override
     public void fillContext(Contexts.Builder context, Class<?> requestor) {
         context.register(Transfer.class, this, 50);
@@ -52,13 +101,19 @@ implements Contexts.Provider, Transfer {
         LoadJSON.extractJSON(obj, props, values);
     }
 
+    @Override
+    public void extract(Object[] objs, String[] props, Object[][] values) {
+        LoadJSON.extractJSON(objs, props, values);
+    }
+
     @Override
     public Object toJSON(InputStream is) throws IOException {
-        return LoadJSON.parse(LoadJSON.readStream(is));
+        return LoadJSON.parse(new InputStreamReader(is, "UTF-8"));
     }
 
     @Override
     public void loadJSON(JSONCall call) {
-        LoadJSON.loadJSON(call);
+        Requests r = requests == null ? Requests.getDefault() : requests;
+        r.execute(call);
     }
 }
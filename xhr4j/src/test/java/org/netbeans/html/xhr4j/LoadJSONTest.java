@@ -0,0 +1,57 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.xhr4j;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.Test;
+
+public class LoadJSONTest {
+    @Test
+    public void parsesToMapsAndArrays() throws Exception {
+        Object obj = parse("{\"a\":[1,{\"b\":null}]});");
+        assertTrue(obj instanceof Map, "Object is a map: " + obj);
+        Object[] arr = (Object[]) ((Map<?, ?>) obj).get("a");
+        assertEquals(arr[0], 1);
+        assertTrue(arr[1] instanceof Map, "Nested object is a map: " + arr[1]);
+    }
+
+    @Test
+    public void extractAllObjectsAtOnce() throws Exception {
+        Object[] arr = (Object[]) parse("[{\"x\":1,\"y\":\"a\"},{\"y\":\"b\"},{}]");
+        String[] props = { "x", "y", null };
+        Object[][] values = new Object[arr.length][props.length];
+        new XmlHttpResourceContext().extract(arr, props, values);
+        assertEquals(values[0][0], 1);
+        assertEquals(values[0][1], "a");
+        assertEquals(values[0][2], arr[0], "null property is the object itself");
+        assertNull(values[1][0]);
+        assertEquals(values[1][1], "b");
+        assertNull(values[2][0]);
+        assertNull(values[2][1]);
+    }
+
+    private static Object parse(String json) throws IOException {
+        return LoadJSON.parse(new StringReader(json));
+    }
+}
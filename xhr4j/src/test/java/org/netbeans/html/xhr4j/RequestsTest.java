@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.netbeans.html.xhr4j;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import net.java.html.BrwsrCtx;
+import net.java.html.json.Model;
+import net.java.html.json.Models;
+import net.java.html.json.OnReceive;
+import net.java.html.json.Property;
+import org.netbeans.html.context.spi.Contexts;
+import org.netbeans.html.json.spi.Transfer;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Model(className = "Replies", properties = {
+    @Property(name = "sum", type = int.class),
+    @Property(name = "errors", type = int.class),
+})
+public class RequestsTest {
+    private static HttpServer server;
+    private static final AtomicInteger RUNNING = new AtomicInteger();
+    private static final AtomicInteger MAX_RUNNING = new AtomicInteger();
+    private static CountDownLatch done;
+
+    @Model(className = "Reply", properties = {
+        @Property(name = "value", type = int.class),
+    })
+    static class ReplyModel {
+    }
+
+    @OnReceive(url = "{url}", onError = "failed")
+    static void loaded(Replies model, Reply reply) {
+        synchronized (model) {
+            model.setSum(model.getSum() + reply.getValue());
+        }
+        done.countDown();
+    }
+
+    @OnReceive(url = "{url}", onError = "failed")
+    static void exploding(Replies model, Reply reply) {
+        done.countDown();
+        throw new IllegalStateException("Failure in handler");
+    }
+
+    static void failed(Replies model, Exception ex) {
+        synchronized (model) {
+            model.setErrors(model.getErrors() + 1);
+        }
+        done.countDown();
+    }
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange ex) throws IOException {
+                int now = RUNNING.incrementAndGet();
+                for (;;) {
+                    int max = MAX_RUNNING.get();
+                    if (now <= max || MAX_RUNNING.compareAndSet(max, now)) {
+                        break;
+                    }
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ie) {
+                    throw new IOException(ie);
+                }
+                String query = ex.getRequestURI().getQuery();
+                byte[] arr;
+                if (query.startsWith("truncated")) {
+                    arr = "[".getBytes("UTF-8");
+                    ex.getResponseHeaders().add("Content-Type", "application/json");
+                    RUNNING.decrementAndGet();
+                    ex.sendResponseHeaders(200, arr.length);
+                } else if (query.startsWith("fail")) {
+                    arr = "Not found".getBytes("UTF-8");
+                    RUNNING.decrementAndGet();
+                    ex.sendResponseHeaders(404, arr.length);
+                } else {
+                    arr = ("{ \"value\" : " + query + " }").getBytes("UTF-8");
+                    ex.getResponseHeaders().add("Content-Type", "application/json");
+                    RUNNING.decrementAndGet();
+                    ex.sendResponseHeaders(200, arr.length);
+                }
+                OutputStream os = ex.getResponseBody();
+                os.write(arr);
+                os.close();
+            }
+        });
+        server.start();
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void blockingRequestsLimitedPerHost() throws Exception {
+        assertLimitedRequests(false);
+    }
+
+    @Test
+    public void asyncRequestsLimitedPerHost() throws Exception {
+        assertLimitedRequests(true);
+    }
+
+    private void assertLimitedRequests(boolean async) throws Exception {
+        Transfer transfer = XmlHttpResourceContext.create(8, 2, async);
+        BrwsrCtx ctx = Contexts.newBuilder().register(Transfer.class, transfer, 1).build();
+        Replies replies = Models.bind(new Replies(), ctx);
+        MAX_RUNNING.set(0);
+        done = new CountDownLatch(22);
+        String url = "http://localhost:" + server.getAddress().getPort() + "/value?";
+        int expected = 0;
+        for (int i = 1; i <= 20; i++) {
+            replies.loaded(url + i);
+            expected += i;
+        }
+        replies.loaded(url + "fail1");
+        replies.loaded(url + "fail2");
+        assertTrue(done.await(30, TimeUnit.SECONDS), "All requests finished");
+        assertEquals(replies.getSum(), expected, "All replies received");
+        assertEquals(replies.getErrors(), 2, "Two errors");
+        assertTrue(MAX_RUNNING.get() <= 2, "At most two requests at once: " + MAX_RUNNING.get());
+    }
+
+    @Test
+    public void blockingTruncatedResponseIsAnError() throws Exception {
+        assertTruncatedResponse(false);
+    }
+
+    @Test
+    public void asyncTruncatedResponseIsAnError() throws Exception {
+        assertTruncatedResponse(true);
+    }
+
+    private void assertTruncatedResponse(boolean async) throws Exception {
+        Transfer transfer = XmlHttpResourceContext.create(8, 2, async);
+        BrwsrCtx ctx = Contexts.newBuilder().register(Transfer.class, transfer, 1).build();
+        Replies replies = Models.bind(new Replies(), ctx);
+        done = new CountDownLatch(1);
+        replies.loaded("http://localhost:" + server.getAddress().getPort() + "/value?truncated");
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Request finished");
+        assertEquals(replies.getErrors(), 1, "Truncated JSON is reported as an error");
+        assertEquals(replies.getSum(), 0, "No reply delivered");
+    }
+
+    @Test
+    public void asyncFailingHandlerFinishesRequestOnce() throws Exception {
+        Transfer transfer = XmlHttpResourceContext.create(8, 1, true);
+        BrwsrCtx ctx = Contexts.newBuilder().register(Transfer.class, transfer, 1).build();
+        Replies replies = Models.bind(new Replies(), ctx);
+        String url = "http://localhost:" + server.getAddress().getPort() + "/value?";
+        done = new CountDownLatch(1);
+        replies.exploding(url + 1);
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Handler called");
+
+        done = new CountDownLatch(2);
+        replies.loaded(url + 2);
+        replies.loaded(url + 3);
+        assertTrue(done.await(30, TimeUnit.SECONDS), "Following requests finished");
+        assertEquals(replies.getSum(), 5, "Both replies received");
+        assertEquals(replies.getErrors(), 0, "Exception of the handler isn't reported as an error");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void limitsMustBePositive() {
+        XmlHttpResourceContext.create(1, 0, false);
+    }
+}